@@ -0,0 +1,154 @@
+package net.coding.demon.lucene.benchmarks;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic corpus shared by the benchmarks.
+ * <p>
+ * Words are drawn from a fixed vocabulary with a Zipf-like distribution so that term frequencies look like
+ * natural text (a few very common terms, a long tail of rare ones). The index is built once per
+ * (numDocs, seed) into {@code -Dbench.corpus.dir} (defaults to the temp folder) and reused by later runs,
+ * so every Directory implementation is measured against exactly the same segments.
+ */
+public final class BenchmarkCorpus {
+    public static final String TITLE_ID_FIELD = "titleId";
+    public static final String TITLE_FIELD = "title";
+    public static final String DESCRIPTION_FIELD = "description";
+    public static final String DOC_SCORE_FIELD = "custom_score";
+
+    public static final int VOCABULARY_SIZE = 20_000;
+    private static final long DEFAULT_SEED = 42L;
+
+    private final int numDocs;
+    private final long seed;
+    private final String[] vocabulary;
+    private final double[] cumulative;
+
+    public BenchmarkCorpus(int numDocs) {
+        this(numDocs, DEFAULT_SEED);
+    }
+
+    public BenchmarkCorpus(int numDocs, long seed) {
+        this.numDocs = numDocs;
+        this.seed = seed;
+        this.vocabulary = new String[VOCABULARY_SIZE];
+        this.cumulative = new double[VOCABULARY_SIZE];
+        double total = 0;
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = "w" + Integer.toString(i, 36);
+            total += 1.0 / (i + 1);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    public int numDocs() {
+        return numDocs;
+    }
+
+    /**
+     * Term with the given popularity rank, 0 being the most frequent one.
+     */
+    public String term(int rank) {
+        return vocabulary[rank];
+    }
+
+    /**
+     * Returns the on-disk location of the corpus index, building it first if it does not exist yet.
+     */
+    public Path buildIfAbsent() throws IOException {
+        return buildIfAbsent(null);
+    }
+
+    /**
+     * Same as {@link #buildIfAbsent()}, with the same documents in segments sorted by {@code indexSort}.
+     * Sorted corpora live next to the unsorted one, in a folder named after the sort.
+     */
+    public Path buildIfAbsent(Sort indexSort) throws IOException {
+        String baseDir = System.getProperty("bench.corpus.dir", System.getProperty("java.io.tmpdir"));
+        String name = "lucene-bench-corpus-" + numDocs + "-" + seed;
+        if (indexSort != null) {
+            name += "-sorted-" + indexSort.toString().replaceAll("[^A-Za-z0-9_]+", "_");
+        }
+        Path location = Paths.get(baseDir, name);
+        if (Files.isDirectory(location)) {
+            try (FSDirectory directory = FSDirectory.open(location)) {
+                if (DirectoryReader.indexExists(directory)) {
+                    return location;
+                }
+            }
+        }
+        Files.createDirectories(location);
+        try (FSDirectory directory = FSDirectory.open(location)) {
+            IndexWriterConfig iwc = new IndexWriterConfig();
+            iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+            iwc.setRAMBufferSizeMB(64);
+            if (indexSort != null) {
+                iwc.setIndexSort(indexSort);
+            }
+            try (IndexWriter indexWriter = new IndexWriter(directory, iwc)) {
+                Random random = new Random(seed);
+                for (int i = 0; i < numDocs; i++) {
+                    indexWriter.addDocument(newDocument(i, random));
+                }
+                indexWriter.commit();
+            }
+        }
+        return location;
+    }
+
+    public Document newDocument(int id, Random random) {
+        Document doc = new Document();
+        doc.add(new StringField(TITLE_ID_FIELD, Integer.toString(id), Field.Store.YES));
+        doc.add(new TextField(TITLE_FIELD, sentence(random, 3 + random.nextInt(6)), Field.Store.YES));
+        doc.add(new TextField(DESCRIPTION_FIELD, sentence(random, 50 + random.nextInt(150)), Field.Store.NO));
+        doc.add(new NumericDocValuesField(DOC_SCORE_FIELD, random.nextInt(1_000_000)));
+        return doc;
+    }
+
+    public String sentence(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(vocabulary[nextRank(random)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Draws a term rank with the same Zipf-like skew as the corpus text, useful for realistic query mixes.
+     */
+    public int nextRank(Random random) {
+        double p = random.nextDouble();
+        int lo = 0;
+        int hi = VOCABULARY_SIZE - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] < p) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,121 @@
+package net.coding.demon.lucene.benchmarks;
+
+import net.coding.demon.lucene.ingest.BulkIndexer;
+import net.coding.demon.lucene.ingest.BulkIndexerConfig;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to bulk index the corpus with {@link BulkIndexer} at different worker counts, to show how indexing
+ * throughput scales with cores. Each invocation indexes every record into a fresh directory and commits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class BulkIndexingBenchmark {
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int numThreads;
+
+    @Param({"100000"})
+    public int numDocs;
+
+    @Param({"256"})
+    public int batchSize;
+
+    /**
+     * Source record, the text is generated up front so that only document building and analysis are measured.
+     */
+    static final class Record {
+        final String id;
+        final String title;
+        final String description;
+        final int score;
+
+        Record(String id, String title, String description, int score) {
+            this.id = id;
+            this.title = title;
+            this.description = description;
+            this.score = score;
+        }
+
+        Document toDocument() {
+            Document doc = new Document();
+            doc.add(new StringField(BenchmarkCorpus.TITLE_ID_FIELD, id, Field.Store.YES));
+            doc.add(new TextField(BenchmarkCorpus.TITLE_FIELD, title, Field.Store.YES));
+            doc.add(new TextField(BenchmarkCorpus.DESCRIPTION_FIELD, description, Field.Store.NO));
+            doc.add(new NumericDocValuesField(BenchmarkCorpus.DOC_SCORE_FIELD, score));
+            return doc;
+        }
+    }
+
+    Record[] records;
+    Path indexLocation;
+
+    @Setup(Level.Trial)
+    public void generateRecords() {
+        BenchmarkCorpus corpus = new BenchmarkCorpus(numDocs);
+        Random random = new Random(42);
+        records = new Record[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            records[i] = new Record(Integer.toString(i), corpus.sentence(random, 3 + random.nextInt(6)),
+                    corpus.sentence(random, 50 + random.nextInt(150)), random.nextInt(1_000_000));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createIndexLocation() throws IOException {
+        indexLocation = Files.createTempDirectory("bulk-indexing-bench");
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteIndexLocation() throws IOException {
+        IOUtils.rm(indexLocation);
+    }
+
+    @Benchmark
+    public long bulkIndex() throws IOException {
+        BulkIndexerConfig config = new BulkIndexerConfig()
+                .setNumThreads(numThreads)
+                .setBatchSize(batchSize);
+        try (MMapDirectory directory = new MMapDirectory(indexLocation);
+             IndexWriter indexWriter = new IndexWriter(directory, config.applyTo(new IndexWriterConfig()))) {
+            try (BulkIndexer<Record> bulkIndexer = new BulkIndexer<>(indexWriter, Record::toDocument, config)) {
+                for (Record record : records) {
+                    bulkIndexer.add(record);
+                }
+            }
+            indexWriter.commit();
+            return config.getMetrics().getDocsIndexed();
+        }
+    }
+}
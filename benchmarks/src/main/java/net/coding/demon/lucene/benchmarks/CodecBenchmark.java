@@ -0,0 +1,145 @@
+package net.coding.demon.lucene.benchmarks;
+
+import net.coding.demon.lucene.codec.CompactCodec;
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.simpletext.SimpleTextCodec;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index size and doc values decode speed of the per-document text statistics of SimpleTextCodecTest
+ * (noOfCharacters, noOfLines, noOfWords) with the default codec, {@link CompactCodec} and SimpleTextCodec.
+ * The size of the doc values files and of the whole index is printed once the index is built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CodecBenchmark {
+    public enum CodecType {
+        DEFAULT, COMPACT, SIMPLE_TEXT;
+
+        Codec newCodec() {
+            switch (this) {
+                case COMPACT:
+                    return new CompactCodec("noOfCharacters", "noOfLines", "noOfWords");
+                case SIMPLE_TEXT:
+                    return new SimpleTextCodec();
+                default:
+                    return Codec.getDefault();
+            }
+        }
+    }
+
+    @Param({"DEFAULT", "COMPACT", "SIMPLE_TEXT"})
+    public CodecType codec;
+
+    @Param({"200000"})
+    public int numDocs;
+
+    Path indexLocation;
+    MMapDirectory directory;
+    DirectoryReader indexReader;
+
+    @Setup(Level.Trial)
+    public void buildIndex() throws IOException {
+        indexLocation = Files.createTempDirectory("codec-bench");
+        directory = new MMapDirectory(indexLocation);
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        iwc.setCodec(codec.newCodec());
+        iwc.setUseCompoundFile(false);
+        iwc.getMergePolicy().setNoCFSRatio(0);
+        try (IndexWriter indexWriter = new IndexWriter(directory, iwc)) {
+            Random random = new Random(42);
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new NumericDocValuesField("noOfCharacters", 100 + random.nextInt(4000)));
+                doc.add(new NumericDocValuesField("noOfLines", 1 + random.nextInt(60)));
+                doc.add(new BinaryDocValuesField("noOfWords", new BytesRef(Integer.toString(20 + random.nextInt(700)))));
+                indexWriter.addDocument(doc);
+            }
+            indexWriter.forceMerge(1);
+        }
+        indexReader = DirectoryReader.open(directory);
+
+        long docValuesBytes = 0;
+        long totalBytes = 0;
+        for (String file : directory.listAll()) {
+            long length = directory.fileLength(file);
+            totalBytes += length;
+            if (file.endsWith("dvd") || file.endsWith("dvm") || file.endsWith(".dat")) {
+                docValuesBytes += length;
+            }
+        }
+        System.out.println();
+        System.out.printf("%s: doc values %d bytes (%.2f bytes/doc), index %d bytes%n", codec, docValuesBytes,
+                (double) docValuesBytes / numDocs, totalBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        IOUtils.close(indexReader, directory);
+        IOUtils.rm(indexLocation);
+    }
+
+    @Benchmark
+    public long decodeNumeric() throws IOException {
+        long sum = 0;
+        for (LeafReaderContext context : indexReader.leaves()) {
+            NumericDocValues characters = DocValues.getNumeric(context.reader(), "noOfCharacters");
+            NumericDocValues lines = DocValues.getNumeric(context.reader(), "noOfLines");
+            for (int doc = characters.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = characters.nextDoc()) {
+                sum += characters.longValue();
+                if (lines.advanceExact(doc)) {
+                    sum += lines.longValue();
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long decodeBinary() throws IOException {
+        long sum = 0;
+        for (LeafReaderContext context : indexReader.leaves()) {
+            BinaryDocValues words = DocValues.getBinary(context.reader(), "noOfWords");
+            for (int doc = words.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = words.nextDoc()) {
+                sum += words.binaryValue().length;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,138 @@
+package net.coding.demon.lucene.benchmarks;
+
+import net.coding.demon.lucene.docvalues.ColumnScanner;
+import net.coding.demon.lucene.docvalues.ColumnStats;
+import net.coding.demon.lucene.docvalues.HistogramSpec;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sum/min/max/histogram of custom_score over the matches of a query: {@link ColumnScanner} against the naive
+ * approach of a Collector that boxes every value into a list and aggregates afterwards.
+ * Run with {@code -prof gc} to see the allocation rate of both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ColumnScanBenchmark {
+    private static final HistogramSpec HISTOGRAM = new HistogramSpec(0, 100_000, 10);
+
+    @Param({"200000"})
+    public int numDocs;
+
+    /**
+     * "all" for every document, otherwise the rank of the term queried in the description field.
+     */
+    @Param({"all", "5"})
+    public String query;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    MMapDirectory directory;
+    DirectoryReader indexReader;
+    IndexSearcher indexSearcher;
+    Query luceneQuery;
+    ForkJoinPool pool;
+    ColumnScanner columnScanner;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkCorpus corpus = new BenchmarkCorpus(numDocs);
+        directory = new MMapDirectory(corpus.buildIfAbsent());
+        indexReader = DirectoryReader.open(directory);
+        indexSearcher = new IndexSearcher(indexReader);
+        indexSearcher.setQueryCache(null);
+        luceneQuery = "all".equals(query) ? new MatchAllDocsQuery()
+                : new TermQuery(new Term(BenchmarkCorpus.DESCRIPTION_FIELD, corpus.term(Integer.parseInt(query))));
+        pool = new ForkJoinPool(parallelism);
+        columnScanner = new ColumnScanner(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        indexReader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public ColumnStats columnScanner() throws IOException {
+        return columnScanner.scan(indexSearcher, luceneQuery, BenchmarkCorpus.DOC_SCORE_FIELD, HISTOGRAM);
+    }
+
+    @Benchmark
+    public void naiveCollector(Blackhole blackhole) throws IOException {
+        BoxingCollector collector = new BoxingCollector();
+        indexSearcher.search(luceneQuery, collector);
+        LongSummaryStatistics statistics = collector.values.stream().mapToLong(Long::longValue).summaryStatistics();
+        long[] buckets = new long[10];
+        for (Long value : collector.values) {
+            long bucket = value / 100_000;
+            if (bucket >= 0 && bucket < buckets.length) {
+                buckets[(int) bucket]++;
+            }
+        }
+        blackhole.consume(statistics);
+        blackhole.consume(buckets);
+    }
+
+    /**
+     * What analytics code usually looks like: read the value per hit and keep it for later.
+     */
+    static final class BoxingCollector extends SimpleCollector {
+        final List<Long> values = new ArrayList<>();
+        NumericDocValues docValues;
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            docValues = DocValues.getNumeric(context.reader(), BenchmarkCorpus.DOC_SCORE_FIELD);
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (docValues.advanceExact(doc)) {
+                values.add(docValues.longValue());
+            }
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package net.coding.demon.lucene.benchmarks;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.RAFDirectory;
+import org.apache.lucene.store.RAMDirectory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The Directory implementations compared in {@link DirectorySearchBenchmark}.
+ */
+public enum DirectoryFactory {
+    MMAP {
+        @Override
+        public Directory open(Path path) throws IOException {
+            return new MMapDirectory(path);
+        }
+    },
+    NIOFS {
+        @Override
+        public Directory open(Path path) throws IOException {
+            return new NIOFSDirectory(path);
+        }
+    },
+    RAF {
+        @Override
+        public Directory open(Path path) throws IOException {
+            return new RAFDirectory(path);
+        }
+    },
+    RAM {
+        @Override
+        @SuppressWarnings("deprecation")
+        public Directory open(Path path) throws IOException {
+            // RAMDirectory is deprecated, but still worth measuring as it is what most people reach for.
+            try (FSDirectory source = FSDirectory.open(path)) {
+                return new RAMDirectory(source, IOContext.READONCE);
+            }
+        }
+    };
+
+    public abstract Directory open(Path path) throws IOException;
+}
@@ -0,0 +1,111 @@
+package net.coding.demon.lucene.benchmarks;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search throughput and latency of the different Directory implementations on the same index.
+ * <p>
+ * {@code Mode.Throughput} gives ops/s for all threads together, {@code Mode.SampleTime} gives the latency
+ * distribution (p50, p99, ...) of single searches. The thread count is driven by
+ * {@link DirectorySearchBenchmarkRunner} which runs the suite at 1, 4, 16 and 64 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DirectorySearchBenchmark {
+
+    @Param({"MMAP", "NIOFS", "RAF", "RAM"})
+    public DirectoryFactory directoryFactory;
+
+    @Param({"200000"})
+    public int numDocs;
+
+    BenchmarkCorpus corpus;
+    Directory directory;
+    DirectoryReader indexReader;
+    IndexSearcher indexSearcher;
+    Sort scoreSort;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        corpus = new BenchmarkCorpus(numDocs);
+        Path indexLocation = corpus.buildIfAbsent();
+        directory = directoryFactory.open(indexLocation);
+        indexReader = DirectoryReader.open(directory);
+        indexSearcher = new IndexSearcher(indexReader);
+        scoreSort = new Sort(new SortField(BenchmarkCorpus.DOC_SCORE_FIELD, SortField.Type.INT, true));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        indexReader.close();
+        directory.close();
+    }
+
+    /**
+     * Per thread query source, so threads do not contend on a shared Random.
+     */
+    @State(Scope.Thread)
+    public static class Queries {
+        // skip the handful of stop-word like terms, they match nearly every doc
+        private static final int MIN_RANK = 10;
+        private static final int MAX_RANK = 2_000;
+
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+
+        Query nextTermQuery(BenchmarkCorpus corpus) {
+            String term = corpus.term(MIN_RANK + random.nextInt(MAX_RANK - MIN_RANK));
+            return new TermQuery(new Term(BenchmarkCorpus.DESCRIPTION_FIELD, term));
+        }
+    }
+
+    @Benchmark
+    public TopDocs termQuery(Queries queries) throws IOException {
+        return indexSearcher.search(queries.nextTermQuery(corpus), 10);
+    }
+
+    @Benchmark
+    public TopDocs matchAllDocsQuery() throws IOException {
+        return indexSearcher.search(new MatchAllDocsQuery(), 10);
+    }
+
+    @Benchmark
+    public TopDocs sortedTermQuery(Queries queries) throws IOException {
+        return indexSearcher.search(queries.nextTermQuery(corpus), 10, scoreSort);
+    }
+}
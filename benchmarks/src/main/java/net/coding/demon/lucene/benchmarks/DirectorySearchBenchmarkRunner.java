@@ -0,0 +1,30 @@
+package net.coding.demon.lucene.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link DirectorySearchBenchmark} once per thread count, since JMH can not take threads as a @Param.
+ * <p>
+ * Thread counts default to 1,4,16,64 and can be changed with {@code -Dbench.threads=1,8}. Results of every
+ * run are written as JSON to {@code directory-search-<threads>t.json} in the working directory.
+ */
+public class DirectorySearchBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String threadCounts = System.getProperty("bench.threads", "1,4,16,64");
+        for (String threadCount : threadCounts.split(",")) {
+            int threads = Integer.parseInt(threadCount.trim());
+            Options options = new OptionsBuilder()
+                    .include(DirectorySearchBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("directory-search-" + threads + "t.json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
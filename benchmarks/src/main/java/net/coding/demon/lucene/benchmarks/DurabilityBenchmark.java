@@ -0,0 +1,104 @@
+package net.coding.demon.lucene.benchmarks;
+
+import net.coding.demon.lucene.wal.DurableIndexWriter;
+import net.coding.demon.lucene.wal.RecordCodec;
+import net.coding.demon.lucene.wal.WalConfig;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable writes per second: an IndexWriter commit after every document, as the tests do, against
+ * {@link DurableIndexWriter} with a group committed write-ahead log. Run with {@code -t} to see the group
+ * commit amortize fsyncs over concurrent writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DurabilityBenchmark {
+
+    /**
+     * "commitPerWrite" commits the IndexWriter after every document, "writeAheadLog" goes through DurableIndexWriter.
+     */
+    @Param({"commitPerWrite", "writeAheadLog"})
+    public String durability;
+
+    @Param({"0", "1000"})
+    public int maxSyncDelayMicros;
+
+    BenchmarkCorpus corpus;
+    Path indexLocation;
+    Path logLocation;
+    MMapDirectory directory;
+    IndexWriter indexWriter;
+    DurableIndexWriter<String> durableIndexWriter;
+    final AtomicInteger nextId = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        corpus = new BenchmarkCorpus(1_000_000);
+        indexLocation = Files.createTempDirectory("durability-bench");
+        logLocation = Files.createTempDirectory("durability-bench-log");
+        directory = new MMapDirectory(indexLocation);
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig());
+        if (!"writeAheadLog".equals(durability)) {
+            return;
+        }
+        WalConfig config = new WalConfig(logLocation)
+                .setMaxSyncDelay(maxSyncDelayMicros, TimeUnit.MICROSECONDS)
+                .setCommitInterval(10, TimeUnit.SECONDS);
+        durableIndexWriter = new DurableIndexWriter<>(indexWriter, this::toDocument, RecordCodec.utf8(), config);
+    }
+
+    // the text of a record only depends on its id, so a replay rebuilds the same document
+    private Document toDocument(String id) {
+        return corpus.newDocument(Integer.parseInt(id), new Random(Integer.parseInt(id)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (durableIndexWriter != null) {
+            System.out.println();
+            System.out.println(durableIndexWriter);
+            durableIndexWriter.close();
+        }
+        indexWriter.close();
+        directory.close();
+        IOUtils.rm(indexLocation, logLocation);
+    }
+
+    @Benchmark
+    public long durableWrite() throws IOException {
+        String id = Integer.toString(nextId.incrementAndGet());
+        if (durableIndexWriter != null) {
+            return durableIndexWriter.add(id);
+        }
+        indexWriter.addDocument(toDocument(id));
+        return indexWriter.commit();
+    }
+}
@@ -0,0 +1,94 @@
+package net.coding.demon.lucene.benchmarks;
+
+import net.coding.demon.lucene.fetch.FetchedHit;
+import net.coding.demon.lucene.fetch.HitFetcher;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetch of one result page sorted by custom_score, so that hits are spread randomly over the segments:
+ * {@code indexSearcher.doc} hit by hit against {@link HitFetcher} with a projection on titleId, and a
+ * fetch served by doc values only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FetchBenchmark {
+
+    @Param({"200000"})
+    public int numDocs;
+
+    @Param({"10", "100", "1000"})
+    public int pageSize;
+
+    MMapDirectory directory;
+    DirectoryReader indexReader;
+    IndexSearcher indexSearcher;
+    ScoreDoc[] hits;
+    HitFetcher storedFetcher;
+    HitFetcher docValuesFetcher;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkCorpus corpus = new BenchmarkCorpus(numDocs);
+        directory = new MMapDirectory(corpus.buildIfAbsent());
+        indexReader = DirectoryReader.open(directory);
+        indexSearcher = new IndexSearcher(indexReader);
+        hits = indexSearcher.search(new TermQuery(new Term(BenchmarkCorpus.DESCRIPTION_FIELD, corpus.term(0))), pageSize,
+                new Sort(new SortField(BenchmarkCorpus.DOC_SCORE_FIELD, SortField.Type.LONG, true))).scoreDocs;
+        storedFetcher = HitFetcher.storedFields(BenchmarkCorpus.TITLE_ID_FIELD);
+        docValuesFetcher = new HitFetcher(Collections.emptySet(), Collections.singleton(BenchmarkCorpus.DOC_SCORE_FIELD));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        indexReader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public void perHitDoc(Blackhole blackhole) throws IOException {
+        for (ScoreDoc hit : hits) {
+            Document document = indexSearcher.doc(hit.doc);
+            blackhole.consume(document);
+        }
+    }
+
+    @Benchmark
+    public FetchedHit[] hitFetcher() throws IOException {
+        return storedFetcher.fetch(indexReader, hits);
+    }
+
+    @Benchmark
+    public FetchedHit[] docValuesOnly() throws IOException {
+        return docValuesFetcher.fetch(indexReader, hits);
+    }
+}
@@ -0,0 +1,95 @@
+package net.coding.demon.lucene.benchmarks;
+
+import net.coding.demon.lucene.sort.EarlyTerminatingSearch;
+import net.coding.demon.lucene.sort.IndexSorting;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-N by custom_score on the same corpus with and without an index sort on custom_score.
+ * {@code earlyTerminating} goes through {@link EarlyTerminatingSearch}, {@code indexSearcher} is a plain
+ * {@link IndexSearcher#search(Query, int, Sort)}, which on a sorted index stops after 1000 hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IndexSortBenchmark {
+    private static final Sort POPULARITY = IndexSorting.descending(BenchmarkCorpus.DOC_SCORE_FIELD);
+
+    @Param({"200000"})
+    public int numDocs;
+
+    @Param({"false", "true"})
+    public boolean sortedIndex;
+
+    /**
+     * "all" for every document, otherwise the rank of the term queried in the description field.
+     */
+    @Param({"all", "0", "100"})
+    public String query;
+
+    @Param({"10", "100"})
+    public int topN;
+
+    MMapDirectory directory;
+    DirectoryReader indexReader;
+    IndexSearcher indexSearcher;
+    Query luceneQuery;
+    EarlyTerminatingSearch earlyTerminatingSearch;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkCorpus corpus = new BenchmarkCorpus(numDocs);
+        directory = new MMapDirectory(sortedIndex ? corpus.buildIfAbsent(POPULARITY) : corpus.buildIfAbsent());
+        indexReader = DirectoryReader.open(directory);
+        indexSearcher = new IndexSearcher(indexReader);
+        indexSearcher.setQueryCache(null);
+        luceneQuery = "all".equals(query) ? new MatchAllDocsQuery()
+                : new TermQuery(new Term(BenchmarkCorpus.DESCRIPTION_FIELD, corpus.term(Integer.parseInt(query))));
+        earlyTerminatingSearch = new EarlyTerminatingSearch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.println(earlyTerminatingSearch);
+        indexReader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public TopFieldDocs earlyTerminating() throws IOException {
+        return earlyTerminatingSearch.search(indexSearcher, luceneQuery, topN, POPULARITY);
+    }
+
+    @Benchmark
+    public TopFieldDocs indexSearcher() throws IOException {
+        return indexSearcher.search(luceneQuery, topN, POPULARITY);
+    }
+}
@@ -0,0 +1,84 @@
+package net.coding.demon.lucene.benchmarks;
+
+import net.coding.demon.lucene.load.LoadConfig;
+import net.coding.demon.lucene.load.LoadHarness;
+import net.coding.demon.lucene.load.LoadMix;
+import net.coding.demon.lucene.load.LoadReport;
+import net.coding.demon.lucene.load.Workload;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link LoadHarness} with corpus documents and description term queries on a fresh index, once per
+ * thread count. Not a JMH benchmark: the harness measures latencies itself, with HdrHistogram.
+ * <p>
+ * Settings are system properties:
+ * <ul>
+ *     <li>{@code bench.threads}: thread counts, default 1,4,16</li>
+ *     <li>{@code bench.seconds}: duration of every run, default 30</li>
+ *     <li>{@code bench.mix}: operation weights, default add=10,update=5,delete=1,commit=0.01,query=84</li>
+ *     <li>{@code bench.initialDocs}: documents indexed before the run, default 100000</li>
+ *     <li>{@code bench.maxStaleSec}: NRT refresh interval, default 1</li>
+ *     <li>{@code bench.targetOps}: total operations per second, default 0 for as fast as possible</li>
+ *     <li>{@code bench.directory}: a {@link DirectoryFactory}, default MMAP</li>
+ * </ul>
+ */
+public class MixedLoadRunner {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        BenchmarkCorpus corpus = new BenchmarkCorpus(0);
+        DirectoryFactory directoryFactory = DirectoryFactory.valueOf(System.getProperty("bench.directory", "MMAP"));
+        for (String threadCount : System.getProperty("bench.threads", "1,4,16").split(",")) {
+            LoadConfig config = new LoadConfig()
+                    .setNumThreads(Integer.parseInt(threadCount.trim()))
+                    .setDuration(Long.parseLong(System.getProperty("bench.seconds", "30")), TimeUnit.SECONDS)
+                    .setMix(LoadMix.parse(System.getProperty("bench.mix", "add=10,update=5,delete=1,commit=0.01,query=84")))
+                    .setInitialDocs(Integer.parseInt(System.getProperty("bench.initialDocs", "100000")))
+                    .setMaxStaleSec(Double.parseDouble(System.getProperty("bench.maxStaleSec", "1")))
+                    .setTargetOpsPerSec(Double.parseDouble(System.getProperty("bench.targetOps", "0")))
+                    .setIdField(BenchmarkCorpus.TITLE_ID_FIELD);
+
+            Path indexLocation = Files.createTempDirectory("lucene-bench-load");
+            try (Directory directory = directoryFactory.open(indexLocation);
+                 IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig().setRAMBufferSizeMB(64))) {
+                LoadReport report = new LoadHarness(indexWriter, new CorpusWorkload(corpus), config).run();
+                System.out.println(report);
+            } finally {
+                IOUtils.rm(indexLocation);
+            }
+        }
+    }
+
+    static final class CorpusWorkload implements Workload {
+        private final BenchmarkCorpus corpus;
+
+        CorpusWorkload(BenchmarkCorpus corpus) {
+            this.corpus = corpus;
+        }
+
+        @Override
+        public Document newDocument(Random random) {
+            Document doc = corpus.newDocument(0, random);
+            // the harness adds its own id
+            doc.removeField(BenchmarkCorpus.TITLE_ID_FIELD);
+            return doc;
+        }
+
+        @Override
+        public Query newQuery(Random random) {
+            return new TermQuery(new Term(BenchmarkCorpus.DESCRIPTION_FIELD, corpus.term(corpus.nextRank(random))));
+        }
+    }
+}
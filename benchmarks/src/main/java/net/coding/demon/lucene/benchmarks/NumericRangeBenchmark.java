@@ -0,0 +1,156 @@
+package net.coding.demon.lucene.benchmarks;
+
+import net.coding.demon.lucene.numeric.NumericField;
+import net.coding.demon.lucene.numeric.NumericQueries;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Numeric range filters, selective and not, alone or under a term query: the IndexOrDocValuesQuery of
+ * {@link NumericQueries} against points only, doc values only, and a term range over zero-padded strings,
+ * which is how numbers are queried when they are indexed as text.
+ * <p>
+ * The corpus documents get a {@code views} value drawn uniformly from [0, 1000000), so the range of a given
+ * selectivity is [0, selectivity * 1000000).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class NumericRangeBenchmark {
+    private static final NumericField VIEWS = NumericField.intField("views");
+    private static final String VIEWS_STRING_FIELD = "views_string";
+    private static final int MAX_VIEWS = 1_000_000;
+
+    @Param({"200000"})
+    public int numDocs;
+
+    /**
+     * Fraction of the documents in the range.
+     */
+    @Param({"0.001", "0.1", "0.5"})
+    public double selectivity;
+
+    /**
+     * "none" for the range alone, otherwise the rank of a description term that leads the search.
+     */
+    @Param({"none", "2000", "0"})
+    public String lead;
+
+    Path indexLocation;
+    MMapDirectory directory;
+    DirectoryReader indexReader;
+    IndexSearcher indexSearcher;
+    Query indexOrDocValuesQuery;
+    Query pointsQuery;
+    Query docValuesQuery;
+    Query stringTermsQuery;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkCorpus corpus = new BenchmarkCorpus(numDocs);
+        indexLocation = Files.createTempDirectory("lucene-bench-numeric");
+        directory = new MMapDirectory(indexLocation);
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        iwc.setRAMBufferSizeMB(64);
+        try (IndexWriter indexWriter = new IndexWriter(directory, iwc)) {
+            Random random = new Random(42);
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = corpus.newDocument(i, random);
+                int views = random.nextInt(MAX_VIEWS);
+                VIEWS.addTo(doc, views);
+                doc.add(new StringField(VIEWS_STRING_FIELD, pad(views), Field.Store.NO));
+                indexWriter.addDocument(doc);
+            }
+            indexWriter.commit();
+        }
+        indexReader = DirectoryReader.open(directory);
+        indexSearcher = new IndexSearcher(indexReader);
+        indexSearcher.setQueryCache(null);
+
+        int upper = (int) (selectivity * MAX_VIEWS) - 1;
+        Query leadQuery = "none".equals(lead) ? null
+                : new TermQuery(new Term(BenchmarkCorpus.DESCRIPTION_FIELD, corpus.term(Integer.parseInt(lead))));
+        indexOrDocValuesQuery = filtered(leadQuery, NumericQueries.newRangeQuery(VIEWS, 0, upper));
+        pointsQuery = filtered(leadQuery, NumericQueries.pointsRangeQuery(VIEWS, 0, upper));
+        docValuesQuery = filtered(leadQuery, NumericQueries.docValuesRangeQuery(VIEWS, 0, upper));
+        stringTermsQuery = filtered(leadQuery, TermRangeQuery.newStringRange(VIEWS_STRING_FIELD, pad(0), pad(upper), true, true));
+    }
+
+    private static String pad(int value) {
+        return String.format(Locale.ROOT, "%07d", value);
+    }
+
+    private static Query filtered(Query lead, Query range) {
+        if (lead == null) {
+            return range;
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(lead, BooleanClause.Occur.MUST);
+        builder.add(range, BooleanClause.Occur.FILTER);
+        return builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        indexReader.close();
+        directory.close();
+        IOUtils.rm(indexLocation);
+    }
+
+    @Benchmark
+    public TopDocs indexOrDocValues() throws IOException {
+        return indexSearcher.search(indexOrDocValuesQuery, 10);
+    }
+
+    @Benchmark
+    public TopDocs points() throws IOException {
+        return indexSearcher.search(pointsQuery, 10);
+    }
+
+    @Benchmark
+    public TopDocs docValues() throws IOException {
+        return indexSearcher.search(docValuesQuery, 10);
+    }
+
+    @Benchmark
+    public TopDocs stringTerms() throws IOException {
+        return indexSearcher.search(stringTermsQuery, 10);
+    }
+}
@@ -0,0 +1,114 @@
+package net.coding.demon.lucene.benchmarks;
+
+import net.coding.demon.lucene.cache.TopDocsCache;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a Zipf-skewed query stream with and without {@link TopDocsCache}. {@code cacheSizeMB=0} searches
+ * directly, so the p50 of the two runs can be compared side by side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class QueryCacheBenchmark {
+
+    @Param({"0", "64"})
+    public int cacheSizeMB;
+
+    @Param({"200000"})
+    public int numDocs;
+
+    /**
+     * Number of distinct queries in the stream, the popularity of each one follows the corpus term skew.
+     */
+    @Param({"10000"})
+    public int distinctQueries;
+
+    BenchmarkCorpus corpus;
+    MMapDirectory directory;
+    DirectoryReader indexReader;
+    IndexSearcher indexSearcher;
+    TopDocsCache cache;
+    Sort scoreSort;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        corpus = new BenchmarkCorpus(numDocs);
+        directory = new MMapDirectory(corpus.buildIfAbsent());
+        indexReader = DirectoryReader.open(directory);
+        indexSearcher = new IndexSearcher(indexReader);
+        // the Lucene query cache would hide the difference for the non cached case
+        indexSearcher.setQueryCache(null);
+        scoreSort = new Sort(new SortField(BenchmarkCorpus.DOC_SCORE_FIELD, SortField.Type.INT, true));
+        cache = cacheSizeMB == 0 ? null : new TopDocsCache(cacheSizeMB * 1024L * 1024L, distinctQueries);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (cache != null) {
+            System.out.println(cache);
+        }
+        indexReader.close();
+        directory.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Queries {
+        Random random;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            random = new Random(Thread.currentThread().getId());
+        }
+
+        Query next(QueryCacheBenchmark benchmark) {
+            int rank;
+            do {
+                rank = benchmark.corpus.nextRank(random);
+            } while (rank >= benchmark.distinctQueries);
+            return new TermQuery(new Term(BenchmarkCorpus.DESCRIPTION_FIELD, benchmark.corpus.term(rank)));
+        }
+    }
+
+    @Benchmark
+    public TopDocs termQuery(Queries queries) throws IOException {
+        Query query = queries.next(this);
+        return cache == null ? indexSearcher.search(query, 10) : cache.search(indexSearcher, query, 10);
+    }
+
+    @Benchmark
+    public TopDocs sortedTermQuery(Queries queries) throws IOException {
+        Query query = queries.next(this);
+        return cache == null ? indexSearcher.search(query, 10, scoreSort) : cache.search(indexSearcher, query, 10, scoreSort);
+    }
+}
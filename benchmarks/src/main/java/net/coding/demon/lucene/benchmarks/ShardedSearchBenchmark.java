@@ -0,0 +1,102 @@
+package net.coding.demon.lucene.benchmarks;
+
+import net.coding.demon.lucene.shard.ShardStats;
+import net.coding.demon.lucene.shard.ShardedIndex;
+import net.coding.demon.lucene.shard.ShardedIndexConfig;
+import net.coding.demon.lucene.shard.ShardedSearcher;
+import net.coding.demon.lucene.shard.ShardedTopDocs;
+import net.coding.demon.lucene.sort.IndexSorting;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-N search over the corpus split into 1 to 8 hash routed shards, searched in parallel and merged.
+ * {@code numShards=1} is the single index baseline. Per shard timings are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ShardedSearchBenchmark {
+    private static final Sort POPULARITY = IndexSorting.descending(BenchmarkCorpus.DOC_SCORE_FIELD);
+
+    @Param({"200000"})
+    public int numDocs;
+
+    @Param({"1", "2", "4", "8"})
+    public int numShards;
+
+    /**
+     * Rank of the term queried in the description field.
+     */
+    @Param({"0", "100"})
+    public int termRank;
+
+    Path shardsLocation;
+    ShardedIndex shardedIndex;
+    ShardedSearcher searcher;
+    Query query;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkCorpus corpus = new BenchmarkCorpus(numDocs);
+        shardsLocation = Files.createTempDirectory("sharded-search-bench");
+        shardedIndex = new ShardedIndex(shardsLocation, new ShardedIndexConfig()
+                .setNumShards(numShards)
+                .setIndexWriterConfigFactory(() -> new IndexWriterConfig().setRAMBufferSizeMB(64)));
+        Random random = new Random(42);
+        for (int i = 0; i < numDocs; i++) {
+            shardedIndex.addDocument(corpus.newDocument(i, random));
+        }
+        shardedIndex.commit();
+        shardedIndex.maybeRefreshBlocking();
+        searcher = shardedIndex.acquire();
+        query = new TermQuery(new Term(BenchmarkCorpus.DESCRIPTION_FIELD, corpus.term(termRank)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        for (ShardStats stats : shardedIndex.getShardStats()) {
+            System.out.println(stats);
+        }
+        searcher.close();
+        shardedIndex.close();
+        IOUtils.rm(shardsLocation);
+    }
+
+    @Benchmark
+    public ShardedTopDocs relevance() throws IOException {
+        return searcher.search(query, 10);
+    }
+
+    @Benchmark
+    public ShardedTopDocs sortedByScore() throws IOException {
+        return searcher.search(query, 10, POPULARITY);
+    }
+}
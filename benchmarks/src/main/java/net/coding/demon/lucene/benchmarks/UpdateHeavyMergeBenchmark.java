@@ -0,0 +1,195 @@
+package net.coding.demon.lucene.benchmarks;
+
+import net.coding.demon.lucene.merge.AdaptiveMergePolicy;
+import net.coding.demon.lucene.merge.AdaptiveMergeScheduler;
+import net.coding.demon.lucene.merge.IdleMergeTrigger;
+import net.coding.demon.lucene.merge.SearchLoadMonitor;
+import net.coding.demon.lucene.telemetry.IndexTelemetry;
+import net.coding.demon.lucene.telemetry.SegmentInspector;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the same seeded update-heavy workload against the default TieredMergePolicy and the
+ * {@link AdaptiveMergePolicy}, while one thread keeps searching an NRT view of the index.
+ * <p>
+ * The score is the time to apply all updates. After each invocation the write amplification (bytes flushed
+ * and merged per byte flushed), the final segment count and the search latency percentiles are printed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class UpdateHeavyMergeBenchmark {
+    public enum MergePolicyType {
+        TIERED, ADAPTIVE
+    }
+
+    @Param({"TIERED", "ADAPTIVE"})
+    public MergePolicyType mergePolicy;
+
+    @Param({"50000"})
+    public int numDocs;
+
+    @Param({"200000"})
+    public int numUpdates;
+
+    @Param({"1000"})
+    public int refreshEveryUpdates;
+
+    BenchmarkCorpus corpus;
+    // the replayed workload: which document every update rewrites, and the terms searched meanwhile
+    int[] updatedIds;
+    String[] queryTerms;
+
+    Path indexLocation;
+    MMapDirectory directory;
+    IndexWriter indexWriter;
+    IndexTelemetry indexTelemetry;
+    SearchLoadMonitor searchLoadMonitor;
+    long[] searchLatencies;
+    int searchCount;
+
+    @Setup(Level.Trial)
+    public void generateWorkload() {
+        corpus = new BenchmarkCorpus(numDocs);
+        Random random = new Random(42);
+        updatedIds = new int[numUpdates];
+        for (int i = 0; i < numUpdates; i++) {
+            // skewed, a few documents are updated over and over again
+            updatedIds[i] = corpus.nextRank(random) % numDocs;
+        }
+        queryTerms = new String[10_000];
+        for (int i = 0; i < queryTerms.length; i++) {
+            queryTerms[i] = corpus.term(corpus.nextRank(random));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createIndex() throws IOException {
+        indexLocation = Files.createTempDirectory("update-heavy-merge-bench");
+        directory = new MMapDirectory(indexLocation);
+        // busy above 2 ms average latency, idle after 500 ms without queries
+        searchLoadMonitor = new SearchLoadMonitor(2, 500);
+        indexTelemetry = new IndexTelemetry();
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        iwc.setRAMBufferSizeMB(16);
+        indexTelemetry.install(iwc);
+        if (mergePolicy == MergePolicyType.ADAPTIVE) {
+            iwc.setMergePolicy(new AdaptiveMergePolicy(searchLoadMonitor).setMinSegmentAgeMillis(1000));
+            iwc.setMergeScheduler(new AdaptiveMergeScheduler(indexTelemetry, searchLoadMonitor));
+        } else {
+            iwc.setMergePolicy(new TieredMergePolicy());
+        }
+        indexWriter = new IndexWriter(directory, iwc);
+        Random random = new Random(7);
+        for (int i = 0; i < numDocs; i++) {
+            indexWriter.addDocument(corpus.newDocument(i, random));
+        }
+        indexWriter.commit();
+        searchLatencies = new long[1 << 20];
+        searchCount = 0;
+    }
+
+    @TearDown(Level.Invocation)
+    public void report() throws IOException {
+        long[] latencies = Arrays.copyOf(searchLatencies, searchCount);
+        Arrays.sort(latencies);
+        System.out.println();
+        System.out.printf("%s: write amplification %.2f, %d segments, %d searches p50 %.3f ms p99 %.3f ms p99.9 %.3f ms%n",
+                mergePolicy, indexTelemetry.getWriteAmplification(),
+                SegmentInspector.inspectLatestCommit(directory).getSegmentCount(), latencies.length,
+                percentileMillis(latencies, 0.5), percentileMillis(latencies, 0.99), percentileMillis(latencies, 0.999));
+        System.out.println(indexTelemetry);
+        IOUtils.close(indexWriter, directory);
+        IOUtils.rm(indexLocation);
+    }
+
+    @Benchmark
+    public long replayUpdates() throws Exception {
+        SearcherManager searcherManager = new SearcherManager(indexWriter, null);
+        Thread searchThread = new Thread(() -> search(searcherManager), "update-heavy-search");
+        searchThread.start();
+        IdleMergeTrigger idleMergeTrigger = mergePolicy == MergePolicyType.ADAPTIVE
+                ? new IdleMergeTrigger(indexWriter, searchLoadMonitor, 100) : null;
+        try {
+            Random random = new Random(13);
+            for (int i = 0; i < numUpdates; i++) {
+                String id = Integer.toString(updatedIds[i]);
+                indexWriter.updateDocument(new Term(BenchmarkCorpus.TITLE_ID_FIELD, id),
+                        corpus.newDocument(updatedIds[i], random));
+                if (i % refreshEveryUpdates == 0) {
+                    searcherManager.maybeRefresh();
+                }
+            }
+            indexWriter.commit();
+        } finally {
+            if (idleMergeTrigger != null) {
+                idleMergeTrigger.close();
+            }
+            searchThread.interrupt();
+            searchThread.join();
+            searcherManager.close();
+        }
+        return indexTelemetry.getMergedBytes();
+    }
+
+    private void search(SearcherManager searcherManager) {
+        int i = 0;
+        while (!Thread.currentThread().isInterrupted() && searchCount < searchLatencies.length) {
+            try {
+                IndexSearcher searcher = searcherManager.acquire();
+                try {
+                    long start = System.nanoTime();
+                    searcher.search(new TermQuery(new Term(BenchmarkCorpus.DESCRIPTION_FIELD,
+                            queryTerms[i++ % queryTerms.length])), 10);
+                    long latency = System.nanoTime() - start;
+                    searchLoadMonitor.recordQuery(latency);
+                    searchLatencies[searchCount++] = latency;
+                } finally {
+                    searcherManager.release(searcher);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static double percentileMillis(long[] sortedLatencies, double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int index = Math.min(sortedLatencies.length - 1, (int) (percentile * sortedLatencies.length));
+        return sortedLatencies[index] / 1_000_000.0;
+    }
+}
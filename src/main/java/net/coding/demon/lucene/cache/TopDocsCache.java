@@ -0,0 +1,293 @@
+package net.coding.demon.lucene.cache;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches the top-N results of whole searches, in front of {@link IndexSearcher#search(Query, int)} and
+ * {@link IndexSearcher#search(Query, int, Sort)}.
+ * <p>
+ * Entries are keyed on (query, sort, n, reader). The reader part is the key of the reader's cache helper,
+ * which is new on every reopen that sees a change, so results of an older point in time are never returned for
+ * a newer searcher, nor results of another index. Registered as a {@link ReferenceManager.RefreshListener} (e.g. on
+ * {@code NrtSearchManager}) the cache also drops all entries after each refresh, so they do not sit around
+ * until they are evicted.
+ * <p>
+ * Memory is bounded by {@code maxRamBytesUsed}; least recently used entries are evicted first. When the cache
+ * is full, a new entry is only admitted if it was requested at least as often as each of the entries it would
+ * evict (TinyLFU admission), which keeps one-off queries from flushing out the hot ones.
+ * <p>
+ * Cached TopDocs are shared between callers and must not be modified.
+ */
+public class TopDocsCache implements Accountable, ReferenceManager.RefreshListener {
+    // same default as LRUQueryCache uses for queries that do not implement Accountable
+    private static final long QUERY_DEFAULT_RAM_BYTES_USED = 1024;
+    private static final long ENTRY_OVERHEAD = RamUsageEstimator.shallowSizeOfInstance(Key.class)
+            + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+            // LinkedHashMap.Entry: hash, key, value, next, before, after
+            + RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 5 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + Integer.BYTES;
+    private static final long SCORE_DOC_BYTES = RamUsageEstimator.shallowSizeOfInstance(ScoreDoc.class);
+    private static final long FIELD_DOC_BYTES = RamUsageEstimator.shallowSizeOfInstance(FieldDoc.class);
+
+    private final long maxRamBytesUsed;
+    private final LinkedHashMap<Key, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch frequencySketch;
+
+    private long ramBytesUsed;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long rejectionCount;
+    private long invalidationCount;
+
+    /**
+     * @param maxRamBytesUsed  upper bound of the heap used by cached results
+     * @param expectedEntries  rough number of distinct entries that fit, used to size the frequency sketch
+     */
+    public TopDocsCache(long maxRamBytesUsed, int expectedEntries) {
+        this.maxRamBytesUsed = maxRamBytesUsed;
+        this.frequencySketch = new FrequencySketch(expectedEntries);
+    }
+
+    public TopDocs search(IndexSearcher searcher, Query query, int n) throws IOException {
+        Key key = new Key(query, null, n, readerKey(searcher.getIndexReader()));
+        TopDocs topDocs = get(key);
+        if (topDocs == null) {
+            topDocs = searcher.search(query, n);
+            put(key, topDocs);
+        }
+        return topDocs;
+    }
+
+    public TopFieldDocs search(IndexSearcher searcher, Query query, int n, Sort sort) throws IOException {
+        Key key = new Key(query, sort, n, readerKey(searcher.getIndexReader()));
+        TopFieldDocs topDocs = (TopFieldDocs) get(key);
+        if (topDocs == null) {
+            topDocs = searcher.search(query, n, sort);
+            put(key, topDocs);
+        }
+        return topDocs;
+    }
+
+    private static Object readerKey(IndexReader reader) {
+        // not the version of a DirectoryReader, readers of two directories can have the same version
+        IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        if (cacheHelper == null) {
+            throw new IllegalArgumentException("reader " + reader + " can not be cached, it has no cache helper");
+        }
+        return cacheHelper.getKey();
+    }
+
+    private synchronized TopDocs get(Key key) {
+        frequencySketch.increment(key.hashCode());
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.topDocs;
+    }
+
+    private synchronized void put(Key key, TopDocs topDocs) {
+        long entryRamBytes = ENTRY_OVERHEAD + queryRamBytesUsed(key.query) + topDocsRamBytesUsed(topDocs);
+        if (entryRamBytes > maxRamBytesUsed) {
+            rejectionCount++;
+            return;
+        }
+        Entry previous = cache.get(key);
+        long freeBytes = maxRamBytesUsed - ramBytesUsed + (previous == null ? 0 : previous.ramBytesUsed);
+        // the victims are chosen before anything is evicted, a rejected candidate leaves the cache as it was
+        int candidateFrequency = frequencySketch.frequency(key.hashCode());
+        List<Key> victims = new ArrayList<>();
+        Iterator<Map.Entry<Key, Entry>> iterator = cache.entrySet().iterator();
+        while (freeBytes < entryRamBytes) {
+            Map.Entry<Key, Entry> victim = iterator.next();
+            if (victim.getKey().equals(key)) {
+                continue;
+            }
+            if (frequencySketch.frequency(victim.getKey().hashCode()) > candidateFrequency) {
+                // an entry we would evict is more popular than the new one, keep them all
+                rejectionCount++;
+                return;
+            }
+            victims.add(victim.getKey());
+            freeBytes += victim.getValue().ramBytesUsed;
+        }
+        for (Key victim : victims) {
+            ramBytesUsed -= cache.remove(victim).ramBytesUsed;
+            evictionCount++;
+        }
+        if (previous != null) {
+            ramBytesUsed -= previous.ramBytesUsed;
+        }
+        cache.put(key, new Entry(topDocs, entryRamBytes));
+        ramBytesUsed += entryRamBytes;
+    }
+
+    private static long queryRamBytesUsed(Query query) {
+        if (query instanceof Accountable) {
+            return ((Accountable) query).ramBytesUsed();
+        }
+        return QUERY_DEFAULT_RAM_BYTES_USED;
+    }
+
+    private static long topDocsRamBytesUsed(TopDocs topDocs) {
+        long bytes = RamUsageEstimator.shallowSizeOf(topDocs)
+                + RamUsageEstimator.shallowSizeOf(topDocs.totalHits)
+                + RamUsageEstimator.shallowSizeOf(topDocs.scoreDocs);
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            if (scoreDoc instanceof FieldDoc) {
+                Object[] fields = ((FieldDoc) scoreDoc).fields;
+                bytes += FIELD_DOC_BYTES;
+                if (fields != null) {
+                    bytes += RamUsageEstimator.shallowSizeOf(fields);
+                    for (Object field : fields) {
+                        bytes += RamUsageEstimator.sizeOfObject(field);
+                    }
+                }
+            } else {
+                bytes += SCORE_DOC_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Removes every cached entry, frequencies are kept.
+     */
+    public synchronized void clear() {
+        cache.clear();
+        ramBytesUsed = 0;
+        invalidationCount++;
+    }
+
+    @Override
+    public void beforeRefresh() {
+    }
+
+    @Override
+    public void afterRefresh(boolean didRefresh) {
+        if (didRefresh) {
+            clear();
+        }
+    }
+
+    @Override
+    public synchronized long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    public long getMaxRamBytesUsed() {
+        return maxRamBytesUsed;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Number of results that were not cached, because they were too large or less popular than the entries
+     * they would have evicted.
+     */
+    public synchronized long getRejectionCount() {
+        return rejectionCount;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    public synchronized double getHitRatio() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TopDocsCache{" +
+                "size=" + cache.size() +
+                ", ramBytesUsed=" + ramBytesUsed +
+                ", maxRamBytesUsed=" + maxRamBytesUsed +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", rejectionCount=" + rejectionCount +
+                ", invalidationCount=" + invalidationCount +
+                '}';
+    }
+
+    private static final class Key {
+        final Query query;
+        final Sort sort;
+        final int n;
+        final Object readerKey;
+        final int hashCode;
+
+        Key(Query query, Sort sort, int n, Object readerKey) {
+            this.query = query;
+            this.sort = sort;
+            this.n = n;
+            this.readerKey = readerKey;
+            // the reader is left out of the hash on purpose, so a query stays popular across refreshes
+            this.hashCode = Objects.hash(query, sort, n);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return n == key.n && hashCode == key.hashCode && query.equals(key.query)
+                    && Objects.equals(sort, key.sort) && readerKey.equals(key.readerKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+        final TopDocs topDocs;
+        final long ramBytesUsed;
+
+        Entry(TopDocs topDocs, long ramBytesUsed) {
+            this.topDocs = topDocs;
+            this.ramBytesUsed = ramBytesUsed;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.coding.demon.lucene.codec;
+
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.FilterCodec;
+import org.apache.lucene.codecs.lucene86.Lucene86Codec;
+import org.apache.lucene.codecs.perfield.PerFieldDocValuesFormat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The default {@link Lucene86Codec} with {@link CompactDocValuesFormat} doc values for hot fields holding small
+ * numbers or few distinct short values. All other formats, and the doc values of the other fields, are the
+ * default ones.
+ * <p>
+ * Where {@link org.apache.lucene.codecs.simpletext.SimpleTextCodec} is for reading the index files, this one is
+ * for production. The codec is registered through SPI as {@value #NAME}; the per-field doc values format is
+ * recorded in the segment, so an index written with it can be opened without listing the fields again.
+ */
+public final class CompactCodec extends FilterCodec {
+    public static final String NAME = "Compact86";
+
+    private final Set<String> compactFields;
+    private final DocValuesFormat compactFormat;
+    private final DocValuesFormat defaultFormat = DocValuesFormat.forName("Lucene80");
+    private final DocValuesFormat docValuesFormat = new PerFieldDocValuesFormat() {
+        @Override
+        public DocValuesFormat getDocValuesFormatForField(String field) {
+            return compactFields == null || compactFields.contains(field) ? compactFormat : defaultFormat;
+        }
+    };
+
+    /**
+     * Compact doc values for every field, used by SPI when reading.
+     */
+    public CompactCodec() {
+        this(null, new CompactDocValuesFormat());
+    }
+
+    /**
+     * Compact doc values for the given fields only.
+     */
+    public CompactCodec(String... compactFields) {
+        this(new HashSet<>(Arrays.asList(compactFields)), new CompactDocValuesFormat());
+    }
+
+    /**
+     * @param compactFields fields written with {@code compactFormat}, {@code null} for all fields
+     */
+    public CompactCodec(Set<String> compactFields, CompactDocValuesFormat compactFormat) {
+        super(NAME, new Lucene86Codec());
+        this.compactFields = compactFields == null ? null : Collections.unmodifiableSet(new HashSet<>(compactFields));
+        this.compactFormat = compactFormat;
+    }
+
+    @Override
+    public DocValuesFormat docValuesFormat() {
+        return docValuesFormat;
+    }
+}
@@ -0,0 +1,228 @@
+package net.coding.demon.lucene.codec;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.DocValuesConsumer;
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.ByteBlockPool;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.packed.DirectWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes the {@link CompactDocValuesFormat} files, see there for the encoding.
+ * <p>
+ * Meta file, per field: field number, type, docCount, docsWithField offset and length (-1 when dense), then
+ * for NUMERIC min, bitsPerValue, values offset and length, for BINARY the dictionary size, offset and length
+ * followed by bitsPerValue, ordinals offset and length. Values are written for every document of the segment,
+ * missing ones as min or ordinal 0, so that lookups need no rank computation.
+ */
+final class CompactDocValuesConsumer extends DocValuesConsumer {
+    // BytesRefHash stores the length in up to 2 bytes in front of the value, in one block of its pool
+    static final int MAX_DICTIONARY_VALUE_LENGTH = ByteBlockPool.BYTE_BLOCK_SIZE - 2;
+
+    private final int maxDictionarySize;
+    private final int maxDoc;
+    private final DocValuesConsumer delegate;
+    private IndexOutput data;
+    private IndexOutput meta;
+
+    CompactDocValuesConsumer(SegmentWriteState state, int maxDictionarySize) throws IOException {
+        this.maxDictionarySize = maxDictionarySize;
+        this.maxDoc = state.segmentInfo.maxDoc();
+        boolean success = false;
+        try {
+            String dataName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix,
+                    CompactDocValuesFormat.DATA_EXTENSION);
+            data = state.directory.createOutput(dataName, state.context);
+            CodecUtil.writeIndexHeader(data, CompactDocValuesFormat.DATA_CODEC, CompactDocValuesFormat.VERSION_CURRENT,
+                    state.segmentInfo.getId(), state.segmentSuffix);
+            String metaName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix,
+                    CompactDocValuesFormat.META_EXTENSION);
+            meta = state.directory.createOutput(metaName, state.context);
+            CodecUtil.writeIndexHeader(meta, CompactDocValuesFormat.META_CODEC, CompactDocValuesFormat.VERSION_CURRENT,
+                    state.segmentInfo.getId(), state.segmentSuffix);
+            delegate = DocValuesFormat.forName("Lucene80").fieldsConsumer(state);
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(this);
+            }
+        }
+    }
+
+    @Override
+    public void addNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        FixedBitSet docsWithField = new FixedBitSet(maxDoc);
+        int docCount = 0;
+        NumericDocValues values = valuesProducer.getNumeric(field);
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            long value = values.longValue();
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            docsWithField.set(doc);
+            docCount++;
+        }
+        if (docCount == 0) {
+            min = max = 0;
+        }
+
+        long delta = max - min;
+        if (delta < 0) {
+            // the range does not fit a long, store the raw values
+            min = 0;
+        }
+        int bitsPerValue = delta == 0 ? 0 : DirectWriter.unsignedBitsRequired(delta);
+
+        meta.writeInt(field.number);
+        meta.writeByte(CompactDocValuesFormat.NUMERIC);
+        writeDocsWithField(docsWithField, docCount);
+        meta.writeLong(min);
+        meta.writeByte((byte) bitsPerValue);
+        long valuesOffset = data.getFilePointer();
+        if (bitsPerValue > 0) {
+            DirectWriter writer = DirectWriter.getInstance(data, maxDoc, bitsPerValue);
+            values = valuesProducer.getNumeric(field);
+            int next = 0;
+            for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+                for (; next < doc; next++) {
+                    writer.add(0);
+                }
+                writer.add(values.longValue() - min);
+                next++;
+            }
+            for (; next < maxDoc; next++) {
+                writer.add(0);
+            }
+            writer.finish();
+        }
+        meta.writeLong(valuesOffset);
+        meta.writeLong(data.getFilePointer() - valuesOffset);
+    }
+
+    @Override
+    public void addBinaryField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        BytesRefHash dictionary = new BytesRefHash();
+        FixedBitSet docsWithField = new FixedBitSet(maxDoc);
+        int docCount = 0;
+        BinaryDocValues values = valuesProducer.getBinary(field);
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            BytesRef value = values.binaryValue();
+            // BytesRefHash can not hold values of a block or more, the default format takes them
+            if (value.length >= MAX_DICTIONARY_VALUE_LENGTH) {
+                delegate.addBinaryField(field, valuesProducer);
+                return;
+            }
+            dictionary.add(value);
+            if (dictionary.size() > maxDictionarySize) {
+                delegate.addBinaryField(field, valuesProducer);
+                return;
+            }
+            docsWithField.set(doc);
+            docCount++;
+        }
+
+        meta.writeInt(field.number);
+        meta.writeByte(CompactDocValuesFormat.BINARY);
+        writeDocsWithField(docsWithField, docCount);
+
+        BytesRef scratch = new BytesRef();
+        long dictionaryOffset = data.getFilePointer();
+        for (int ord = 0; ord < dictionary.size(); ord++) {
+            dictionary.get(ord, scratch);
+            data.writeVInt(scratch.length);
+            data.writeBytes(scratch.bytes, scratch.offset, scratch.length);
+        }
+        meta.writeVInt(dictionary.size());
+        meta.writeLong(dictionaryOffset);
+        meta.writeLong(data.getFilePointer() - dictionaryOffset);
+
+        int bitsPerValue = dictionary.size() <= 1 ? 0 : DirectWriter.unsignedBitsRequired(dictionary.size() - 1);
+        meta.writeByte((byte) bitsPerValue);
+        long ordsOffset = data.getFilePointer();
+        if (bitsPerValue > 0) {
+            DirectWriter writer = DirectWriter.getInstance(data, maxDoc, bitsPerValue);
+            values = valuesProducer.getBinary(field);
+            int next = 0;
+            for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+                for (; next < doc; next++) {
+                    writer.add(0);
+                }
+                writer.add(dictionary.find(values.binaryValue()));
+                next++;
+            }
+            for (; next < maxDoc; next++) {
+                writer.add(0);
+            }
+            writer.finish();
+        }
+        meta.writeLong(ordsOffset);
+        meta.writeLong(data.getFilePointer() - ordsOffset);
+    }
+
+    private void writeDocsWithField(FixedBitSet docsWithField, int docCount) throws IOException {
+        meta.writeVInt(docCount);
+        if (docCount == maxDoc) {
+            meta.writeLong(-1);
+            meta.writeLong(0);
+            return;
+        }
+        long offset = data.getFilePointer();
+        for (long word : docsWithField.getBits()) {
+            data.writeLong(word);
+        }
+        meta.writeLong(offset);
+        meta.writeLong(data.getFilePointer() - offset);
+    }
+
+    @Override
+    public void addSortedField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        delegate.addSortedField(field, valuesProducer);
+    }
+
+    @Override
+    public void addSortedNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        delegate.addSortedNumericField(field, valuesProducer);
+    }
+
+    @Override
+    public void addSortedSetField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        delegate.addSortedSetField(field, valuesProducer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        boolean success = false;
+        try {
+            if (meta != null) {
+                // end of fields marker
+                meta.writeInt(-1);
+                CodecUtil.writeFooter(meta);
+            }
+            if (data != null) {
+                CodecUtil.writeFooter(data);
+            }
+            success = true;
+        } finally {
+            if (success) {
+                IOUtils.close(data, meta, delegate);
+            } else {
+                IOUtils.closeWhileHandlingException(data, meta, delegate);
+            }
+            meta = data = null;
+        }
+    }
+}
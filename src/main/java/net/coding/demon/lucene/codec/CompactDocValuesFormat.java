@@ -0,0 +1,72 @@
+package net.coding.demon.lucene.codec;
+
+import org.apache.lucene.codecs.DocValuesConsumer;
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+
+import java.io.IOException;
+
+/**
+ * DocValues format for small, hot per-document values.
+ * <ul>
+ *     <li>NUMERIC values are stored as {@code value - min}, bit-packed with the fewest bits the segment needs
+ *     and read back with a single {@link org.apache.lucene.util.packed.DirectReader} lookup. A field with a
+ *     single value takes no space at all.</li>
+ *     <li>BINARY values are dictionary encoded when the segment has at most {@code maxDictionarySize} distinct
+ *     values: the dictionary is loaded in memory when the segment is opened and every document only stores
+ *     its bit-packed ordinal.</li>
+ * </ul>
+ * Documents without a value are tracked with a bitset, only written when the field is not dense. BINARY fields
+ * with too many distinct values or with a value of 32766 bytes or more, and the SORTED* types are written with
+ * the default {@code Lucene80} format.
+ * <p>
+ * Registered through SPI as {@value #NAME}, so segments written with it can be read back with any codec.
+ */
+public final class CompactDocValuesFormat extends DocValuesFormat {
+    public static final String NAME = "CompactDV";
+    public static final int DEFAULT_MAX_DICTIONARY_SIZE = 4096;
+
+    static final String DATA_CODEC = "CompactDocValuesData";
+    static final String DATA_EXTENSION = "cdvd";
+    static final String META_CODEC = "CompactDocValuesMetadata";
+    static final String META_EXTENSION = "cdvm";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    static final byte NUMERIC = 0;
+    static final byte BINARY = 1;
+
+    private final int maxDictionarySize;
+
+    /**
+     * Used by SPI when reading, and by {@link CompactCodec}.
+     */
+    public CompactDocValuesFormat() {
+        this(DEFAULT_MAX_DICTIONARY_SIZE);
+    }
+
+    public CompactDocValuesFormat(int maxDictionarySize) {
+        super(NAME);
+        if (maxDictionarySize < 1) {
+            throw new IllegalArgumentException("maxDictionarySize must be >= 1, got " + maxDictionarySize);
+        }
+        this.maxDictionarySize = maxDictionarySize;
+    }
+
+    @Override
+    public DocValuesConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        return new CompactDocValuesConsumer(state, maxDictionarySize);
+    }
+
+    @Override
+    public DocValuesProducer fieldsProducer(SegmentReadState state) throws IOException {
+        return new CompactDocValuesProducer(state);
+    }
+
+    @Override
+    public String toString() {
+        return NAME + "(maxDictionarySize=" + maxDictionarySize + ")";
+    }
+}
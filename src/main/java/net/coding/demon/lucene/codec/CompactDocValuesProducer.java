@@ -0,0 +1,327 @@
+package net.coding.demon.lucene.codec;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.RandomAccessInput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.DirectReader;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the {@link CompactDocValuesFormat} files. Fields written by the fallback format are served by the
+ * {@code Lucene80} producer of the same segment.
+ */
+final class CompactDocValuesProducer extends DocValuesProducer {
+    private final Map<String, NumericEntry> numerics = new HashMap<>();
+    private final Map<String, BinaryEntry> binaries = new HashMap<>();
+    private final int maxDoc;
+    private final IndexInput data;
+    private final DocValuesProducer delegate;
+    private long ramBytesUsed;
+
+    CompactDocValuesProducer(SegmentReadState state) throws IOException {
+        this.maxDoc = state.segmentInfo.maxDoc();
+        this.ramBytesUsed = RamUsageEstimator.shallowSizeOfInstance(getClass());
+
+        String metaName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix,
+                CompactDocValuesFormat.META_EXTENSION);
+        String dataName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix,
+                CompactDocValuesFormat.DATA_EXTENSION);
+        int version = -1;
+        IndexInput data = null;
+        DocValuesProducer delegate = null;
+        boolean success = false;
+        try {
+            data = state.directory.openInput(dataName, state.context);
+            try (ChecksumIndexInput meta = state.directory.openChecksumInput(metaName, state.context)) {
+                Throwable priorE = null;
+                try {
+                    version = CodecUtil.checkIndexHeader(meta, CompactDocValuesFormat.META_CODEC,
+                            CompactDocValuesFormat.VERSION_START, CompactDocValuesFormat.VERSION_CURRENT,
+                            state.segmentInfo.getId(), state.segmentSuffix);
+                    readFields(meta, state.fieldInfos, data);
+                } catch (Throwable exception) {
+                    priorE = exception;
+                } finally {
+                    CodecUtil.checkFooter(meta, priorE);
+                }
+            }
+            int dataVersion = CodecUtil.checkIndexHeader(data, CompactDocValuesFormat.DATA_CODEC,
+                    CompactDocValuesFormat.VERSION_START, CompactDocValuesFormat.VERSION_CURRENT,
+                    state.segmentInfo.getId(), state.segmentSuffix);
+            if (version != dataVersion) {
+                throw new CorruptIndexException("Format versions mismatch: meta=" + version + ", data=" + dataVersion, data);
+            }
+            // cheap structural check of the footer, the full checksum is verified by checkIntegrity
+            CodecUtil.retrieveChecksum(data);
+            delegate = DocValuesFormat.forName("Lucene80").fieldsProducer(state);
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(data, delegate);
+            }
+        }
+        this.data = data;
+        this.delegate = delegate;
+    }
+
+    private void readFields(ChecksumIndexInput meta, FieldInfos fieldInfos, IndexInput data) throws IOException {
+        for (int fieldNumber = meta.readInt(); fieldNumber != -1; fieldNumber = meta.readInt()) {
+            FieldInfo info = fieldInfos.fieldInfo(fieldNumber);
+            if (info == null) {
+                throw new CorruptIndexException("Invalid field number: " + fieldNumber, meta);
+            }
+            byte type = meta.readByte();
+            if (type == CompactDocValuesFormat.NUMERIC) {
+                NumericEntry entry = new NumericEntry();
+                readDocsWithField(meta, entry);
+                entry.min = meta.readLong();
+                entry.bitsPerValue = meta.readByte();
+                entry.valuesOffset = meta.readLong();
+                entry.valuesLength = meta.readLong();
+                numerics.put(info.name, entry);
+            } else if (type == CompactDocValuesFormat.BINARY) {
+                BinaryEntry entry = new BinaryEntry();
+                readDocsWithField(meta, entry);
+                int dictionarySize = meta.readVInt();
+                long dictionaryOffset = meta.readLong();
+                long dictionaryLength = meta.readLong();
+                entry.dictionary = new BytesRef[dictionarySize];
+                // small by definition, keep it on heap
+                IndexInput in = data.slice("dictionary", dictionaryOffset, dictionaryLength);
+                for (int ord = 0; ord < dictionarySize; ord++) {
+                    byte[] bytes = new byte[in.readVInt()];
+                    in.readBytes(bytes, 0, bytes.length);
+                    entry.dictionary[ord] = new BytesRef(bytes);
+                    ramBytesUsed += RamUsageEstimator.sizeOf(bytes) + RamUsageEstimator.shallowSizeOfInstance(BytesRef.class);
+                }
+                entry.bitsPerValue = meta.readByte();
+                entry.valuesOffset = meta.readLong();
+                entry.valuesLength = meta.readLong();
+                binaries.put(info.name, entry);
+            } else {
+                throw new CorruptIndexException("Invalid type: " + type, meta);
+            }
+        }
+    }
+
+    private static void readDocsWithField(ChecksumIndexInput meta, Entry entry) throws IOException {
+        entry.docCount = meta.readVInt();
+        entry.docsWithFieldOffset = meta.readLong();
+        entry.docsWithFieldLength = meta.readLong();
+    }
+
+    @Override
+    public NumericDocValues getNumeric(FieldInfo field) throws IOException {
+        NumericEntry entry = numerics.get(field.name);
+        if (entry == null) {
+            return delegate.getNumeric(field);
+        }
+        final DocsWithField docs = docsWithField(entry);
+        final long min = entry.min;
+        final LongValues values = values(entry);
+        return new NumericDocValues() {
+            @Override
+            public long longValue() {
+                return min + values.get(docs.doc);
+            }
+
+            @Override
+            public boolean advanceExact(int target) throws IOException {
+                return docs.advanceExact(target);
+            }
+
+            @Override
+            public int docID() {
+                return docs.doc;
+            }
+
+            @Override
+            public int nextDoc() throws IOException {
+                return docs.advance(docs.doc + 1);
+            }
+
+            @Override
+            public int advance(int target) throws IOException {
+                return docs.advance(target);
+            }
+
+            @Override
+            public long cost() {
+                return docs.docCount;
+            }
+        };
+    }
+
+    @Override
+    public BinaryDocValues getBinary(FieldInfo field) throws IOException {
+        BinaryEntry entry = binaries.get(field.name);
+        if (entry == null) {
+            return delegate.getBinary(field);
+        }
+        final DocsWithField docs = docsWithField(entry);
+        final BytesRef[] dictionary = entry.dictionary;
+        final LongValues ords = values(entry);
+        return new BinaryDocValues() {
+            @Override
+            public BytesRef binaryValue() {
+                return dictionary[(int) ords.get(docs.doc)];
+            }
+
+            @Override
+            public boolean advanceExact(int target) throws IOException {
+                return docs.advanceExact(target);
+            }
+
+            @Override
+            public int docID() {
+                return docs.doc;
+            }
+
+            @Override
+            public int nextDoc() throws IOException {
+                return docs.advance(docs.doc + 1);
+            }
+
+            @Override
+            public int advance(int target) throws IOException {
+                return docs.advance(target);
+            }
+
+            @Override
+            public long cost() {
+                return docs.docCount;
+            }
+        };
+    }
+
+    private LongValues values(Entry entry) throws IOException {
+        if (entry.bitsPerValue == 0) {
+            return LongValues.ZEROES;
+        }
+        return DirectReader.getInstance(data.randomAccessSlice(entry.valuesOffset, entry.valuesLength), entry.bitsPerValue);
+    }
+
+    private DocsWithField docsWithField(Entry entry) throws IOException {
+        RandomAccessInput bits = entry.docsWithFieldOffset == -1 ? null
+                : data.randomAccessSlice(entry.docsWithFieldOffset, entry.docsWithFieldLength);
+        return new DocsWithField(bits, maxDoc, entry.docCount);
+    }
+
+    @Override
+    public SortedDocValues getSorted(FieldInfo field) throws IOException {
+        return delegate.getSorted(field);
+    }
+
+    @Override
+    public SortedNumericDocValues getSortedNumeric(FieldInfo field) throws IOException {
+        return delegate.getSortedNumeric(field);
+    }
+
+    @Override
+    public SortedSetDocValues getSortedSet(FieldInfo field) throws IOException {
+        return delegate.getSortedSet(field);
+    }
+
+    @Override
+    public void checkIntegrity() throws IOException {
+        CodecUtil.checksumEntireFile(data);
+        delegate.checkIntegrity();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed + delegate.ramBytesUsed();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(data, delegate);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(numerics=" + numerics.size() + ", binaries=" + binaries.size() + ")";
+    }
+
+    private static class Entry {
+        int docCount;
+        long docsWithFieldOffset;
+        long docsWithFieldLength;
+        byte bitsPerValue;
+        long valuesOffset;
+        long valuesLength;
+    }
+
+    private static final class NumericEntry extends Entry {
+        long min;
+    }
+
+    private static final class BinaryEntry extends Entry {
+        BytesRef[] dictionary;
+    }
+
+    /**
+     * Doc id iteration over the docs with a value: every doc when dense, otherwise the bits of the bitset.
+     */
+    private static final class DocsWithField {
+        final RandomAccessInput bits;
+        final int maxDoc;
+        final int docCount;
+        int doc = -1;
+
+        DocsWithField(RandomAccessInput bits, int maxDoc, int docCount) {
+            this.bits = bits;
+            this.maxDoc = maxDoc;
+            this.docCount = docCount;
+        }
+
+        int advance(int target) throws IOException {
+            if (target >= maxDoc) {
+                return doc = DocIdSetIterator.NO_MORE_DOCS;
+            }
+            if (bits == null) {
+                return doc = target;
+            }
+            int wordIndex = target >> 6;
+            // drop the bits before target in the first word
+            long word = bits.readLong((long) wordIndex << 3) >>> target;
+            if (word != 0) {
+                return doc = target + Long.numberOfTrailingZeros(word);
+            }
+            int numWords = (maxDoc + 63) >> 6;
+            while (++wordIndex < numWords) {
+                word = bits.readLong((long) wordIndex << 3);
+                if (word != 0) {
+                    return doc = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                }
+            }
+            return doc = DocIdSetIterator.NO_MORE_DOCS;
+        }
+
+        boolean advanceExact(int target) throws IOException {
+            doc = target;
+            return bits == null || (bits.readLong((long) (target >> 6) << 3) & (1L << target)) != 0;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package net.coding.demon.lucene.docvalues;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Aggregates a numeric doc values column (NUMERIC or SORTED_NUMERIC) over all live documents or over the
+ * matches of a query, without going through a Collector.
+ * <p>
+ * Each segment is scanned by a single tight loop over primitive longs: no boxing and no allocation per
+ * document. Segments are scanned in parallel on a ForkJoinPool and the per segment {@link ColumnStats} are
+ * merged at the end.
+ */
+public class ColumnScanner {
+    private final ForkJoinPool pool;
+
+    public ColumnScanner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ColumnScanner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Aggregates the field over all live documents.
+     *
+     * @param histogramSpec buckets to fill, or null for no histogram
+     */
+    public ColumnStats scan(IndexReader reader, String field, HistogramSpec histogramSpec) throws IOException {
+        return invoke(new ScanTask(reader.leaves(), 0, reader.leaves().size(), null, field, histogramSpec));
+    }
+
+    /**
+     * Aggregates the field over the documents matching the query.
+     *
+     * @param histogramSpec buckets to fill, or null for no histogram
+     */
+    public ColumnStats scan(IndexSearcher searcher, Query query, String field, HistogramSpec histogramSpec) throws IOException {
+        Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        return invoke(new ScanTask(leaves, 0, leaves.size(), weight, field, histogramSpec));
+    }
+
+    private ColumnStats invoke(ScanTask task) throws IOException {
+        try {
+            return pool.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Scans a single segment on the calling thread.
+     *
+     * @param weight the query to scan the matches of, or null for all live documents
+     */
+    public static void scanLeaf(LeafReaderContext context, Weight weight, String field, ColumnStats stats) throws IOException {
+        LeafReader reader = context.reader();
+        FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+        if (fieldInfo == null) {
+            return;
+        }
+        DocValuesType type = fieldInfo.getDocValuesType();
+        if (type != DocValuesType.NUMERIC && type != DocValuesType.SORTED_NUMERIC) {
+            throw new IllegalArgumentException("field " + field + " has doc values type " + type + ", expected NUMERIC or SORTED_NUMERIC");
+        }
+        DocIdSetIterator matches = null;
+        if (weight != null) {
+            Scorer scorer = weight.scorer(context);
+            if (scorer == null) {
+                return;
+            }
+            TwoPhaseIterator twoPhase = scorer.twoPhaseIterator();
+            matches = twoPhase == null ? scorer.iterator() : TwoPhaseIterator.asDocIdSetIterator(twoPhase);
+        }
+        Bits liveDocs = reader.getLiveDocs();
+
+        SortedNumericDocValues sortedNumeric = DocValues.getSortedNumeric(reader, field);
+        NumericDocValues singleton = DocValues.unwrapSingleton(sortedNumeric);
+        if (singleton != null) {
+            if (matches == null) {
+                scanAll(singleton, liveDocs, stats);
+            } else {
+                scanMatches(singleton, matches, liveDocs, stats);
+            }
+        } else {
+            if (matches == null) {
+                scanAll(sortedNumeric, liveDocs, stats);
+            } else {
+                scanMatches(sortedNumeric, matches, liveDocs, stats);
+            }
+        }
+    }
+
+    private static void scanAll(NumericDocValues values, Bits liveDocs, ColumnStats stats) throws IOException {
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            if (liveDocs == null || liveDocs.get(doc)) {
+                stats.collectDoc();
+                stats.collectValue(values.longValue());
+            }
+        }
+    }
+
+    private static void scanMatches(NumericDocValues values, DocIdSetIterator matches, Bits liveDocs, ColumnStats stats) throws IOException {
+        // Scorer iterators do not skip deleted documents, unlike BulkScorer
+        for (int doc = matches.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = matches.nextDoc()) {
+            if ((liveDocs == null || liveDocs.get(doc)) && values.advanceExact(doc)) {
+                stats.collectDoc();
+                stats.collectValue(values.longValue());
+            }
+        }
+    }
+
+    private static void scanAll(SortedNumericDocValues values, Bits liveDocs, ColumnStats stats) throws IOException {
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            if (liveDocs == null || liveDocs.get(doc)) {
+                collectAllValues(values, stats);
+            }
+        }
+    }
+
+    private static void scanMatches(SortedNumericDocValues values, DocIdSetIterator matches, Bits liveDocs, ColumnStats stats) throws IOException {
+        for (int doc = matches.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = matches.nextDoc()) {
+            if ((liveDocs == null || liveDocs.get(doc)) && values.advanceExact(doc)) {
+                collectAllValues(values, stats);
+            }
+        }
+    }
+
+    private static void collectAllValues(SortedNumericDocValues values, ColumnStats stats) throws IOException {
+        stats.collectDoc();
+        for (int i = 0, count = values.docValueCount(); i < count; i++) {
+            stats.collectValue(values.nextValue());
+        }
+    }
+
+    /**
+     * Splits the leaves in halves until a single leaf is left, so idle workers can steal whole segments.
+     */
+    private static class ScanTask extends RecursiveTask<ColumnStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<LeafReaderContext> leaves;
+        private final int from;
+        private final int to;
+        private final Weight weight;
+        private final String field;
+        private final HistogramSpec histogramSpec;
+
+        ScanTask(List<LeafReaderContext> leaves, int from, int to, Weight weight, String field, HistogramSpec histogramSpec) {
+            this.leaves = leaves;
+            this.from = from;
+            this.to = to;
+            this.weight = weight;
+            this.field = field;
+            this.histogramSpec = histogramSpec;
+        }
+
+        @Override
+        protected ColumnStats compute() {
+            if (to - from <= 1) {
+                ColumnStats stats = new ColumnStats(histogramSpec);
+                if (from < to) {
+                    try {
+                        scanLeaf(leaves.get(from), weight, field, stats);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return stats;
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(leaves, from, mid, weight, field, histogramSpec);
+            ScanTask right = new ScanTask(leaves, mid, to, weight, field, histogramSpec);
+            left.fork();
+            ColumnStats stats = right.compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+}
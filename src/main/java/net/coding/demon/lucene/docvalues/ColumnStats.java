@@ -0,0 +1,134 @@
+package net.coding.demon.lucene.docvalues;
+
+import java.util.Arrays;
+
+/**
+ * Primitive aggregates of a numeric doc values column: count, sum, min, max and an optional histogram.
+ * Updating the stats never allocates.
+ */
+public final class ColumnStats {
+    private final HistogramSpec histogramSpec;
+    private final long[] buckets;
+    private long docCount;
+    private long valueCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private long underflow;
+    private long overflow;
+
+    /**
+     * @param histogramSpec buckets to fill, or null for no histogram
+     */
+    public ColumnStats(HistogramSpec histogramSpec) {
+        this.histogramSpec = histogramSpec;
+        this.buckets = histogramSpec == null ? null : new long[histogramSpec.getNumBuckets()];
+    }
+
+    void collectDoc() {
+        docCount++;
+    }
+
+    void collectValue(long value) {
+        valueCount++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        if (buckets != null) {
+            int bucket = histogramSpec.bucket(value);
+            if (bucket < 0) {
+                underflow++;
+            } else if (bucket == buckets.length) {
+                overflow++;
+            } else {
+                buckets[bucket]++;
+            }
+        }
+    }
+
+    void merge(ColumnStats other) {
+        docCount += other.docCount;
+        valueCount += other.valueCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        underflow += other.underflow;
+        overflow += other.overflow;
+        if (buckets != null) {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] += other.buckets[i];
+            }
+        }
+    }
+
+    /**
+     * Number of documents with at least one value.
+     */
+    public long getDocCount() {
+        return docCount;
+    }
+
+    /**
+     * Number of values, larger than the doc count for multi-valued (sorted numeric) fields.
+     */
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the smallest value, or Long.MAX_VALUE if there was none
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * @return the largest value, or Long.MIN_VALUE if there was none
+     */
+    public long getMax() {
+        return max;
+    }
+
+    public double getAverage() {
+        return valueCount == 0 ? Double.NaN : (double) sum / valueCount;
+    }
+
+    public HistogramSpec getHistogramSpec() {
+        return histogramSpec;
+    }
+
+    /**
+     * @return a copy of the bucket counts, or null without histogram
+     */
+    public long[] getBuckets() {
+        return buckets == null ? null : buckets.clone();
+    }
+
+    public long getUnderflow() {
+        return underflow;
+    }
+
+    public long getOverflow() {
+        return overflow;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnStats{" +
+                "docCount=" + docCount +
+                ", valueCount=" + valueCount +
+                ", sum=" + sum +
+                ", min=" + min +
+                ", max=" + max +
+                (buckets == null ? "" : ", buckets=" + Arrays.toString(buckets) + ", underflow=" + underflow + ", overflow=" + overflow) +
+                '}';
+    }
+}
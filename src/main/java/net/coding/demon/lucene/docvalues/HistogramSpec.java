@@ -0,0 +1,50 @@
+package net.coding.demon.lucene.docvalues;
+
+/**
+ * Fixed width buckets: bucket {@code i} holds values in {@code [min + i * interval, min + (i + 1) * interval)}.
+ * Values outside of the buckets are counted as underflow or overflow.
+ */
+public final class HistogramSpec {
+    private final long min;
+    private final long interval;
+    private final int numBuckets;
+
+    public HistogramSpec(long min, long interval, int numBuckets) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be > 0, got " + interval);
+        }
+        if (numBuckets <= 0) {
+            throw new IllegalArgumentException("numBuckets must be > 0, got " + numBuckets);
+        }
+        this.min = min;
+        this.interval = interval;
+        this.numBuckets = numBuckets;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public int getNumBuckets() {
+        return numBuckets;
+    }
+
+    /**
+     * @return the bucket of the value, -1 for underflow and numBuckets for overflow
+     */
+    int bucket(long value) {
+        if (value < min) {
+            return -1;
+        }
+        long bucket = (value - min) / interval;
+        // (value - min) can overflow for values far above min, which makes it negative
+        if (bucket >= numBuckets || bucket < 0) {
+            return numBuckets;
+        }
+        return (int) bucket;
+    }
+}
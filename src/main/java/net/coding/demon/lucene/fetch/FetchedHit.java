@@ -0,0 +1,32 @@
+package net.coding.demon.lucene.fetch;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.search.ScoreDoc;
+
+/**
+ * One hit with its projected fields: the requested stored fields followed by the requested doc values, all
+ * as stored fields of {@link #getDocument()}. Numeric doc values become numeric fields, SORTED and SORTED_SET
+ * values strings and BINARY values bytes.
+ */
+public final class FetchedHit {
+    private final ScoreDoc scoreDoc;
+    private final Document document;
+
+    FetchedHit(ScoreDoc scoreDoc, Document document) {
+        this.scoreDoc = scoreDoc;
+        this.document = document;
+    }
+
+    public ScoreDoc getScoreDoc() {
+        return scoreDoc;
+    }
+
+    public Document getDocument() {
+        return document;
+    }
+
+    @Override
+    public String toString() {
+        return "FetchedHit{doc=" + scoreDoc.doc + ", score=" + scoreDoc.score + ", document=" + document + '}';
+    }
+}
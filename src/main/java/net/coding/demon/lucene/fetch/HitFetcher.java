@@ -0,0 +1,220 @@
+package net.coding.demon.lucene.fetch;
+
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads the fields of a page of hits in one pass over the index, instead of {@code searcher.doc(hit)} per hit.
+ * <ul>
+ *     <li>Hits are visited by segment and doc id. When a segment holds enough hits for its compressed blocks
+ *     to be shared, stored fields are read with the sequential (merge) instance of the segment's stored fields
+ *     reader, which decompresses every block once for all the hits it holds rather than once per hit.</li>
+ *     <li>Only the requested stored fields are turned into {@link org.apache.lucene.index.IndexableField}s.</li>
+ *     <li>Fields requested as doc values are read from their columns, so a page that only needs doc values
+ *     does not touch stored fields at all.</li>
+ * </ul>
+ * Results come back in the order of the hits. A HitFetcher is immutable and can be shared between threads.
+ */
+public final class HitFetcher {
+    /**
+     * Maximum number of documents in a compressed block of the default (BEST_SPEED) stored fields format.
+     */
+    static final int DOCS_PER_BLOCK = 128;
+    /**
+     * Expected hits per block from which a segment is read with the sequential reader. Below that, the
+     * random access reader is cheaper since it only decompresses a block up to the requested document.
+     */
+    static final int MIN_HITS_PER_BLOCK = 2;
+
+    private final Set<String> storedFields;
+    private final Set<String> docValuesFields;
+
+    /**
+     * @param storedFields    stored fields to load
+     * @param docValuesFields fields to read from doc values, multi-valued ones give one value per entry
+     */
+    public HitFetcher(Set<String> storedFields, Set<String> docValuesFields) {
+        this.storedFields = Collections.unmodifiableSet(new LinkedHashSet<>(storedFields));
+        this.docValuesFields = Collections.unmodifiableSet(new LinkedHashSet<>(docValuesFields));
+    }
+
+    public static HitFetcher storedFields(String... fields) {
+        return new HitFetcher(new LinkedHashSet<>(Arrays.asList(fields)), Collections.emptySet());
+    }
+
+    public Set<String> getStoredFields() {
+        return storedFields;
+    }
+
+    public Set<String> getDocValuesFields() {
+        return docValuesFields;
+    }
+
+    public FetchedHit[] fetch(IndexReader reader, ScoreDoc[] hits) throws IOException {
+        // visit the hits by doc id, which is by segment then by doc id within the segment
+        Integer[] order = new Integer[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> hits[i].doc));
+
+        FetchedHit[] fetched = new FetchedHit[hits.length];
+        List<LeafReaderContext> leaves = reader.leaves();
+        int next = 0;
+        for (LeafReaderContext context : leaves) {
+            int docBase = context.docBase;
+            int maxDoc = docBase + context.reader().maxDoc();
+            if (next == order.length || hits[order[next]].doc >= maxDoc) {
+                continue;
+            }
+            int end = next;
+            while (end < order.length && hits[order[end]].doc < maxDoc) {
+                end++;
+            }
+            LeafFetcher leafFetcher = new LeafFetcher(context.reader(), end - next);
+            for (; next < end; next++) {
+                ScoreDoc hit = hits[order[next]];
+                fetched[order[next]] = new FetchedHit(hit, leafFetcher.fetch(hit.doc - docBase));
+            }
+        }
+        if (next != order.length) {
+            throw new IllegalArgumentException("doc " + hits[order[next]].doc + " is out of bounds for " + reader);
+        }
+        return fetched;
+    }
+
+    /**
+     * Reads the fields of one segment, for increasing doc ids.
+     */
+    private final class LeafFetcher {
+        private final LeafReader reader;
+        private final StoredFieldsReader storedFieldsReader;
+        private final FieldInfo[] docValuesInfos;
+        private final Object[] docValues;
+
+        LeafFetcher(LeafReader reader, int numHits) throws IOException {
+            this.reader = reader;
+            // the sequential instance decompresses whole blocks and keeps the last one, which only pays off
+            // when blocks serve several hits; wrapped readers may filter what is visible, they are read
+            // through document()
+            boolean sequential = (long) numHits * DOCS_PER_BLOCK >= MIN_HITS_PER_BLOCK * (long) reader.maxDoc();
+            this.storedFieldsReader = !storedFields.isEmpty() && sequential && reader instanceof CodecReader
+                    ? ((CodecReader) reader).getFieldsReader().getMergeInstance() : null;
+            this.docValuesInfos = new FieldInfo[docValuesFields.size()];
+            this.docValues = new Object[docValuesFields.size()];
+            int i = 0;
+            for (String field : docValuesFields) {
+                FieldInfo info = reader.getFieldInfos().fieldInfo(field);
+                if (info != null && info.getDocValuesType() != DocValuesType.NONE) {
+                    docValuesInfos[i] = info;
+                    docValues[i] = docValuesIterator(info);
+                }
+                i++;
+            }
+        }
+
+        private Object docValuesIterator(FieldInfo info) throws IOException {
+            switch (info.getDocValuesType()) {
+                case NUMERIC:
+                    return DocValues.getNumeric(reader, info.name);
+                case BINARY:
+                    return DocValues.getBinary(reader, info.name);
+                case SORTED:
+                    return DocValues.getSorted(reader, info.name);
+                case SORTED_NUMERIC:
+                    return DocValues.getSortedNumeric(reader, info.name);
+                case SORTED_SET:
+                    return DocValues.getSortedSet(reader, info.name);
+                default:
+                    throw new AssertionError(info.getDocValuesType());
+            }
+        }
+
+        Document fetch(int doc) throws IOException {
+            Document document;
+            if (storedFields.isEmpty()) {
+                document = new Document();
+            } else {
+                DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor(storedFields);
+                if (storedFieldsReader != null) {
+                    storedFieldsReader.visitDocument(doc, visitor);
+                } else {
+                    reader.document(doc, visitor);
+                }
+                document = visitor.getDocument();
+            }
+            for (int i = 0; i < docValuesInfos.length; i++) {
+                if (docValuesInfos[i] != null) {
+                    addDocValues(document, docValuesInfos[i], docValues[i], doc);
+                }
+            }
+            return document;
+        }
+
+        private void addDocValues(Document document, FieldInfo info, Object values, int doc) throws IOException {
+            String field = info.name;
+            switch (info.getDocValuesType()) {
+                case NUMERIC:
+                    NumericDocValues numeric = (NumericDocValues) values;
+                    if (numeric.advanceExact(doc)) {
+                        document.add(new StoredField(field, numeric.longValue()));
+                    }
+                    break;
+                case BINARY:
+                    BinaryDocValues binary = (BinaryDocValues) values;
+                    if (binary.advanceExact(doc)) {
+                        document.add(new StoredField(field, BytesRef.deepCopyOf(binary.binaryValue())));
+                    }
+                    break;
+                case SORTED:
+                    SortedDocValues sorted = (SortedDocValues) values;
+                    if (sorted.advanceExact(doc)) {
+                        document.add(new StoredField(field, sorted.binaryValue().utf8ToString()));
+                    }
+                    break;
+                case SORTED_NUMERIC:
+                    SortedNumericDocValues sortedNumeric = (SortedNumericDocValues) values;
+                    if (sortedNumeric.advanceExact(doc)) {
+                        for (int i = sortedNumeric.docValueCount(); i > 0; i--) {
+                            document.add(new StoredField(field, sortedNumeric.nextValue()));
+                        }
+                    }
+                    break;
+                case SORTED_SET:
+                    SortedSetDocValues sortedSet = (SortedSetDocValues) values;
+                    if (sortedSet.advanceExact(doc)) {
+                        for (long ord = sortedSet.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = sortedSet.nextOrd()) {
+                            document.add(new StoredField(field, sortedSet.lookupOrd(ord).utf8ToString()));
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
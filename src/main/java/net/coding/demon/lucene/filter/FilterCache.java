@@ -0,0 +1,130 @@
+package net.coding.demon.lucene.filter;
+
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.util.BitDocIdSet;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RoaringDocIdSet;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRUQueryCache for the non-scoring filters of our queries (tenant, category, id sets), caching every filter
+ * per segment in the smallest of three representations:
+ * <ul>
+ *     <li>dense, a {@link FixedBitSet}, when at least 1 doc in {@value #DENSE_DOCS_PER_BIT} matches;</li>
+ *     <li>sparse, a sorted doc id array, when at most 1 doc in {@value #SPARSE_DOCS_PER_DOC} matches;</li>
+ *     <li>a {@link RoaringDocIdSet} in between.</li>
+ * </ul>
+ * The cache is bounded by both entry count and heap, see {@link #ramBytesUsed()}. Which filters get cached is
+ * decided by the {@link org.apache.lucene.search.QueryCachingPolicy}, usually a {@link FrequencyCostCachingPolicy},
+ * see {@link #install(IndexSearcher, FrequencyCostCachingPolicy)}.
+ * <p>
+ * Lucene itself refuses to cache TermInSetQuery instances over 1KB and boolean queries with more than 16
+ * clauses, whatever the policy says: large id sets are better expressed as ranges, or split in smaller sets.
+ */
+public class FilterCache extends LRUQueryCache {
+    public static final int DEFAULT_MIN_SEGMENT_DOCS = 10_000;
+    public static final float DEFAULT_SKIP_CACHE_FACTOR = 10;
+
+    static final int DENSE_DOCS_PER_BIT = 16;
+    static final int SPARSE_DOCS_PER_DOC = 4096;
+
+    private final LongAdder denseSets = new LongAdder();
+    private final LongAdder roaringSets = new LongAdder();
+    private final LongAdder sparseSets = new LongAdder();
+
+    public FilterCache(int maxSize, long maxRamBytesUsed) {
+        this(maxSize, maxRamBytesUsed, DEFAULT_MIN_SEGMENT_DOCS, DEFAULT_SKIP_CACHE_FACTOR);
+    }
+
+    /**
+     * @param minSegmentDocs  segments with fewer docs are not cached, filtering them is cheap anyway
+     * @param skipCacheFactor a filter is not cached on a segment when it would cost more than this factor times
+     *                        the cost of the leading clause of the query, see {@link LRUQueryCache}
+     */
+    public FilterCache(int maxSize, long maxRamBytesUsed, int minSegmentDocs, float skipCacheFactor) {
+        super(maxSize, maxRamBytesUsed, context -> context.reader().maxDoc() >= minSegmentDocs, skipCacheFactor);
+    }
+
+    /**
+     * Makes the searcher cache its filters in this cache with the given policy.
+     */
+    public IndexSearcher install(IndexSearcher searcher, FrequencyCostCachingPolicy policy) {
+        searcher.setQueryCache(this);
+        searcher.setQueryCachingPolicy(policy);
+        return searcher;
+    }
+
+    @Override
+    protected DocIdSet cacheImpl(BulkScorer scorer, int maxDoc) throws IOException {
+        FixedBitSet bitSet = new FixedBitSet(maxDoc);
+        int[] count = new int[1];
+        scorer.score(new LeafCollector() {
+            @Override
+            public void setScorer(Scorable scorer) {
+            }
+
+            @Override
+            public void collect(int doc) {
+                bitSet.set(doc);
+                count[0]++;
+            }
+        }, null);
+
+        int cardinality = count[0];
+        if ((long) cardinality * DENSE_DOCS_PER_BIT >= maxDoc) {
+            denseSets.increment();
+            return new BitDocIdSet(bitSet, cardinality);
+        }
+        if ((long) cardinality * SPARSE_DOCS_PER_DOC <= maxDoc) {
+            sparseSets.increment();
+            int[] docs = new int[cardinality];
+            DocIdSetIterator iterator = new BitSetIterator(bitSet, cardinality);
+            for (int i = 0; i < cardinality; i++) {
+                docs[i] = iterator.nextDoc();
+            }
+            return new SparseDocIdSet(docs, cardinality);
+        }
+        roaringSets.increment();
+        return new RoaringDocIdSet.Builder(maxDoc)
+                .add(new BitSetIterator(bitSet, cardinality))
+                .build();
+    }
+
+    /**
+     * Number of per-segment filters cached as dense bitsets so far.
+     */
+    public long getDenseSetCount() {
+        return denseSets.sum();
+    }
+
+    public long getRoaringSetCount() {
+        return roaringSets.sum();
+    }
+
+    public long getSparseSetCount() {
+        return sparseSets.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "FilterCache{" +
+                "cacheSize=" + getCacheSize() +
+                ", ramBytesUsed=" + ramBytesUsed() +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount() +
+                ", dense=" + getDenseSetCount() +
+                ", roaring=" + getRoaringSetCount() +
+                ", sparse=" + getSparseSetCount() +
+                '}';
+    }
+}
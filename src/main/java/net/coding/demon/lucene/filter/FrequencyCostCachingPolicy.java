@@ -0,0 +1,131 @@
+package net.coding.demon.lucene.filter;
+
+import net.coding.demon.lucene.cache.FrequencySketch;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocValuesFieldExistsQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PointInSetQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+
+/**
+ * Caches a filter once it was used often enough, where "often enough" depends on how expensive the filter is
+ * to evaluate:
+ * <ul>
+ *     <li>costly filters (id sets, ranges, wildcards and other multi-term queries) after
+ *     {@code costlyMinFrequency} uses, they save the most per cached segment;</li>
+ *     <li>single term filters after {@code termMinFrequency} uses, they are cheap to run from the postings;</li>
+ *     <li>other filters, typically boolean combinations, after {@code defaultMinFrequency} uses.</li>
+ * </ul>
+ * Match all/none and field exists queries are never cached. Use frequencies are approximated with a
+ * {@link FrequencySketch} that halves every count periodically, so filters that are no longer used stop
+ * being admitted. Whether caching is worth it on a given segment, compared to the lead cost of the query, is
+ * then decided by the {@link FilterCache}.
+ */
+public class FrequencyCostCachingPolicy implements QueryCachingPolicy {
+    public static final int DEFAULT_COSTLY_MIN_FREQUENCY = 2;
+    public static final int DEFAULT_TERM_MIN_FREQUENCY = 5;
+    public static final int DEFAULT_MIN_FREQUENCY = 3;
+
+    private final FrequencySketch frequencySketch;
+    private int costlyMinFrequency = DEFAULT_COSTLY_MIN_FREQUENCY;
+    private int termMinFrequency = DEFAULT_TERM_MIN_FREQUENCY;
+    private int defaultMinFrequency = DEFAULT_MIN_FREQUENCY;
+
+    public FrequencyCostCachingPolicy() {
+        this(256);
+    }
+
+    /**
+     * @param expectedFilters rough number of distinct filters in use, sizes the frequency sketch
+     */
+    public FrequencyCostCachingPolicy(int expectedFilters) {
+        this.frequencySketch = new FrequencySketch(expectedFilters);
+    }
+
+    public FrequencyCostCachingPolicy setCostlyMinFrequency(int costlyMinFrequency) {
+        this.costlyMinFrequency = costlyMinFrequency;
+        return this;
+    }
+
+    public FrequencyCostCachingPolicy setTermMinFrequency(int termMinFrequency) {
+        this.termMinFrequency = termMinFrequency;
+        return this;
+    }
+
+    public FrequencyCostCachingPolicy setDefaultMinFrequency(int defaultMinFrequency) {
+        this.defaultMinFrequency = defaultMinFrequency;
+        return this;
+    }
+
+    @Override
+    public void onUse(Query query) {
+        if (neverCache(query)) {
+            return;
+        }
+        int hash = query.hashCode();
+        synchronized (frequencySketch) {
+            frequencySketch.increment(hash);
+        }
+    }
+
+    @Override
+    public boolean shouldCache(Query query) {
+        if (neverCache(query)) {
+            return false;
+        }
+        return frequency(query) >= minFrequency(query);
+    }
+
+    /**
+     * Approximate number of recent uses of the filter.
+     */
+    public int frequency(Query query) {
+        int hash = query.hashCode();
+        synchronized (frequencySketch) {
+            return frequencySketch.frequency(hash);
+        }
+    }
+
+    int minFrequency(Query query) {
+        if (isCostly(query)) {
+            return costlyMinFrequency;
+        }
+        if (query instanceof TermQuery) {
+            return termMinFrequency;
+        }
+        return defaultMinFrequency;
+    }
+
+    static boolean isCostly(Query query) {
+        return query instanceof MultiTermQuery
+                || query instanceof TermInSetQuery
+                || query instanceof PointRangeQuery
+                || query instanceof PointInSetQuery
+                || query instanceof IndexOrDocValuesQuery;
+    }
+
+    private static boolean neverCache(Query query) {
+        if (query instanceof BooleanQuery && ((BooleanQuery) query).clauses().isEmpty()) {
+            return true;
+        }
+        return query instanceof MatchAllDocsQuery
+                || query instanceof MatchNoDocsQuery
+                || query instanceof DocValuesFieldExistsQuery;
+    }
+
+    @Override
+    public String toString() {
+        return "FrequencyCostCachingPolicy{" +
+                "costlyMinFrequency=" + costlyMinFrequency +
+                ", termMinFrequency=" + termMinFrequency +
+                ", defaultMinFrequency=" + defaultMinFrequency +
+                '}';
+    }
+}
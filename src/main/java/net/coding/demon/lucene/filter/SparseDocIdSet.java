@@ -0,0 +1,63 @@
+package net.coding.demon.lucene.filter;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.util.Arrays;
+
+/**
+ * Sorted array of doc ids, for filters matching so few documents that the per-block overhead of a
+ * {@link org.apache.lucene.util.RoaringDocIdSet} would dominate.
+ */
+final class SparseDocIdSet extends DocIdSet {
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(SparseDocIdSet.class);
+
+    private final int[] docs;
+    private final int length;
+
+    SparseDocIdSet(int[] docs, int length) {
+        this.docs = docs;
+        this.length = length;
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+        return new DocIdSetIterator() {
+            int index = -1;
+            int doc = -1;
+
+            @Override
+            public int docID() {
+                return doc;
+            }
+
+            @Override
+            public int nextDoc() {
+                return doc = ++index < length ? docs[index] : NO_MORE_DOCS;
+            }
+
+            @Override
+            public int advance(int target) {
+                int found = Arrays.binarySearch(docs, index + 1, length, target);
+                index = found >= 0 ? found : -1 - found;
+                return doc = index < length ? docs[index] : NO_MORE_DOCS;
+            }
+
+            @Override
+            public long cost() {
+                return length;
+            }
+        };
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(docs);
+    }
+
+    @Override
+    public String toString() {
+        return "SparseDocIdSet(" + length + " docs)";
+    }
+}
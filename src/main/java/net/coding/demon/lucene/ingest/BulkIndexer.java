@@ -0,0 +1,215 @@
+package net.coding.demon.lucene.ingest;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Feeds an IndexWriter from many threads.
+ * <p>
+ * Records are grouped into batches on the producer side, and each batch is turned into Documents and indexed
+ * with a single {@link IndexWriter#addDocuments(Iterable)} call on one of the worker threads. Analysis happens
+ * inside addDocuments, so it runs on the workers as well. IndexWriter keeps a separate in-memory segment per
+ * indexing thread, so the workers do not contend with each other until a flush.
+ * <p>
+ * At most {@link BulkIndexerConfig#getMaxPendingBatches()} batches are queued or being indexed; {@link #add}
+ * blocks beyond that. The first failure of a worker is rethrown from the next {@link #add}, {@link #flush}
+ * or {@link #close} call.
+ * <p>
+ * The IndexWriter is not committed or closed by this class. For flush and merge stall metrics, create the
+ * writer with an IndexWriterConfig passed through {@link BulkIndexerConfig#applyTo}.
+ *
+ * <pre>
+ * BulkIndexerConfig config = new BulkIndexerConfig().setNumThreads(8);
+ * IndexWriter indexWriter = new IndexWriter(directory, config.applyTo(new IndexWriterConfig()));
+ * try (BulkIndexer&lt;Record&gt; bulkIndexer = new BulkIndexer&lt;&gt;(indexWriter, Record::toDocument, config)) {
+ *     bulkIndexer.addAll(records);
+ * }
+ * indexWriter.commit();
+ * </pre>
+ */
+public class BulkIndexer<T> implements Closeable {
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final IndexWriter indexWriter;
+    private final Function<? super T, Document> documentBuilder;
+    private final int batchSize;
+    private final int maxPendingBatches;
+    private final IngestMetrics metrics;
+    private final ExecutorService executor;
+    private final Semaphore pendingBatches;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private List<T> currentBatch;
+    private boolean closed;
+
+    public BulkIndexer(IndexWriter indexWriter, Function<? super T, Document> documentBuilder, BulkIndexerConfig config) {
+        this.indexWriter = indexWriter;
+        this.documentBuilder = documentBuilder;
+        this.batchSize = config.getBatchSize();
+        this.maxPendingBatches = config.getMaxPendingBatches();
+        this.metrics = config.getMetrics();
+        this.pendingBatches = new Semaphore(maxPendingBatches);
+        this.executor = Executors.newFixedThreadPool(config.getNumThreads(), newThreadFactory());
+        this.currentBatch = new ArrayList<>(batchSize);
+    }
+
+    private static ThreadFactory newThreadFactory() {
+        final int pool = POOL_COUNTER.incrementAndGet();
+        final AtomicInteger threadCounter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "bulk-indexer-" + pool + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Queues one record, blocking while too many batches are pending.
+     */
+    public synchronized void add(T record) throws IOException {
+        ensureOpen();
+        rethrowFailure();
+        currentBatch.add(record);
+        if (currentBatch.size() >= batchSize) {
+            submitCurrentBatch();
+        }
+    }
+
+    public void addAll(Iterator<? extends T> records) throws IOException {
+        while (records.hasNext()) {
+            add(records.next());
+        }
+    }
+
+    public void addAll(Iterable<? extends T> records) throws IOException {
+        addAll(records.iterator());
+    }
+
+    public void addAll(Stream<? extends T> records) throws IOException {
+        addAll(records.iterator());
+    }
+
+    /**
+     * Submits the partially filled batch and waits until every queued record is handed to the IndexWriter.
+     * This does not flush or commit the IndexWriter itself.
+     */
+    public synchronized void flush() throws IOException {
+        ensureOpen();
+        if (!currentBatch.isEmpty()) {
+            submitCurrentBatch();
+        }
+        acquire(maxPendingBatches);
+        pendingBatches.release(maxPendingBatches);
+        rethrowFailure();
+    }
+
+    public IngestMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Indexes whatever is still pending and stops the workers.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void submitCurrentBatch() throws IOException {
+        final List<T> batch = currentBatch;
+        currentBatch = new ArrayList<>(batchSize);
+        acquire(1);
+        try {
+            executor.execute(() -> indexBatch(batch));
+        } catch (RuntimeException e) {
+            pendingBatches.release();
+            throw e;
+        }
+    }
+
+    private void indexBatch(List<T> batch) {
+        try {
+            if (failure.get() != null) {
+                // fail fast, nothing indexed after the first error
+                return;
+            }
+            List<Document> documents = new ArrayList<>(batch.size());
+            for (T record : batch) {
+                documents.add(documentBuilder.apply(record));
+            }
+            indexWriter.addDocuments(documents);
+            metrics.onBatchIndexed(documents.size());
+        } catch (Throwable t) {
+            metrics.onBatchFailed();
+            failure.compareAndSet(null, t);
+        } finally {
+            pendingBatches.release();
+        }
+    }
+
+    private void acquire(int permits) throws IOException {
+        if (pendingBatches.tryAcquire(permits)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            pendingBatches.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for pending batches", e);
+        } finally {
+            metrics.onBackpressureWait(System.nanoTime() - start);
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        Throwable t = failure.get();
+        if (t == null) {
+            return;
+        }
+        if (t instanceof IOException) {
+            throw new IOException("bulk indexing failed", t);
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IOException("bulk indexing failed", t);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("BulkIndexer is closed");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package net.coding.demon.lucene.ingest;
+
+import org.apache.lucene.index.IndexWriterConfig;
+
+/**
+ * Settings for {@link BulkIndexer}. Setters return this so the config can be built the same way as
+ * {@link IndexWriterConfig}.
+ */
+public class BulkIndexerConfig {
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final double DEFAULT_RAM_BUFFER_SIZE_MB = 256;
+    // IndexWriterConfig does not accept more than 2048 MB per thread
+    public static final int DEFAULT_RAM_PER_THREAD_HARD_LIMIT_MB = 512;
+
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int maxPendingBatches = -1;
+    private double ramBufferSizeMB = DEFAULT_RAM_BUFFER_SIZE_MB;
+    private int ramPerThreadHardLimitMB = DEFAULT_RAM_PER_THREAD_HARD_LIMIT_MB;
+    private final IngestMetrics metrics = new IngestMetrics();
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Number of worker threads building documents and calling {@code IndexWriter.addDocuments}.
+     */
+    public BulkIndexerConfig setNumThreads(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("numThreads must be >= 1, got " + numThreads);
+        }
+        this.numThreads = numThreads;
+        return this;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Number of records handed to a worker at once and indexed with a single {@code addDocuments} call.
+     */
+    public BulkIndexerConfig setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be >= 1, got " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public int getMaxPendingBatches() {
+        return maxPendingBatches == -1 ? 2 * numThreads : maxPendingBatches;
+    }
+
+    /**
+     * Maximum number of batches queued or in flight. Producers block once this is reached, which bounds the
+     * heap used by records that are not indexed yet. Defaults to twice the number of threads.
+     */
+    public BulkIndexerConfig setMaxPendingBatches(int maxPendingBatches) {
+        if (maxPendingBatches < 1) {
+            throw new IllegalArgumentException("maxPendingBatches must be >= 1, got " + maxPendingBatches);
+        }
+        this.maxPendingBatches = maxPendingBatches;
+        return this;
+    }
+
+    public double getRAMBufferSizeMB() {
+        return ramBufferSizeMB;
+    }
+
+    /**
+     * Total indexing RAM buffer shared by all threads, see {@link IndexWriterConfig#setRAMBufferSizeMB(double)}.
+     * The default of 16 MB in IndexWriterConfig flushes far too many tiny segments for a bulk load.
+     */
+    public BulkIndexerConfig setRAMBufferSizeMB(double ramBufferSizeMB) {
+        this.ramBufferSizeMB = ramBufferSizeMB;
+        return this;
+    }
+
+    public int getRAMPerThreadHardLimitMB() {
+        return ramPerThreadHardLimitMB;
+    }
+
+    public BulkIndexerConfig setRAMPerThreadHardLimitMB(int ramPerThreadHardLimitMB) {
+        this.ramPerThreadHardLimitMB = ramPerThreadHardLimitMB;
+        return this;
+    }
+
+    public IngestMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Tunes the given IndexWriterConfig for bulk loading and installs the instrumentation that feeds
+     * {@link #getMetrics()}. Must be called before the IndexWriter is created.
+     */
+    public IndexWriterConfig applyTo(IndexWriterConfig iwc) {
+        // flush by RAM usage only, never by doc count
+        iwc.setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+        iwc.setRAMBufferSizeMB(ramBufferSizeMB);
+        iwc.setRAMPerThreadHardLimitMB(ramPerThreadHardLimitMB);
+        // compound files save file handles but cost an extra copy of every flushed segment
+        iwc.setUseCompoundFile(false);
+        metrics.getTelemetry().install(iwc);
+        return iwc;
+    }
+}
@@ -0,0 +1,124 @@
+package net.coding.demon.lucene.ingest;
+
+import net.coding.demon.lucene.telemetry.IndexTelemetry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters collected while bulk indexing. All counters are cumulative and safe to read from any thread.
+ * Flush and merge figures come from the {@link IndexTelemetry} installed by {@link BulkIndexerConfig#applyTo}.
+ */
+public class IngestMetrics {
+    private final LongAdder docsIndexed = new LongAdder();
+    private final LongAdder batchesIndexed = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder backpressureWaitNanos = new LongAdder();
+    private final IndexTelemetry telemetry = new IndexTelemetry();
+    private volatile long startNanos = System.nanoTime();
+
+    /**
+     * Resets the ingest counters and the docs/sec clock, the flush and merge counters are cumulative.
+     */
+    public void reset() {
+        docsIndexed.reset();
+        batchesIndexed.reset();
+        failedBatches.reset();
+        backpressureWaitNanos.reset();
+        startNanos = System.nanoTime();
+    }
+
+    void onBatchIndexed(int docs) {
+        docsIndexed.add(docs);
+        batchesIndexed.increment();
+    }
+
+    void onBatchFailed() {
+        failedBatches.increment();
+    }
+
+    void onBackpressureWait(long nanos) {
+        backpressureWaitNanos.add(nanos);
+    }
+
+    public long getDocsIndexed() {
+        return docsIndexed.sum();
+    }
+
+    public long getBatchesIndexed() {
+        return batchesIndexed.sum();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    /**
+     * Time producers spent blocked because all workers were busy and the batch queue was full.
+     */
+    public long getBackpressureWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(backpressureWaitNanos.sum());
+    }
+
+    /**
+     * Number of times indexing threads were stalled because flushing could not keep up with the RAM buffer.
+     */
+    public long getFlushStalls() {
+        return telemetry.getFlushStalls();
+    }
+
+    public long getFlushStallMillis() {
+        return telemetry.getFlushStallMillis();
+    }
+
+    /**
+     * Number of times an indexing thread was stalled by the merge scheduler because too many merges were pending.
+     */
+    public long getMergeStalls() {
+        return telemetry.getMergeStalls();
+    }
+
+    public long getMergeStallMillis() {
+        return telemetry.getMergeStallMillis();
+    }
+
+    public long getMerges() {
+        return telemetry.getMerges();
+    }
+
+    public long getMergeMillis() {
+        return telemetry.getMergeMillis();
+    }
+
+    /**
+     * Full flush and merge telemetry of the IndexWriter.
+     */
+    public IndexTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    public double getDocsPerSecond() {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return getDocsIndexed() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestMetrics{" +
+                "docsIndexed=" + getDocsIndexed() +
+                ", docsPerSecond=" + String.format("%.1f", getDocsPerSecond()) +
+                ", batchesIndexed=" + getBatchesIndexed() +
+                ", failedBatches=" + getFailedBatches() +
+                ", backpressureWaitMillis=" + getBackpressureWaitMillis() +
+                ", flushStalls=" + getFlushStalls() +
+                ", flushStallMillis=" + getFlushStallMillis() +
+                ", mergeStalls=" + getMergeStalls() +
+                ", mergeStallMillis=" + getMergeStallMillis() +
+                ", merges=" + getMerges() +
+                ", mergeMillis=" + getMergeMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,123 @@
+package net.coding.demon.lucene.inspect;
+
+import net.coding.demon.lucene.telemetry.SegmentsSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of {@link IndexInspector}: files, segments and, if requested, fields of one commit.
+ */
+public final class DiskUsageReport {
+    private final String segmentsFileName;
+    private final SegmentsSnapshot segments;
+    private final List<FileUsage> files;
+    private final List<FieldUsage> fields;
+
+    DiskUsageReport(String segmentsFileName, SegmentsSnapshot segments, List<FileUsage> files, List<FieldUsage> fields) {
+        this.segmentsFileName = segmentsFileName;
+        this.segments = segments;
+        this.files = Collections.unmodifiableList(files);
+        this.fields = Collections.unmodifiableList(fields);
+    }
+
+    public String getSegmentsFileName() {
+        return segmentsFileName;
+    }
+
+    public SegmentsSnapshot getSegments() {
+        return segments;
+    }
+
+    /**
+     * All files of the commit. Compound files are listed along with the files inside them.
+     */
+    public List<FileUsage> getFiles() {
+        return files;
+    }
+
+    /**
+     * Size of the files in the directory, compound file contents are not counted twice.
+     */
+    public long getTotalBytes() {
+        long total = 0;
+        for (FileUsage file : files) {
+            if (!isInsideCompoundFile(file)) {
+                total += file.getSizeInBytes();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Bytes per kind of data, looking inside compound files.
+     */
+    public Map<FileCategory, Long> getBytesByCategory() {
+        Map<FileCategory, Long> bytes = new EnumMap<>(FileCategory.class);
+        for (FileUsage file : files) {
+            if (file.getCategory() != FileCategory.COMPOUND || isInsideCompoundFile(file)) {
+                bytes.merge(file.getCategory(), file.getSizeInBytes(), Long::sum);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Per-field usage, empty for {@link IndexInspector#inspectFiles}.
+     */
+    public List<FieldUsage> getFields() {
+        return fields;
+    }
+
+    public FieldUsage getField(String field) {
+        for (FieldUsage usage : fields) {
+            if (usage.getField().equals(field)) {
+                return usage;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fields by decreasing total size.
+     */
+    public List<FieldUsage> getLargestFields(int n) {
+        List<FieldUsage> sorted = new ArrayList<>(fields);
+        sorted.sort(Comparator.comparingLong(FieldUsage::getTotalBytes).reversed());
+        return sorted.subList(0, Math.min(n, sorted.size()));
+    }
+
+    private static boolean isInsideCompoundFile(FileUsage file) {
+        return file.getName().indexOf(':') != -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s: %d bytes%n", segmentsFileName, getTotalBytes()));
+        sb.append(segments);
+        sb.append(String.format("by category%n"));
+        for (Map.Entry<FileCategory, Long> entry : getBytesByCategory().entrySet()) {
+            sb.append(String.format("  %-14s %12d bytes%n", entry.getKey(), entry.getValue()));
+        }
+        sb.append(String.format("files%n"));
+        for (FileUsage file : files) {
+            sb.append(String.format("  %-32s %-14s %12d bytes%n", file.getName(), file.getCategory(), file.getSizeInBytes()));
+        }
+        if (!fields.isEmpty()) {
+            sb.append(String.format("fields%n  %-24s %12s %12s %12s %12s %12s %12s%n", "field", "total", "postings",
+                    "docValues", "points", "norms", "stored"));
+            for (FieldUsage field : getLargestFields(fields.size())) {
+                sb.append(String.format("  %-24s %12d %12d %12d %12d %12d %12d%n", field.getField(), field.getTotalBytes(),
+                        field.getBytes(FileCategory.POSTINGS), field.getBytes(FileCategory.DOC_VALUES),
+                        field.getBytes(FileCategory.POINTS), field.getBytes(FileCategory.NORMS),
+                        field.getBytes(FileCategory.STORED_FIELDS)));
+            }
+        }
+        return sb.toString();
+    }
+}
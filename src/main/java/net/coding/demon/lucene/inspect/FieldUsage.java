@@ -0,0 +1,45 @@
+package net.coding.demon.lucene.inspect;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Bytes attributed to one field, summed over all segments, per kind of data.
+ */
+public final class FieldUsage {
+    private final String field;
+    private final EnumMap<FileCategory, Long> bytes = new EnumMap<>(FileCategory.class);
+
+    FieldUsage(String field) {
+        this.field = field;
+    }
+
+    void add(FileCategory category, long sizeInBytes) {
+        bytes.merge(category, sizeInBytes, Long::sum);
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public long getBytes(FileCategory category) {
+        return bytes.getOrDefault(category, 0L);
+    }
+
+    public Map<FileCategory, Long> getBytesByCategory() {
+        return new EnumMap<>(bytes);
+    }
+
+    public long getTotalBytes() {
+        long total = 0;
+        for (long value : bytes.values()) {
+            total += value;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return field + " " + bytes;
+    }
+}
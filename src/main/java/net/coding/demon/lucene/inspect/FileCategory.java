@@ -0,0 +1,68 @@
+package net.coding.demon.lucene.inspect;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What an index file holds, derived from its extension. Covers the default codec, SimpleTextCodec and the
+ * compact doc values format.
+ */
+public enum FileCategory {
+    POSTINGS("tim", "tip", "tmd", "doc", "pos", "pay", "pst"),
+    DOC_VALUES("dvd", "dvm", "cdvd", "cdvm", "dat"),
+    STORED_FIELDS("fdt", "fdx", "fdm", "fld"),
+    POINTS("kdd", "kdi", "kdm", "dim", "dii"),
+    NORMS("nvd", "nvm", "len"),
+    TERM_VECTORS("tvd", "tvx", "tvm", "vec"),
+    LIVE_DOCS("liv"),
+    FIELD_INFOS("fnm", "inf"),
+    SEGMENT_INFO("si"),
+    COMPOUND("cfs", "cfe", "scf"),
+    COMMIT,
+    OTHER;
+
+    private static final Map<String, FileCategory> BY_EXTENSION = new HashMap<>();
+
+    static {
+        for (FileCategory category : values()) {
+            for (String extension : category.extensions) {
+                BY_EXTENSION.put(extension, category);
+            }
+        }
+    }
+
+    private final String[] extensions;
+
+    FileCategory(String... extensions) {
+        this.extensions = extensions;
+    }
+
+    /**
+     * File extensions of the category, empty for {@link #COMMIT} and {@link #OTHER}.
+     */
+    public List<String> getExtensions() {
+        return Collections.unmodifiableList(Arrays.asList(extensions));
+    }
+
+    public static FileCategory forFileName(String fileName) {
+        if (fileName.startsWith("segments")) {
+            return COMMIT;
+        }
+        int dot = fileName.lastIndexOf('.');
+        if (dot == -1) {
+            return OTHER;
+        }
+        return BY_EXTENSION.getOrDefault(fileName.substring(dot + 1).toLowerCase(Locale.ROOT), OTHER);
+    }
+
+    /**
+     * Whether the file holds the data of a compound file, as opposed to its entry table.
+     */
+    static boolean isCompoundData(String fileName) {
+        return fileName.endsWith(".cfs") || fileName.endsWith(".scf");
+    }
+}
@@ -0,0 +1,43 @@
+package net.coding.demon.lucene.inspect;
+
+/**
+ * Size of one index file. Files inside a compound file are listed on their own, named
+ * {@code <compound file>:<file>}.
+ */
+public final class FileUsage {
+    private final String name;
+    private final String segment;
+    private final FileCategory category;
+    private final long sizeInBytes;
+
+    FileUsage(String name, String segment, FileCategory category, long sizeInBytes) {
+        this.name = name;
+        this.segment = segment;
+        this.category = category;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Segment the file belongs to, {@code null} for commit level files.
+     */
+    public String getSegment() {
+        return segment;
+    }
+
+    public FileCategory getCategory() {
+        return category;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + category + ", " + sizeInBytes + " bytes)";
+    }
+}
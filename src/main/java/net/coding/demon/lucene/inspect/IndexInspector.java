@@ -0,0 +1,303 @@
+package net.coding.demon.lucene.inspect;
+
+import net.coding.demon.lucene.telemetry.SegmentInspector;
+import org.apache.lucene.codecs.CompoundDirectory;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Disk usage of an index: the size of every file, including the ones inside compound files, the segments of
+ * the last commit and how many bytes of postings, doc values, points, norms and stored fields each field takes.
+ * <p>
+ * Nothing is loaded in memory: file sizes come from the directory, and per-field sizes are measured by
+ * streaming over each field's data through {@link org.apache.lucene.store.IndexInput}s that only remember the
+ * range of offsets read (see {@link TrackingDirectory}). Stored fields interleave all fields of a document, so
+ * the stored fields files are split between fields in proportion of their stored value lengths.
+ * <p>
+ * Reading every field once makes the per-field breakdown as expensive as a full scan of the index, use
+ * {@link #inspectFiles(Directory)} for the cheap file level report.
+ */
+public final class IndexInspector {
+
+    private IndexInspector() {
+    }
+
+    /**
+     * File and segment level report, only looks at file lengths.
+     */
+    public static DiskUsageReport inspectFiles(Directory directory) throws IOException {
+        return inspect(directory, false);
+    }
+
+    /**
+     * File, segment and field level report of the last commit.
+     */
+    public static DiskUsageReport inspect(Directory directory) throws IOException {
+        return inspect(directory, true);
+    }
+
+    private static DiskUsageReport inspect(Directory directory, boolean perField) throws IOException {
+        SegmentInfos segmentInfos = SegmentInfos.readLatestCommit(directory);
+        List<FileUsage> files = listFiles(directory, segmentInfos);
+        Map<String, FieldUsage> fields = new TreeMap<>();
+        if (perField) {
+            TrackingDirectory trackingDirectory = new TrackingDirectory(directory);
+            try (DirectoryReader reader = DirectoryReader.open(trackingDirectory)) {
+                for (LeafReaderContext context : reader.leaves()) {
+                    inspectSegment(trackingDirectory, (CodecReader) context.reader(), files, fields);
+                }
+            }
+        }
+        return new DiskUsageReport(segmentInfos.getSegmentsFileName(), SegmentInspector.inspectLatestCommit(directory),
+                files, new ArrayList<>(fields.values()));
+    }
+
+    private static List<FileUsage> listFiles(Directory directory, SegmentInfos segmentInfos) throws IOException {
+        List<FileUsage> files = new ArrayList<>();
+        files.add(new FileUsage(segmentInfos.getSegmentsFileName(), null, FileCategory.COMMIT,
+                directory.fileLength(segmentInfos.getSegmentsFileName())));
+        for (SegmentCommitInfo info : segmentInfos) {
+            String segment = info.info.name;
+            for (String file : info.files()) {
+                long length = directory.fileLength(file);
+                files.add(new FileUsage(file, segment, FileCategory.forFileName(file), length));
+                if (FileCategory.isCompoundData(file)) {
+                    try (CompoundDirectory compound = info.info.getCodec().compoundFormat()
+                            .getCompoundReader(directory, info.info, IOContext.READONCE)) {
+                        for (String subFile : compound.listAll()) {
+                            files.add(new FileUsage(file + ":" + subFile, segment, FileCategory.forFileName(subFile),
+                                    compound.fileLength(subFile)));
+                        }
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private static void inspectSegment(TrackingDirectory directory, CodecReader reader, List<FileUsage> files,
+                                       Map<String, FieldUsage> fields) throws IOException {
+        for (FieldInfo fieldInfo : reader.getFieldInfos()) {
+            FieldUsage usage = fields.computeIfAbsent(fieldInfo.name, FieldUsage::new);
+            if (fieldInfo.getIndexOptions() != IndexOptions.NONE) {
+                directory.reset();
+                readPostings(reader, fieldInfo);
+                attribute(directory, usage);
+            }
+            if (fieldInfo.hasNorms()) {
+                directory.reset();
+                readNumeric(reader.getNormValues(fieldInfo.name));
+                attribute(directory, usage);
+            }
+            if (fieldInfo.getDocValuesType() != DocValuesType.NONE) {
+                directory.reset();
+                readDocValues(reader, fieldInfo);
+                attribute(directory, usage);
+            }
+            if (fieldInfo.getPointDimensionCount() > 0) {
+                directory.reset();
+                readPoints(reader.getPointValues(fieldInfo.name));
+                attribute(directory, usage);
+            }
+        }
+        attributeStoredFields(reader, files, fields);
+    }
+
+    private static void attribute(TrackingDirectory directory, FieldUsage usage) {
+        directory.forEachRead((file, bytes) -> usage.add(FileCategory.forFileName(file), bytes));
+    }
+
+    private static void readPostings(CodecReader reader, FieldInfo fieldInfo) throws IOException {
+        Terms terms = reader.terms(fieldInfo.name);
+        if (terms == null) {
+            return;
+        }
+        boolean positions = fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+        TermsEnum termsEnum = terms.iterator();
+        PostingsEnum postings = null;
+        while (termsEnum.next() != null) {
+            postings = termsEnum.postings(postings, positions ? PostingsEnum.ALL : PostingsEnum.FREQS);
+            while (postings.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                if (positions) {
+                    for (int i = postings.freq(); i > 0; i--) {
+                        postings.nextPosition();
+                        postings.getPayload();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void readNumeric(NumericDocValues values) throws IOException {
+        if (values == null) {
+            return;
+        }
+        while (values.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+            values.longValue();
+        }
+    }
+
+    private static void readDocValues(CodecReader reader, FieldInfo fieldInfo) throws IOException {
+        switch (fieldInfo.getDocValuesType()) {
+            case NUMERIC:
+                readNumeric(reader.getNumericDocValues(fieldInfo.name));
+                break;
+            case BINARY:
+                BinaryDocValues binary = reader.getBinaryDocValues(fieldInfo.name);
+                while (binary.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    binary.binaryValue();
+                }
+                break;
+            case SORTED:
+                SortedDocValues sorted = reader.getSortedDocValues(fieldInfo.name);
+                while (sorted.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    sorted.ordValue();
+                }
+                for (int ord = 0; ord < sorted.getValueCount(); ord++) {
+                    sorted.lookupOrd(ord);
+                }
+                break;
+            case SORTED_NUMERIC:
+                SortedNumericDocValues sortedNumeric = reader.getSortedNumericDocValues(fieldInfo.name);
+                while (sortedNumeric.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    for (int i = sortedNumeric.docValueCount(); i > 0; i--) {
+                        sortedNumeric.nextValue();
+                    }
+                }
+                break;
+            case SORTED_SET:
+                SortedSetDocValues sortedSet = reader.getSortedSetDocValues(fieldInfo.name);
+                while (sortedSet.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    while (sortedSet.nextOrd() != SortedSetDocValues.NO_MORE_ORDS) {
+                        // just read
+                    }
+                }
+                for (long ord = 0; ord < sortedSet.getValueCount(); ord++) {
+                    sortedSet.lookupOrd(ord);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void readPoints(PointValues points) throws IOException {
+        if (points == null) {
+            return;
+        }
+        // crossing every cell visits every leaf block with its values
+        points.intersect(new PointValues.IntersectVisitor() {
+            @Override
+            public void visit(int docID) {
+            }
+
+            @Override
+            public void visit(int docID, byte[] packedValue) {
+            }
+
+            @Override
+            public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+        });
+    }
+
+    private static void attributeStoredFields(CodecReader reader, List<FileUsage> files, Map<String, FieldUsage> fields) throws IOException {
+        String segment = ((SegmentReader) reader).getSegmentName();
+        long storedBytes = 0;
+        for (FileUsage file : files) {
+            if (segment.equals(file.getSegment()) && file.getCategory() == FileCategory.STORED_FIELDS) {
+                storedBytes += file.getSizeInBytes();
+            }
+        }
+        if (storedBytes == 0) {
+            return;
+        }
+        StoredLengthVisitor visitor = new StoredLengthVisitor();
+        for (int doc = 0; doc < reader.maxDoc(); doc++) {
+            reader.document(doc, visitor);
+        }
+        if (visitor.total == 0) {
+            return;
+        }
+        for (Map.Entry<String, Long> entry : visitor.lengths.entrySet()) {
+            fields.computeIfAbsent(entry.getKey(), FieldUsage::new)
+                    .add(FileCategory.STORED_FIELDS, storedBytes * entry.getValue() / visitor.total);
+        }
+    }
+
+    /**
+     * Uncompressed length of the stored values of each field.
+     */
+    private static final class StoredLengthVisitor extends StoredFieldVisitor {
+        final Map<String, Long> lengths = new HashMap<>();
+        long total;
+
+        private void add(FieldInfo fieldInfo, long length) {
+            lengths.merge(fieldInfo.name, length, Long::sum);
+            total += length;
+        }
+
+        @Override
+        public void binaryField(FieldInfo fieldInfo, byte[] value) {
+            add(fieldInfo, value.length);
+        }
+
+        @Override
+        public void stringField(FieldInfo fieldInfo, byte[] value) {
+            add(fieldInfo, value.length);
+        }
+
+        @Override
+        public void intField(FieldInfo fieldInfo, int value) {
+            add(fieldInfo, Integer.BYTES);
+        }
+
+        @Override
+        public void longField(FieldInfo fieldInfo, long value) {
+            add(fieldInfo, Long.BYTES);
+        }
+
+        @Override
+        public void floatField(FieldInfo fieldInfo, float value) {
+            add(fieldInfo, Float.BYTES);
+        }
+
+        @Override
+        public void doubleField(FieldInfo fieldInfo, double value) {
+            add(fieldInfo, Double.BYTES);
+        }
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) {
+            return Status.YES;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package net.coding.demon.lucene.inspect;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Read only directory remembering, per file, the lowest and highest offset read since the last
+ * {@link #reset()}. Lucene formats write the data of one field in one contiguous range of each file, so that
+ * range is the size of the field's data in the file. Files inside compound files are tracked on their own.
+ * <p>
+ * Memory is one span per file, whatever the size of the index.
+ */
+final class TrackingDirectory extends FilterDirectory {
+    private final Map<String, ReadSpan> spans = new LinkedHashMap<>();
+
+    TrackingDirectory(Directory in) {
+        super(in);
+    }
+
+    @Override
+    public IndexInput openInput(String name, IOContext context) throws IOException {
+        return new TrackingIndexInput(in.openInput(name, context), span(name), 0, FileCategory.isCompoundData(name));
+    }
+
+    private ReadSpan span(String file) {
+        return spans.computeIfAbsent(file, ReadSpan::new);
+    }
+
+    void reset() {
+        for (ReadSpan span : spans.values()) {
+            span.reset();
+        }
+    }
+
+    /**
+     * Passes the file name and number of bytes of every file read since the last reset.
+     */
+    void forEachRead(BiConsumer<String, Long> consumer) {
+        List<ReadSpan> read = new ArrayList<>();
+        for (ReadSpan span : spans.values()) {
+            if (span.isRead()) {
+                read.add(span);
+            }
+        }
+        for (ReadSpan span : read) {
+            consumer.accept(span.file, span.length());
+        }
+    }
+
+    static final class ReadSpan {
+        final String file;
+        long start;
+        long end;
+
+        ReadSpan(String file) {
+            this.file = file;
+            reset();
+        }
+
+        void reset() {
+            start = Long.MAX_VALUE;
+            end = Long.MIN_VALUE;
+        }
+
+        boolean isRead() {
+            return end > start;
+        }
+
+        long length() {
+            return end - start;
+        }
+
+        void record(long position, long length) {
+            if (position < start) {
+                start = position;
+            }
+            if (position + length > end) {
+                end = position + length;
+            }
+        }
+    }
+
+    private final class TrackingIndexInput extends IndexInput {
+        private final IndexInput in;
+        private final ReadSpan span;
+        // offset of this input in the tracked file
+        private final long base;
+        // slices of a compound file are the sub files, tracked on their own
+        private final boolean compound;
+
+        TrackingIndexInput(IndexInput in, ReadSpan span, long base, boolean compound) {
+            super("tracking(" + in + ")");
+            this.in = in;
+            this.span = span;
+            this.base = base;
+            this.compound = compound;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            span.record(base + in.getFilePointer(), 1);
+            return in.readByte();
+        }
+
+        @Override
+        public void readBytes(byte[] b, int offset, int len) throws IOException {
+            span.record(base + in.getFilePointer(), len);
+            in.readBytes(b, offset, len);
+        }
+
+        @Override
+        public short readShort() throws IOException {
+            span.record(base + in.getFilePointer(), Short.BYTES);
+            return in.readShort();
+        }
+
+        @Override
+        public int readInt() throws IOException {
+            span.record(base + in.getFilePointer(), Integer.BYTES);
+            return in.readInt();
+        }
+
+        @Override
+        public long readLong() throws IOException {
+            span.record(base + in.getFilePointer(), Long.BYTES);
+            return in.readLong();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public long getFilePointer() {
+            return in.getFilePointer();
+        }
+
+        @Override
+        public void seek(long pos) throws IOException {
+            in.seek(pos);
+        }
+
+        @Override
+        public long length() {
+            return in.length();
+        }
+
+        @Override
+        public IndexInput slice(String sliceDescription, long offset, long length) throws IOException {
+            IndexInput slice = in.slice(sliceDescription, offset, length);
+            if (compound) {
+                return new TrackingIndexInput(slice, span(span.file + ":" + sliceDescription), 0, false);
+            }
+            return new TrackingIndexInput(slice, span, base + offset, false);
+        }
+
+        @Override
+        public IndexInput clone() {
+            return new TrackingIndexInput(in.clone(), span, base, compound);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package net.coding.demon.lucene.load;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings for {@link LoadHarness}. Setters return this, like {@code IndexWriterConfig}.
+ */
+public class LoadConfig {
+    public static final String DEFAULT_ID_FIELD = "titleId";
+    public static final double DEFAULT_MAX_STALE_SEC = 1.0;
+
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private long durationNanos = TimeUnit.SECONDS.toNanos(10);
+    private LoadMix mix = LoadMix.parse("add=10,update=5,delete=1,commit=0.01,query=84");
+    private int initialDocs = 10_000;
+    private double maxStaleSec = DEFAULT_MAX_STALE_SEC;
+    private double targetOpsPerSec = 0;
+    private String idField = DEFAULT_ID_FIELD;
+    private long seed = 42;
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public LoadConfig setNumThreads(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("numThreads must be >= 1, got " + numThreads);
+        }
+        this.numThreads = numThreads;
+        return this;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public LoadConfig setDuration(long duration, TimeUnit unit) {
+        this.durationNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    public LoadMix getMix() {
+        return mix;
+    }
+
+    public LoadConfig setMix(LoadMix mix) {
+        this.mix = mix;
+        return this;
+    }
+
+    public int getInitialDocs() {
+        return initialDocs;
+    }
+
+    /**
+     * Documents added and committed before the measurement starts, so that updates, deletes and queries have
+     * something to work on.
+     */
+    public LoadConfig setInitialDocs(int initialDocs) {
+        this.initialDocs = initialDocs;
+        return this;
+    }
+
+    public double getMaxStaleSec() {
+        return maxStaleSec;
+    }
+
+    /**
+     * Refresh interval of the NRT searcher, the upper bound of the visibility lag.
+     */
+    public LoadConfig setMaxStaleSec(double maxStaleSec) {
+        this.maxStaleSec = maxStaleSec;
+        return this;
+    }
+
+    public double getTargetOpsPerSec() {
+        return targetOpsPerSec;
+    }
+
+    /**
+     * Total rate of operations over all threads, 0 (the default) to run every thread as fast as it can.
+     * With a target rate, operations are scheduled at fixed intervals and latencies are measured from the
+     * scheduled start, so that a stall also counts for the operations it delayed.
+     */
+    public LoadConfig setTargetOpsPerSec(double targetOpsPerSec) {
+        this.targetOpsPerSec = targetOpsPerSec;
+        return this;
+    }
+
+    public String getIdField() {
+        return idField;
+    }
+
+    public LoadConfig setIdField(String idField) {
+        this.idField = idField;
+        return this;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public LoadConfig setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadConfig{numThreads=" + numThreads + ", durationSec=" + TimeUnit.NANOSECONDS.toSeconds(durationNanos)
+                + ", mix=" + mix + ", initialDocs=" + initialDocs + ", maxStaleSec=" + maxStaleSec
+                + ", targetOpsPerSec=" + targetOpsPerSec + "}";
+    }
+}
@@ -0,0 +1,231 @@
+package net.coding.demon.lucene.load;
+
+import net.coding.demon.lucene.nrt.NrtSearchManager;
+import net.coding.demon.lucene.nrt.SearcherLease;
+import org.HdrHistogram.Histogram;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ReferenceManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a mix of adds, updates, deletes, commits and queries against one IndexWriter from many threads,
+ * with queries running on an {@link NrtSearchManager} refreshed in the background.
+ * <p>
+ * Every operation is timed into an HdrHistogram per operation. Writes are also tracked until the first
+ * refreshed searcher that includes them is published: that delay is the visibility lag, bounded by
+ * {@link LoadConfig#getMaxStaleSec()} plus the time the refresh itself takes.
+ *
+ * <pre>
+ * LoadReport report = new LoadHarness(indexWriter, workload, new LoadConfig().setNumThreads(8)).run();
+ * System.out.println(report);
+ * </pre>
+ */
+public class LoadHarness {
+    private final IndexWriter indexWriter;
+    private final Workload workload;
+    private final LoadConfig config;
+
+    // ids in [0, nextId) were added at some point
+    private final AtomicLong nextId = new AtomicLong();
+    // sequence number of each write not visible yet -> nanoTime of its acknowledgement
+    private final ConcurrentSkipListMap<Long, Long> pendingWrites = new ConcurrentSkipListMap<>();
+    private final AtomicLong visibleSeqNo = new AtomicLong(-1);
+    private final Histogram visibilityLag = LoadReport.newHistogram();
+
+    public LoadHarness(IndexWriter indexWriter, Workload workload, LoadConfig config) {
+        this.indexWriter = indexWriter;
+        this.workload = workload;
+        this.config = config;
+    }
+
+    public LoadReport run() throws IOException, InterruptedException {
+        Random random = new Random(config.getSeed());
+        for (int i = 0; i < config.getInitialDocs(); i++) {
+            indexWriter.addDocument(newDocument(nextId.getAndIncrement(), random));
+        }
+        indexWriter.commit();
+
+        int numThreads = config.getNumThreads();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try (NrtSearchManager searchManager = new NrtSearchManager(indexWriter, config.getMaxStaleSec())) {
+            searchManager.addListener(new VisibilityListener());
+            long start = System.nanoTime();
+            long deadline = start + config.getDurationNanos();
+            List<Future<Worker>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                Worker worker = new Worker(searchManager, new Random(config.getSeed() + 1 + i), start, deadline);
+                futures.add(executor.submit(worker, worker));
+            }
+            Map<Operation, Histogram> latencies = LoadReport.newHistograms();
+            Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+            for (Future<Worker> future : futures) {
+                Worker worker = get(future);
+                for (Operation operation : Operation.values()) {
+                    latencies.get(operation).add(worker.latencies.get(operation));
+                    errors.merge(operation, worker.errors.get(operation), Long::sum);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            // let the last writes become visible
+            searchManager.maybeRefreshBlocking();
+            synchronized (visibilityLag) {
+                return new LoadReport(config, elapsed, latencies, errors, visibilityLag.copy(), pendingWrites.size());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Worker get(Future<Worker> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private Document newDocument(long id, Random random) {
+        Document doc = workload.newDocument(random);
+        doc.add(new StringField(config.getIdField(), Long.toString(id), Field.Store.YES));
+        return doc;
+    }
+
+    private Term randomIdTerm(Random random) {
+        return new Term(config.getIdField(), Long.toString((long) (random.nextDouble() * nextId.get())));
+    }
+
+    private void onWriteAcknowledged(long seqNo, long nanos) {
+        pendingWrites.put(seqNo, nanos);
+        // a refresh may have picked the write up between its completion and now
+        if (seqNo <= visibleSeqNo.get() && pendingWrites.remove(seqNo) != null) {
+            recordVisibilityLag(0);
+        }
+    }
+
+    private void recordVisibilityLag(long nanos) {
+        synchronized (visibilityLag) {
+            visibilityLag.recordValue(Math.max(0, nanos));
+        }
+    }
+
+    /**
+     * Writes completed before a refresh starts are visible in the searcher it publishes.
+     */
+    private final class VisibilityListener implements ReferenceManager.RefreshListener {
+        private long refreshSeqNo;
+
+        @Override
+        public void beforeRefresh() {
+            refreshSeqNo = indexWriter.getMaxCompletedSequenceNumber();
+        }
+
+        @Override
+        public void afterRefresh(boolean didRefresh) {
+            // without a refresh the searcher was already current, the writes are visible all the same
+            long now = System.nanoTime();
+            visibleSeqNo.accumulateAndGet(refreshSeqNo, Math::max);
+            ConcurrentNavigableMap<Long, Long> visible = pendingWrites.headMap(refreshSeqNo, true);
+            for (Map.Entry<Long, Long> entry : visible.entrySet()) {
+                if (pendingWrites.remove(entry.getKey()) != null) {
+                    recordVisibilityLag(now - entry.getValue());
+                }
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final NrtSearchManager searchManager;
+        private final Random random;
+        private final long start;
+        private final long deadline;
+        private final Map<Operation, Histogram> latencies = LoadReport.newHistograms();
+        private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+        Worker(NrtSearchManager searchManager, Random random, long start, long deadline) {
+            this.searchManager = searchManager;
+            this.random = random;
+            this.start = start;
+            this.deadline = deadline;
+            for (Operation operation : Operation.values()) {
+                errors.put(operation, 0L);
+            }
+        }
+
+        @Override
+        public void run() {
+            long interval = config.getTargetOpsPerSec() > 0
+                    ? (long) (config.getNumThreads() * 1e9 / config.getTargetOpsPerSec()) : 0;
+            long scheduled = start + (interval == 0 ? 0 : (long) (random.nextDouble() * interval));
+            while (true) {
+                long opStart = System.nanoTime();
+                if (interval > 0) {
+                    if (scheduled > opStart) {
+                        LockSupport.parkNanos(scheduled - opStart);
+                    }
+                    // measured from the scheduled start, so waiting behind a slow operation counts
+                    opStart = scheduled;
+                    scheduled += interval;
+                }
+                if (opStart >= deadline) {
+                    return;
+                }
+                Operation operation = config.getMix().next(random);
+                try {
+                    long seqNo = execute(operation);
+                    long end = System.nanoTime();
+                    latencies.get(operation).recordValue(end - opStart);
+                    if (operation.isWrite()) {
+                        onWriteAcknowledged(seqNo, end);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    errors.merge(operation, 1L, Long::sum);
+                }
+            }
+        }
+
+        private long execute(Operation operation) throws IOException {
+            switch (operation) {
+                case ADD:
+                    return indexWriter.addDocument(newDocument(nextId.getAndIncrement(), random));
+                case UPDATE: {
+                    Term id = randomIdTerm(random);
+                    Document doc = workload.newDocument(random);
+                    doc.add(new StringField(config.getIdField(), id.text(), Field.Store.YES));
+                    return indexWriter.updateDocument(id, doc);
+                }
+                case DELETE:
+                    return indexWriter.deleteDocuments(randomIdTerm(random));
+                case COMMIT:
+                    return indexWriter.commit();
+                case QUERY:
+                    try (SearcherLease lease = searchManager.acquire()) {
+                        lease.getSearcher().search(workload.newQuery(random), 10);
+                    }
+                    return -1;
+                default:
+                    throw new AssertionError(operation);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package net.coding.demon.lucene.load;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Relative weights of the operations, e.g. 10 adds, 5 updates, 1 delete, 0.01 commits and 84 queries.
+ */
+public class LoadMix {
+    private final EnumMap<Operation, Double> weights = new EnumMap<>(Operation.class);
+
+    public LoadMix set(Operation operation, double weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight must be >= 0, got " + weight + " for " + operation);
+        }
+        weights.put(operation, weight);
+        return this;
+    }
+
+    /**
+     * Parses a mix like {@code add=10,update=5,delete=1,commit=0.01,query=84}.
+     */
+    public static LoadMix parse(String mix) {
+        LoadMix loadMix = new LoadMix();
+        for (String part : mix.split(",")) {
+            String[] entry = part.trim().split("=");
+            if (entry.length != 2) {
+                throw new IllegalArgumentException("expected operation=weight, got '" + part + "'");
+            }
+            loadMix.set(Operation.valueOf(entry[0].trim().toUpperCase(Locale.ROOT)), Double.parseDouble(entry[1].trim()));
+        }
+        return loadMix;
+    }
+
+    public double getWeight(Operation operation) {
+        return weights.getOrDefault(operation, 0d);
+    }
+
+    public Operation next(Random random) {
+        double total = 0;
+        for (double weight : weights.values()) {
+            total += weight;
+        }
+        if (total == 0) {
+            throw new IllegalStateException("the mix has no operation");
+        }
+        double r = random.nextDouble() * total;
+        Operation last = null;
+        for (Map.Entry<Operation, Double> entry : weights.entrySet()) {
+            if (entry.getValue() > 0) {
+                last = entry.getKey();
+                r -= entry.getValue();
+                if (r < 0) {
+                    break;
+                }
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Operation, Double> entry : weights.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(entry.getKey().name().toLowerCase(Locale.ROOT)).append('=').append(entry.getValue());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,126 @@
+package net.coding.demon.lucene.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a {@link LoadHarness} run. Latencies are in nanoseconds.
+ */
+public final class LoadReport {
+    private final LoadConfig config;
+    private final long elapsedNanos;
+    private final Map<Operation, Histogram> latencies;
+    private final Map<Operation, Long> errors;
+    private final Histogram visibilityLag;
+    private final long pendingVisibility;
+
+    LoadReport(LoadConfig config, long elapsedNanos, Map<Operation, Histogram> latencies, Map<Operation, Long> errors,
+               Histogram visibilityLag, long pendingVisibility) {
+        this.config = config;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = Collections.unmodifiableMap(latencies);
+        this.errors = Collections.unmodifiableMap(errors);
+        this.visibilityLag = visibilityLag;
+        this.pendingVisibility = pendingVisibility;
+    }
+
+    public LoadConfig getConfig() {
+        return config;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Latency of the successful operations of the given kind.
+     */
+    public Histogram getLatency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    public long getCount(Operation operation) {
+        return latencies.get(operation).getTotalCount();
+    }
+
+    public long getErrors(Operation operation) {
+        return errors.getOrDefault(operation, 0L);
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (Histogram histogram : latencies.values()) {
+            total += histogram.getTotalCount();
+        }
+        return total;
+    }
+
+    public double getThroughput(Operation operation) {
+        return getCount(operation) * 1e9 / elapsedNanos;
+    }
+
+    public double getTotalThroughput() {
+        return getTotalCount() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Time from the acknowledgement of a write (add, update, delete) to the publication of the first NRT
+     * searcher that includes it.
+     */
+    public Histogram getVisibilityLag() {
+        return visibilityLag;
+    }
+
+    /**
+     * Writes that were not visible yet when the run ended, they are not part of {@link #getVisibilityLag()}.
+     */
+    public long getPendingVisibility() {
+        return pendingVisibility;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(config).append(String.format("%n"));
+        sb.append(String.format("%.1f s, %d ops, %.0f ops/s%n", elapsedNanos / 1e9, getTotalCount(), getTotalThroughput()));
+        sb.append(String.format("  %-16s %10s %10s %8s %10s %10s %10s %10s %10s%n", "operation", "count", "ops/s", "errors",
+                "p50 us", "p90 us", "p99 us", "p99.9 us", "max us"));
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            if (entry.getValue().getTotalCount() > 0 || getErrors(entry.getKey()) > 0) {
+                appendRow(sb, entry.getKey().name(), entry.getValue(),
+                        String.format("%.0f", getThroughput(entry.getKey())), getErrors(entry.getKey()));
+            }
+        }
+        // errors of the lag row are the writes still invisible at the end
+        appendRow(sb, "visibility lag", visibilityLag, "-", pendingVisibility);
+        return sb.toString();
+    }
+
+    private static void appendRow(StringBuilder sb, String name, Histogram histogram, String throughput, long errors) {
+        sb.append(String.format("  %-16s %10d %10s %8d %10d %10d %10d %10d %10d%n", name, histogram.getTotalCount(),
+                throughput, errors, micros(histogram.getValueAtPercentile(50)), micros(histogram.getValueAtPercentile(90)),
+                micros(histogram.getValueAtPercentile(99)), micros(histogram.getValueAtPercentile(99.9)),
+                micros(histogram.getMaxValue())));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    static Map<Operation, Histogram> newHistograms() {
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, newHistogram());
+        }
+        return histograms;
+    }
+
+    static Histogram newHistogram() {
+        // auto resizing, 3 significant digits
+        return new Histogram(3);
+    }
+}
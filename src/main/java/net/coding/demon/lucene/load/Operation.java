@@ -0,0 +1,31 @@
+package net.coding.demon.lucene.load;
+
+/**
+ * Operations replayed by {@link LoadHarness}.
+ */
+public enum Operation {
+    /**
+     * addDocument with a new id.
+     */
+    ADD,
+    /**
+     * updateDocument of a random id that was added before.
+     */
+    UPDATE,
+    /**
+     * deleteDocuments of a random id that was added before.
+     */
+    DELETE,
+    /**
+     * IndexWriter.commit, concurrent commits wait for each other.
+     */
+    COMMIT,
+    /**
+     * top 10 search on the current NRT searcher.
+     */
+    QUERY;
+
+    public boolean isWrite() {
+        return this == ADD || this == UPDATE || this == DELETE;
+    }
+}
@@ -0,0 +1,20 @@
+package net.coding.demon.lucene.load;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.search.Query;
+
+import java.util.Random;
+
+/**
+ * Documents and queries replayed by {@link LoadHarness}. Calls come from many threads, each with its own
+ * Random.
+ */
+public interface Workload {
+
+    /**
+     * A new document, without the id field which is added by the harness.
+     */
+    Document newDocument(Random random);
+
+    Query newQuery(Random random);
+}
@@ -0,0 +1,173 @@
+package net.coding.demon.lucene.merge;
+
+import org.apache.lucene.index.MergeTrigger;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.util.InfoStream;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * TieredMergePolicy that takes the search load, the age of segments and their deletes into account, for
+ * indexes with a lot of updates.
+ * <ul>
+ *     <li>Segments younger than {@code minSegmentAgeMillis} are left alone unless the searchers are idle. Under
+ *     heavy updates young segments collect deletes quickly, merging them right after the flush copies documents
+ *     that are about to be deleted anyway.</li>
+ *     <li>While searches are {@link SearchLoadMonitor.LoadState#BUSY busy}, merges larger than
+ *     {@code maxBusyMergeMB} are postponed. The small ones keep the segment count in check.</li>
+ *     <li>While searches are {@link SearchLoadMonitor.LoadState#IDLE idle}, and the regular tiered selection has
+ *     nothing to do, segments with more than {@code idleDeletesPctAllowed} deleted documents are rewritten to
+ *     reclaim their deletes.</li>
+ * </ul>
+ * Young and oversized segments are left out before the tiered selection, so the other segments keep merging.
+ * Postponed merges are picked up again on the next flush or commit; {@link IdleMergeTrigger} also asks for merges
+ * when the searchers go idle. Forced merges are not affected.
+ */
+public class AdaptiveMergePolicy extends TieredMergePolicy {
+    public static final long DEFAULT_MIN_SEGMENT_AGE_MILLIS = 30_000;
+    public static final double DEFAULT_MAX_BUSY_MERGE_MB = 64;
+    public static final double DEFAULT_IDLE_DELETES_PCT_ALLOWED = 10;
+
+    private final SearchLoadMonitor searchLoadMonitor;
+    private long minSegmentAgeMillis = DEFAULT_MIN_SEGMENT_AGE_MILLIS;
+    private double maxBusyMergeMB = DEFAULT_MAX_BUSY_MERGE_MB;
+
+    public AdaptiveMergePolicy(SearchLoadMonitor searchLoadMonitor) {
+        this.searchLoadMonitor = searchLoadMonitor;
+        setIdleDeletesPctAllowed(DEFAULT_IDLE_DELETES_PCT_ALLOWED);
+    }
+
+    public SearchLoadMonitor getSearchLoadMonitor() {
+        return searchLoadMonitor;
+    }
+
+    public AdaptiveMergePolicy setMinSegmentAgeMillis(long minSegmentAgeMillis) {
+        this.minSegmentAgeMillis = minSegmentAgeMillis;
+        return this;
+    }
+
+    public long getMinSegmentAgeMillis() {
+        return minSegmentAgeMillis;
+    }
+
+    public AdaptiveMergePolicy setMaxBusyMergeMB(double maxBusyMergeMB) {
+        this.maxBusyMergeMB = maxBusyMergeMB;
+        return this;
+    }
+
+    public double getMaxBusyMergeMB() {
+        return maxBusyMergeMB;
+    }
+
+    /**
+     * Deleted docs percentage above which a segment is rewritten while idle. Shares its value with
+     * {@link #setForceMergeDeletesPctAllowed(double)}, the same selection is used for both.
+     */
+    public AdaptiveMergePolicy setIdleDeletesPctAllowed(double idleDeletesPctAllowed) {
+        setForceMergeDeletesPctAllowed(idleDeletesPctAllowed);
+        return this;
+    }
+
+    public double getIdleDeletesPctAllowed() {
+        return getForceMergeDeletesPctAllowed();
+    }
+
+    @Override
+    public MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos infos, MergeContext mergeContext) throws IOException {
+        SearchLoadMonitor.LoadState state = searchLoadMonitor.getState();
+        if (state == SearchLoadMonitor.LoadState.IDLE) {
+            MergeSpecification spec = super.findMerges(mergeTrigger, infos, mergeContext);
+            if (spec == null) {
+                spec = findForcedDeletesMerges(infos, mergeContext);
+            }
+            return spec;
+        }
+
+        // excluded before the selection, as if they were merging already: dropping the merges TieredMergePolicy
+        // picks afterwards would starve the segments it could have merged instead
+        long now = System.currentTimeMillis();
+        long maxMergeBytes = state == SearchLoadMonitor.LoadState.BUSY ? (long) (maxBusyMergeMB * 1024 * 1024) : Long.MAX_VALUE;
+        Set<SegmentCommitInfo> excluded = new HashSet<>(mergeContext.getMergingSegments());
+        int postponed = 0;
+        for (SegmentCommitInfo info : infos) {
+            if (!excluded.contains(info) && (isYoung(info, now) || info.sizeInBytes() > maxMergeBytes)) {
+                excluded.add(info);
+                postponed++;
+            }
+        }
+        if (verbose(mergeContext)) {
+            message("adaptive: state=" + state + " postponed " + postponed + " of " + infos.size() + " segments",
+                    mergeContext);
+        }
+
+        MergeContext excludingContext = new ExcludingMergeContext(mergeContext, excluded);
+        if (state == SearchLoadMonitor.LoadState.BUSY && maxBusyMergeMB < getMaxMergedSegmentMB()) {
+            // merges of small segments must not add up to more than maxBusyMergeMB either
+            return busyPolicy().findMerges(mergeTrigger, infos, excludingContext);
+        }
+        return super.findMerges(mergeTrigger, infos, excludingContext);
+    }
+
+    /**
+     * The tiered settings of this policy with merged segments capped at {@code maxBusyMergeMB}. A copy, so that
+     * forced merges and callers of the getters running meanwhile keep seeing the configured limit.
+     */
+    private TieredMergePolicy busyPolicy() {
+        return new TieredMergePolicy()
+                .setMaxMergeAtOnce(getMaxMergeAtOnce())
+                .setSegmentsPerTier(getSegmentsPerTier())
+                .setFloorSegmentMB(getFloorSegmentMB())
+                .setDeletesPctAllowed(getDeletesPctAllowed())
+                .setMaxMergedSegmentMB(maxBusyMergeMB);
+    }
+
+    private boolean isYoung(SegmentCommitInfo info, long now) {
+        String timestamp = info.info.getDiagnostics().get("timestamp");
+        return timestamp != null && now - Long.parseLong(timestamp) < minSegmentAgeMillis;
+    }
+
+    /**
+     * Reports the postponed segments as merging, so that TieredMergePolicy selects among the others.
+     */
+    private static final class ExcludingMergeContext implements MergeContext {
+        private final MergeContext delegate;
+        private final Set<SegmentCommitInfo> excluded;
+
+        ExcludingMergeContext(MergeContext delegate, Set<SegmentCommitInfo> excluded) {
+            this.delegate = delegate;
+            this.excluded = Collections.unmodifiableSet(excluded);
+        }
+
+        @Override
+        public int numDeletesToMerge(SegmentCommitInfo info) throws IOException {
+            return delegate.numDeletesToMerge(info);
+        }
+
+        @Override
+        public int numDeletedDocs(SegmentCommitInfo info) {
+            return delegate.numDeletedDocs(info);
+        }
+
+        @Override
+        public InfoStream getInfoStream() {
+            return delegate.getInfoStream();
+        }
+
+        @Override
+        public Set<SegmentCommitInfo> getMergingSegments() {
+            return excluded;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getClass().getSimpleName() + ": minSegmentAgeMillis=" + minSegmentAgeMillis
+                + ", maxBusyMergeMB=" + maxBusyMergeMB + ", idleDeletesPctAllowed=" + getIdleDeletesPctAllowed()
+                + ", " + super.toString() + "]";
+    }
+}
@@ -0,0 +1,56 @@
+package net.coding.demon.lucene.merge;
+
+import net.coding.demon.lucene.telemetry.IndexTelemetry;
+import net.coding.demon.lucene.telemetry.TelemetryMergeScheduler;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RateLimitedIndexOutput;
+
+import java.io.IOException;
+
+/**
+ * Merge scheduler that throttles the write rate of all running merges to {@code busyMBPerSec} while the
+ * {@link SearchLoadMonitor} reports busy searchers, on top of the usual ConcurrentMergeScheduler IO throttle.
+ * Merges continue at full speed as soon as the load drops.
+ * <p>
+ * {@link IndexTelemetry#install} sets a plain {@link TelemetryMergeScheduler}, set this one after it.
+ */
+public class AdaptiveMergeScheduler extends TelemetryMergeScheduler {
+    public static final double DEFAULT_BUSY_MB_PER_SEC = 5;
+
+    private final LoadAwareRateLimiter rateLimiter;
+
+    public AdaptiveMergeScheduler(IndexTelemetry telemetry, SearchLoadMonitor searchLoadMonitor) {
+        this(telemetry, searchLoadMonitor, DEFAULT_BUSY_MB_PER_SEC);
+    }
+
+    public AdaptiveMergeScheduler(IndexTelemetry telemetry, SearchLoadMonitor searchLoadMonitor, double busyMBPerSec) {
+        super(telemetry);
+        this.rateLimiter = new LoadAwareRateLimiter(searchLoadMonitor, busyMBPerSec);
+    }
+
+    public void setBusyMBPerSec(double busyMBPerSec) {
+        rateLimiter.setMBPerSec(busyMBPerSec);
+    }
+
+    /**
+     * Current merge write limit, infinite unless the searchers are busy.
+     */
+    public double getMergeMBPerSec() {
+        return rateLimiter.getMBPerSec();
+    }
+
+    @Override
+    public Directory wrapForMerge(MergePolicy.OneMerge merge, Directory in) {
+        Directory throttled = super.wrapForMerge(merge, in);
+        return new FilterDirectory(throttled) {
+            @Override
+            public IndexOutput createOutput(String name, IOContext context) throws IOException {
+                return new RateLimitedIndexOutput(rateLimiter, throttled.createOutput(name, context));
+            }
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package net.coding.demon.lucene.merge;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.util.InfoStream;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asks the IndexWriter for merges whenever the searchers are idle, so merges postponed by
+ * {@link AdaptiveMergePolicy} and deletes reclaimable while idle do not wait for the next flush.
+ */
+public class IdleMergeTrigger implements Closeable {
+    private static final String INFO_STREAM_COMPONENT = "IMT";
+
+    private final IndexWriter indexWriter;
+    private final SearchLoadMonitor searchLoadMonitor;
+    private final ScheduledExecutorService scheduler;
+    private volatile long triggerCount;
+    private volatile long failureCount;
+    private volatile Throwable lastFailure;
+
+    public IdleMergeTrigger(IndexWriter indexWriter, SearchLoadMonitor searchLoadMonitor, long intervalMillis) {
+        this.indexWriter = indexWriter;
+        this.searchLoadMonitor = searchLoadMonitor;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "idle-merge-trigger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maybeMerge, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void maybeMerge() {
+        if (searchLoadMonitor.getState() != SearchLoadMonitor.LoadState.IDLE || !indexWriter.isOpen()) {
+            return;
+        }
+        try {
+            indexWriter.maybeMerge();
+            triggerCount++;
+        } catch (AlreadyClosedException e) {
+            // closed between the check and the call, nothing left to merge
+        } catch (Throwable t) {
+            // e.g. a tragedy of the writer, kept so that a trigger that stopped merging does not go unnoticed
+            failureCount++;
+            lastFailure = t;
+            InfoStream infoStream = indexWriter.getConfig().getInfoStream();
+            if (infoStream.isEnabled(INFO_STREAM_COMPONENT)) {
+                infoStream.message(INFO_STREAM_COMPONENT, "maybeMerge failed: " + t);
+            }
+        }
+    }
+
+    public long getTriggerCount() {
+        return triggerCount;
+    }
+
+    /**
+     * Number of calls to {@link IndexWriter#maybeMerge()} that failed, other than on a closed writer.
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return the failure of the last failed {@link IndexWriter#maybeMerge()}, or null
+     */
+    public Throwable getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
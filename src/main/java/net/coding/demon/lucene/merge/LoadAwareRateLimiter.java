@@ -0,0 +1,45 @@
+package net.coding.demon.lucene.merge;
+
+import org.apache.lucene.store.RateLimiter;
+
+import java.io.IOException;
+
+/**
+ * Limits the bytes written by all merges together to {@code busyMBPerSec} while the searchers are busy, and
+ * does not limit at all otherwise.
+ */
+class LoadAwareRateLimiter extends RateLimiter {
+    private final SearchLoadMonitor searchLoadMonitor;
+    private final RateLimiter.SimpleRateLimiter busyLimiter;
+
+    LoadAwareRateLimiter(SearchLoadMonitor searchLoadMonitor, double busyMBPerSec) {
+        this.searchLoadMonitor = searchLoadMonitor;
+        this.busyLimiter = new RateLimiter.SimpleRateLimiter(busyMBPerSec);
+    }
+
+    @Override
+    public void setMBPerSec(double mbPerSec) {
+        busyLimiter.setMBPerSec(mbPerSec);
+    }
+
+    @Override
+    public double getMBPerSec() {
+        return searchLoadMonitor.getState() == SearchLoadMonitor.LoadState.BUSY ? busyLimiter.getMBPerSec() : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public long pause(long bytes) throws IOException {
+        if (searchLoadMonitor.getState() != SearchLoadMonitor.LoadState.BUSY) {
+            return 0;
+        }
+        // one budget shared by all merge threads, so they take turns
+        synchronized (busyLimiter) {
+            return busyLimiter.pause(bytes);
+        }
+    }
+
+    @Override
+    public long getMinPauseCheckBytes() {
+        return busyLimiter.getMinPauseCheckBytes();
+    }
+}
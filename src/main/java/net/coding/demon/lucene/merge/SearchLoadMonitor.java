@@ -0,0 +1,58 @@
+package net.coding.demon.lucene.merge;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks how busy the searchers are, so merging can back off while queries are slow and catch up while
+ * nobody is searching.
+ * <p>
+ * Searches report their latency with {@link #recordQuery(long)}. The monitor keeps an exponentially weighted
+ * moving average of it: above {@code busyLatencyMillis} the index is {@link LoadState#BUSY}, and when no
+ * query was recorded for {@code idleAfterMillis} it is {@link LoadState#IDLE}.
+ */
+public class SearchLoadMonitor {
+    public enum LoadState {
+        IDLE, NORMAL, BUSY
+    }
+
+    // weight of the newest sample, ~ the average of the last 20 queries
+    private static final double ALPHA = 0.1;
+
+    private final long busyLatencyNanos;
+    private final long idleAfterNanos;
+    private volatile double averageLatencyNanos;
+    private volatile long lastQueryNanos;
+
+    public SearchLoadMonitor(double busyLatencyMillis, long idleAfterMillis) {
+        this.busyLatencyNanos = (long) (busyLatencyMillis * TimeUnit.MILLISECONDS.toNanos(1));
+        this.idleAfterNanos = TimeUnit.MILLISECONDS.toNanos(idleAfterMillis);
+        // nothing searched yet counts as idle
+        this.lastQueryNanos = System.nanoTime() - idleAfterNanos;
+    }
+
+    public void recordQuery(long latencyNanos) {
+        // racy on purpose, losing a sample now and then does not matter for a moving average
+        double average = averageLatencyNanos;
+        averageLatencyNanos = average == 0 ? latencyNanos : average + ALPHA * (latencyNanos - average);
+        lastQueryNanos = System.nanoTime();
+    }
+
+    public LoadState getState() {
+        if (System.nanoTime() - lastQueryNanos >= idleAfterNanos) {
+            return LoadState.IDLE;
+        }
+        return averageLatencyNanos > busyLatencyNanos ? LoadState.BUSY : LoadState.NORMAL;
+    }
+
+    public double getAverageLatencyMillis() {
+        return averageLatencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchLoadMonitor{" +
+                "state=" + getState() +
+                ", averageLatencyMillis=" + String.format("%.3f", getAverageLatencyMillis()) +
+                '}';
+    }
+}
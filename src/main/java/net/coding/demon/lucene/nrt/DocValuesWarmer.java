@@ -0,0 +1,112 @@
+package net.coding.demon.lucene.nrt;
+
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads every value of the given DocValues fields on new segments, so that sorting or scoring on them right after
+ * a refresh does not pay for page faults. Segments already present in the previous reader are skipped.
+ */
+public class DocValuesWarmer implements SearcherWarmer {
+    private final List<String> fields;
+
+    public DocValuesWarmer(String... fields) {
+        this.fields = Collections.unmodifiableList(Arrays.asList(fields));
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    @Override
+    public void warm(IndexSearcher searcher, IndexReader previousReader) throws IOException {
+        Set<Object> warmCores = coreKeys(previousReader);
+        for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+            LeafReader leafReader = context.reader();
+            if (warmCores.contains(coreKey(leafReader))) {
+                continue;
+            }
+            for (String field : fields) {
+                warmField(leafReader, field);
+            }
+        }
+    }
+
+    private static void warmField(LeafReader leafReader, String field) throws IOException {
+        FieldInfo fieldInfo = leafReader.getFieldInfos().fieldInfo(field);
+        if (fieldInfo == null) {
+            return;
+        }
+        switch (fieldInfo.getDocValuesType()) {
+            case NUMERIC:
+                NumericDocValues numeric = DocValues.getNumeric(leafReader, field);
+                while (numeric.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    numeric.longValue();
+                }
+                break;
+            case SORTED_NUMERIC:
+                SortedNumericDocValues sortedNumeric = DocValues.getSortedNumeric(leafReader, field);
+                while (sortedNumeric.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    for (int i = 0; i < sortedNumeric.docValueCount(); i++) {
+                        sortedNumeric.nextValue();
+                    }
+                }
+                break;
+            case BINARY:
+                BinaryDocValues binary = DocValues.getBinary(leafReader, field);
+                while (binary.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    binary.binaryValue();
+                }
+                break;
+            case SORTED:
+                SortedDocValues sorted = DocValues.getSorted(leafReader, field);
+                while (sorted.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    sorted.ordValue();
+                }
+                break;
+            case SORTED_SET:
+                SortedSetDocValues sortedSet = DocValues.getSortedSet(leafReader, field);
+                while (sortedSet.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    while (sortedSet.nextOrd() != SortedSetDocValues.NO_MORE_ORDS) {
+                        // just touch the ords
+                    }
+                }
+                break;
+            default:
+                // no doc values for this field
+        }
+    }
+
+    private static Set<Object> coreKeys(IndexReader reader) {
+        if (reader == null) {
+            return Collections.emptySet();
+        }
+        Set<Object> keys = new HashSet<>();
+        for (LeafReaderContext context : reader.leaves()) {
+            keys.add(coreKey(context.reader()));
+        }
+        return keys;
+    }
+
+    private static Object coreKey(LeafReader leafReader) {
+        // deletes do not change the core, so a segment with new deletes is still warm
+        return leafReader.getCoreCacheHelper() == null ? leafReader : leafReader.getCoreCacheHelper().getKey();
+    }
+}
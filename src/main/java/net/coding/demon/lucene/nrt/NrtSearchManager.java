@@ -0,0 +1,167 @@
+package net.coding.demon.lucene.nrt;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Near-real-time searchers over an IndexWriter, refreshed in the background.
+ * <p>
+ * Instead of opening a DirectoryReader per request (expensive) or calling openIfChanged by hand (easy to leak),
+ * searches {@link #acquire()} a reference counted searcher and close the lease when done. A background
+ * {@link ControlledRealTimeReopenThread} reopens the reader at most {@code maxStaleSec} after a change, or
+ * within {@code minStaleSec} when a caller waits for its own write with {@link #waitForGeneration(long)}.
+ * <p>
+ * New searchers are passed through the configured {@link SearcherWarmer}s before they are published, so the
+ * first queries after a refresh do not pay for loading doc values or cold postings.
+ *
+ * <pre>
+ * long seqNo = indexWriter.addDocument(doc);
+ * nrtSearchManager.waitForGeneration(seqNo);   // only needed for read-your-writes
+ * try (SearcherLease lease = nrtSearchManager.acquire()) {
+ *     TopDocs topDocs = lease.getSearcher().search(query, 10);
+ * }
+ * </pre>
+ */
+public class NrtSearchManager implements Closeable {
+    public static final double DEFAULT_MIN_STALE_SEC = 0.025;
+
+    private final IndexWriter indexWriter;
+    private final SearcherManager searcherManager;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    private final WarmingSearcherFactory searcherFactory;
+
+    public NrtSearchManager(IndexWriter indexWriter, double maxStaleSec, SearcherWarmer... warmers) throws IOException {
+        this(indexWriter, maxStaleSec, Math.min(DEFAULT_MIN_STALE_SEC, maxStaleSec), null, warmers);
+    }
+
+    /**
+     * @param maxStaleSec  longest time a change can stay invisible to new searches when nobody waits for it
+     * @param minStaleSec  refresh delay when a caller is waiting in {@link #waitForGeneration(long)}
+     * @param baseFactory  creates the actual IndexSearcher (e.g. with an executor or custom similarity), may be null
+     */
+    public NrtSearchManager(IndexWriter indexWriter, double maxStaleSec, double minStaleSec,
+                            SearcherFactory baseFactory, SearcherWarmer... warmers) throws IOException {
+        this.indexWriter = indexWriter;
+        this.searcherFactory = new WarmingSearcherFactory(baseFactory == null ? new SearcherFactory() : baseFactory,
+                Arrays.asList(warmers));
+        // applyAllDeletes = true so deleted documents never show up, writeAllDeletes = false to avoid extra IO
+        this.searcherManager = new SearcherManager(indexWriter, true, false, searcherFactory);
+        this.reopenThread = new ControlledRealTimeReopenThread<>(indexWriter, searcherManager, maxStaleSec, minStaleSec);
+        reopenThread.setName("nrt-reopen-" + indexWriter.getDirectory());
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+    }
+
+    public IndexWriter getIndexWriter() {
+        return indexWriter;
+    }
+
+    /**
+     * Returns the current searcher. The lease must be closed, otherwise the reader it points to is never closed.
+     */
+    public SearcherLease acquire() throws IOException {
+        return new SearcherLease(this, searcherManager.acquire());
+    }
+
+    void release(IndexSearcher searcher) throws IOException {
+        searcherManager.release(searcher);
+    }
+
+    /**
+     * Blocks until a searcher that includes the given IndexWriter sequence number (returned by addDocument,
+     * updateDocument, deleteDocuments, ...) is published.
+     */
+    public void waitForGeneration(long generation) throws InterruptedException {
+        reopenThread.waitForGeneration(generation);
+    }
+
+    /**
+     * @return false if the searcher was not refreshed within the timeout
+     */
+    public boolean waitForGeneration(long generation, long timeout, TimeUnit unit) throws InterruptedException {
+        return reopenThread.waitForGeneration(generation, (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout)));
+    }
+
+    /**
+     * Refreshes right away, blocking if another refresh is running.
+     */
+    public void maybeRefreshBlocking() throws IOException {
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    /**
+     * Listeners are notified before and after each refresh, e.g. to invalidate caches tied to the old reader.
+     */
+    public void addListener(ReferenceManager.RefreshListener listener) {
+        searcherManager.addListener(listener);
+    }
+
+    public void removeListener(ReferenceManager.RefreshListener listener) {
+        searcherManager.removeListener(listener);
+    }
+
+    public long getRefreshCount() {
+        return searcherFactory.refreshCount;
+    }
+
+    /**
+     * Time spent in the warmers for the last published searcher.
+     */
+    public long getLastWarmMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(searcherFactory.lastWarmNanos);
+    }
+
+    public long getTotalWarmMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(searcherFactory.totalWarmNanos);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reopenThread.close();
+        searcherManager.close();
+    }
+
+    /**
+     * Runs the warmers on every new searcher. SearcherManager calls this from the refreshing thread only, before
+     * the searcher is swapped in.
+     */
+    private static class WarmingSearcherFactory extends SearcherFactory {
+        private final SearcherFactory delegate;
+        private final List<SearcherWarmer> warmers;
+        private volatile long refreshCount;
+        private volatile long lastWarmNanos;
+        private volatile long totalWarmNanos;
+
+        WarmingSearcherFactory(SearcherFactory delegate, List<SearcherWarmer> warmers) {
+            this.delegate = delegate;
+            this.warmers = Collections.unmodifiableList(new ArrayList<>(warmers));
+        }
+
+        @Override
+        public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) throws IOException {
+            IndexSearcher searcher = delegate.newSearcher(reader, previousReader);
+            long start = System.nanoTime();
+            for (SearcherWarmer warmer : warmers) {
+                warmer.warm(searcher, previousReader);
+            }
+            long elapsed = System.nanoTime() - start;
+            lastWarmNanos = elapsed;
+            totalWarmNanos += elapsed;
+            refreshCount++;
+            return searcher;
+        }
+    }
+}
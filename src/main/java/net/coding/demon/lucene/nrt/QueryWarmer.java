@@ -0,0 +1,54 @@
+package net.coding.demon.lucene.nrt;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs a fixed list of hot queries against a new searcher before it is published. This fills the query cache
+ * and pages in the postings and doc values the real traffic is going to need.
+ */
+public class QueryWarmer implements SearcherWarmer {
+    private final List<Query> queries = new ArrayList<>();
+    private final List<Sort> sorts = new ArrayList<>();
+    private final int topN;
+
+    public QueryWarmer(int topN) {
+        this.topN = topN;
+    }
+
+    public QueryWarmer addQuery(Query query) {
+        return addQuery(query, null);
+    }
+
+    /**
+     * @param sort sort to run the query with, or null for relevance order
+     */
+    public QueryWarmer addQuery(Query query, Sort sort) {
+        queries.add(query);
+        sorts.add(sort);
+        return this;
+    }
+
+    public List<Query> getQueries() {
+        return Collections.unmodifiableList(queries);
+    }
+
+    @Override
+    public void warm(IndexSearcher searcher, IndexReader previousReader) throws IOException {
+        for (int i = 0; i < queries.size(); i++) {
+            Sort sort = sorts.get(i);
+            if (sort == null) {
+                searcher.search(queries.get(i), topN);
+            } else {
+                searcher.search(queries.get(i), topN, sort);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package net.coding.demon.lucene.nrt;
+
+import org.apache.lucene.search.IndexSearcher;
+
+import java.io.IOException;
+
+/**
+ * A searcher acquired from {@link NrtSearchManager}. Closing the lease releases the searcher, use it in a
+ * try-with-resources block so the underlying reader can not leak.
+ */
+public final class SearcherLease implements AutoCloseable {
+    private final NrtSearchManager manager;
+    private IndexSearcher searcher;
+
+    SearcherLease(NrtSearchManager manager, IndexSearcher searcher) {
+        this.manager = manager;
+        this.searcher = searcher;
+    }
+
+    public IndexSearcher getSearcher() {
+        if (searcher == null) {
+            throw new IllegalStateException("searcher was already released");
+        }
+        return searcher;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (searcher != null) {
+            IndexSearcher toRelease = searcher;
+            searcher = null;
+            manager.release(toRelease);
+        }
+    }
+}
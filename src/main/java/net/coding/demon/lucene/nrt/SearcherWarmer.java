@@ -0,0 +1,20 @@
+package net.coding.demon.lucene.nrt;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.io.IOException;
+
+/**
+ * Warms a freshly opened searcher before {@link NrtSearchManager} publishes it to searches.
+ */
+@FunctionalInterface
+public interface SearcherWarmer {
+
+    /**
+     * @param searcher       the new searcher, not yet visible to any search
+     * @param previousReader the reader it replaces, or null for the very first searcher. Segments that are also
+     *                       part of the previous reader are already warm and can be skipped.
+     */
+    void warm(IndexSearcher searcher, IndexReader previousReader) throws IOException;
+}
@@ -0,0 +1,119 @@
+package net.coding.demon.lucene.numeric;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Matches documents whose numeric doc value is one of a set of values, the doc values counterpart of
+ * {@code IntPoint.newSetQuery}. Like the doc values range queries it is slow on its own, it is meant to
+ * verify the matches of another query.
+ */
+final class DocValuesSetQuery extends Query {
+    private final String field;
+    // sorted, without duplicates
+    private final long[] values;
+
+    DocValuesSetQuery(String field, long... values) {
+        this.field = Objects.requireNonNull(field);
+        this.values = Arrays.stream(values).sorted().distinct().toArray();
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+        return new ConstantScoreWeight(this, boost) {
+
+            @Override
+            public boolean isCacheable(LeafReaderContext ctx) {
+                return DocValues.isCacheable(ctx, field);
+            }
+
+            @Override
+            public Scorer scorer(LeafReaderContext context) throws IOException {
+                if (values.length == 0) {
+                    return null;
+                }
+                SortedNumericDocValues docValues = DocValues.getSortedNumeric(context.reader(), field);
+                NumericDocValues singleton = DocValues.unwrapSingleton(docValues);
+                // one binary search per value
+                float matchCost = 32 - Integer.numberOfLeadingZeros(values.length);
+                TwoPhaseIterator iterator;
+                if (singleton != null) {
+                    iterator = new TwoPhaseIterator(singleton) {
+                        @Override
+                        public boolean matches() throws IOException {
+                            return Arrays.binarySearch(values, singleton.longValue()) >= 0;
+                        }
+
+                        @Override
+                        public float matchCost() {
+                            return matchCost;
+                        }
+                    };
+                } else {
+                    iterator = new TwoPhaseIterator(docValues) {
+                        @Override
+                        public boolean matches() throws IOException {
+                            for (int i = 0, count = docValues.docValueCount(); i < count; ++i) {
+                                if (Arrays.binarySearch(values, docValues.nextValue()) >= 0) {
+                                    return true;
+                                }
+                            }
+                            return false;
+                        }
+
+                        @Override
+                        public float matchCost() {
+                            return matchCost;
+                        }
+                    };
+                }
+                return new ConstantScoreScorer(this, score(), scoreMode, iterator);
+            }
+        };
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        if (visitor.acceptField(field)) {
+            visitor.visitLeaf(this);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (sameClassAs(obj) == false) {
+            return false;
+        }
+        DocValuesSetQuery that = (DocValuesSetQuery) obj;
+        return field.equals(that.field) && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * classHash() + field.hashCode()) + Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString(String field) {
+        StringBuilder b = new StringBuilder();
+        if (this.field.equals(field) == false) {
+            b.append(this.field).append(":");
+        }
+        return b.append(Arrays.toString(values)).toString();
+    }
+}
@@ -0,0 +1,99 @@
+package net.coding.demon.lucene.numeric;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+
+import java.util.Objects;
+
+/**
+ * A single-valued numeric field indexed both as points, for ranges that match few documents, and as doc
+ * values, for ranges checked against the matches of a more selective query (see {@link NumericQueries}).
+ */
+public final class NumericField {
+
+    public enum Type {
+        INT, LONG
+    }
+
+    private final String name;
+    private final Type type;
+
+    private NumericField(String name, Type type) {
+        this.name = Objects.requireNonNull(name);
+        this.type = Objects.requireNonNull(type);
+    }
+
+    public static NumericField intField(String name) {
+        return new NumericField(name, Type.INT);
+    }
+
+    public static NumericField longField(String name) {
+        return new NumericField(name, Type.LONG);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Adds the point and the doc value of {@code value} to the document.
+     *
+     * @throws IllegalArgumentException if the field is an INT field and the value does not fit in an int
+     */
+    public void addTo(Document doc, long value) {
+        if (type == Type.INT) {
+            doc.add(new IntPoint(name, (int) checkInt(value)));
+        } else {
+            doc.add(new LongPoint(name, value));
+        }
+        doc.add(new NumericDocValuesField(name, value));
+    }
+
+    /**
+     * Same as {@link #addTo(Document, long)}, the value is also stored.
+     */
+    public void addStoredTo(Document doc, long value) {
+        addTo(doc, value);
+        if (type == Type.INT) {
+            doc.add(new StoredField(name, (int) value));
+        } else {
+            doc.add(new StoredField(name, value));
+        }
+    }
+
+    private long checkInt(long value) {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("value " + value + " of int field " + name + " is out of range");
+        }
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        NumericField that = (NumericField) o;
+        return name.equals(that.name) && type == that.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, type);
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + type + ")";
+    }
+}
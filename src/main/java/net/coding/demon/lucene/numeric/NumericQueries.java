@@ -0,0 +1,79 @@
+package net.coding.demon.lucene.numeric;
+
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+
+import java.util.Arrays;
+
+/**
+ * Range, exact and set queries on a {@link NumericField}.
+ * <p>
+ * The queries are {@link IndexOrDocValuesQuery}s over the points and the doc values of the field. Per
+ * segment, the points query is used when the range leads the search or is cheap anyway, and the doc values
+ * query when another clause of a conjunction matches far fewer documents: then it is cheaper to check the
+ * value of each of those documents than to collect all the documents of the range from the points.
+ * <p>
+ * Bounds are inclusive. Bounds of INT fields outside of the int range are clamped, values outside of it
+ * match nothing.
+ */
+public final class NumericQueries {
+
+    private NumericQueries() {
+    }
+
+    public static Query newRangeQuery(NumericField field, long lowerValue, long upperValue) {
+        if (field.getType() == NumericField.Type.INT) {
+            lowerValue = Math.max(lowerValue, Integer.MIN_VALUE);
+            upperValue = Math.min(upperValue, Integer.MAX_VALUE);
+        }
+        if (lowerValue > upperValue) {
+            return new MatchNoDocsQuery("empty range on " + field);
+        }
+        return new IndexOrDocValuesQuery(pointsRangeQuery(field, lowerValue, upperValue),
+                docValuesRangeQuery(field, lowerValue, upperValue));
+    }
+
+    public static Query newExactQuery(NumericField field, long value) {
+        return newRangeQuery(field, value, value);
+    }
+
+    public static Query newSetQuery(NumericField field, long... values) {
+        long[] inRange = field.getType() == NumericField.Type.INT
+                ? Arrays.stream(values).filter(v -> v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE).toArray()
+                : values;
+        if (inRange.length == 0) {
+            return new MatchNoDocsQuery("empty set on " + field);
+        }
+        return new IndexOrDocValuesQuery(pointsSetQuery(field, inRange), new DocValuesSetQuery(field.getName(), inRange));
+    }
+
+    /**
+     * Range on the points of the field only, what {@link #newRangeQuery} uses when the range leads.
+     */
+    public static Query pointsRangeQuery(NumericField field, long lowerValue, long upperValue) {
+        if (field.getType() == NumericField.Type.INT) {
+            return IntPoint.newRangeQuery(field.getName(), (int) Math.max(lowerValue, Integer.MIN_VALUE),
+                    (int) Math.min(upperValue, Integer.MAX_VALUE));
+        }
+        return LongPoint.newRangeQuery(field.getName(), lowerValue, upperValue);
+    }
+
+    /**
+     * Range on the doc values of the field only, what {@link #newRangeQuery} uses to verify the matches of a
+     * more selective query.
+     */
+    public static Query docValuesRangeQuery(NumericField field, long lowerValue, long upperValue) {
+        return SortedNumericDocValuesField.newSlowRangeQuery(field.getName(), lowerValue, upperValue);
+    }
+
+    private static Query pointsSetQuery(NumericField field, long[] values) {
+        if (field.getType() == NumericField.Type.INT) {
+            return IntPoint.newSetQuery(field.getName(), Arrays.stream(values).mapToInt(Math::toIntExact).toArray());
+        }
+        return LongPoint.newSetQuery(field.getName(), values);
+    }
+}
@@ -0,0 +1,66 @@
+package net.coding.demon.lucene.numeric;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Query;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Classic query parser that turns ranges and terms on numeric fields into {@link NumericQueries}, instead of
+ * term ranges over the string form of the numbers: {@code noOfLines:[10 TO 20]}, {@code noOfLines:{10 TO *]}
+ * and {@code noOfLines:42}. Other fields are parsed as usual.
+ */
+public class NumericQueryParser extends QueryParser {
+    private final Map<String, NumericField> numericFields = new HashMap<>();
+
+    public NumericQueryParser(String defaultField, Analyzer analyzer, NumericField... numericFields) {
+        super(defaultField, analyzer);
+        for (NumericField field : numericFields) {
+            this.numericFields.put(field.getName(), field);
+        }
+    }
+
+    @Override
+    protected Query getRangeQuery(String field, String part1, String part2, boolean startInclusive,
+                                  boolean endInclusive) throws ParseException {
+        NumericField numericField = numericFields.get(field);
+        if (numericField == null) {
+            return super.getRangeQuery(field, part1, part2, startInclusive, endInclusive);
+        }
+        long lower = part1 == null ? Long.MIN_VALUE : parse(field, part1);
+        long upper = part2 == null ? Long.MAX_VALUE : parse(field, part2);
+        if (startInclusive == false) {
+            if (lower == Long.MAX_VALUE) {
+                return NumericQueries.newRangeQuery(numericField, 1, 0);
+            }
+            lower++;
+        }
+        if (endInclusive == false) {
+            if (upper == Long.MIN_VALUE) {
+                return NumericQueries.newRangeQuery(numericField, 1, 0);
+            }
+            upper--;
+        }
+        return NumericQueries.newRangeQuery(numericField, lower, upper);
+    }
+
+    @Override
+    protected Query getFieldQuery(String field, String queryText, boolean quoted) throws ParseException {
+        NumericField numericField = numericFields.get(field);
+        if (numericField == null) {
+            return super.getFieldQuery(field, queryText, quoted);
+        }
+        return NumericQueries.newExactQuery(numericField, parse(field, queryText));
+    }
+
+    private static long parse(String field, String value) throws ParseException {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ParseException("'" + value + "' is not a number, field " + field + " is numeric");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package net.coding.demon.lucene.search;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Weight;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * IndexSearcher that searches the slices of a {@link SlicePolicy} concurrently on an executor and keeps
+ * per slice timings.
+ * <p>
+ * Only the searches going through a CollectorManager are parallel, which includes
+ * {@link #search(org.apache.lucene.search.Query, int)} and the sorted variants. The last slice always runs on
+ * the calling thread.
+ */
+public class ParallelIndexSearcher extends IndexSearcher {
+    private final SlicePolicy slicePolicy;
+    private final int[] sliceOfLeaf;
+    private final List<SliceStats> sliceStats;
+
+    public ParallelIndexSearcher(IndexReader reader, Executor executor) {
+        this(reader, executor, new SlicePolicy());
+    }
+
+    public ParallelIndexSearcher(IndexReader reader, Executor executor, SlicePolicy slicePolicy) {
+        super(reader, executor == null ? null : new SlicedExecutor(executor, slicePolicy.slices(reader.leaves())));
+        this.slicePolicy = slicePolicy;
+
+        LeafSlice[] slices = getSlices() == null ? new LeafSlice[0] : getSlices();
+        this.sliceOfLeaf = new int[leafContexts.size()];
+        Arrays.fill(sliceOfLeaf, -1);
+        List<SliceStats> stats = new ArrayList<>(slices.length);
+        for (int i = 0; i < slices.length; i++) {
+            long numDocs = 0;
+            for (LeafReaderContext leaf : slices[i].leaves) {
+                sliceOfLeaf[leaf.ord] = i;
+                numDocs += leaf.reader().maxDoc();
+            }
+            stats.add(new SliceStats(i, slices[i].leaves.length, numDocs));
+        }
+        this.sliceStats = Collections.unmodifiableList(stats);
+    }
+
+    @Override
+    protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        // IndexSearcher calls this from its constructor, before the fields of this class are assigned, so the
+        // slices computed up front come with the executor it was given
+        Executor executor = super.getExecutor();
+        return executor instanceof SlicedExecutor ? ((SlicedExecutor) executor).slices : super.slices(leaves);
+    }
+
+    /**
+     * @return the executor given to the constructor
+     */
+    @Override
+    public Executor getExecutor() {
+        Executor executor = super.getExecutor();
+        return executor instanceof SlicedExecutor ? ((SlicedExecutor) executor).delegate : executor;
+    }
+
+    @Override
+    protected void search(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+        long start = System.nanoTime();
+        super.search(leaves, weight, collector);
+        long elapsed = System.nanoTime() - start;
+        SliceStats stats = statsOf(leaves);
+        if (stats != null) {
+            stats.record(elapsed);
+        }
+    }
+
+    /**
+     * @return the slice searched with exactly these leaves, null for a sequential search over all leaves
+     */
+    private SliceStats statsOf(List<LeafReaderContext> leaves) {
+        if (leaves.isEmpty()) {
+            return null;
+        }
+        int slice = sliceOfLeaf[leaves.get(0).ord];
+        if (slice == -1 || sliceStats.get(slice).getNumSegments() != leaves.size()) {
+            return null;
+        }
+        return sliceStats.get(slice);
+    }
+
+    public SlicePolicy getSlicePolicy() {
+        return slicePolicy;
+    }
+
+    /**
+     * Timings per slice, in the order of {@link #getSlices()}.
+     */
+    public List<SliceStats> getSliceStats() {
+        return sliceStats;
+    }
+
+    /**
+     * Runs the slice searches on the delegate and carries the slices into the IndexSearcher constructor.
+     */
+    private static final class SlicedExecutor implements Executor {
+        private final Executor delegate;
+        private final LeafSlice[] slices;
+
+        SlicedExecutor(Executor delegate, LeafSlice[] slices) {
+            this.delegate = delegate;
+            this.slices = slices;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(command);
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
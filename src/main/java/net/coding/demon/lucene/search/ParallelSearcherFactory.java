@@ -0,0 +1,25 @@
+package net.coding.demon.lucene.search;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Creates {@link ParallelIndexSearcher}s, e.g. for SearcherManager or {@code NrtSearchManager}.
+ */
+public class ParallelSearcherFactory extends SearcherFactory {
+    private final Executor executor;
+    private final SlicePolicy slicePolicy;
+
+    public ParallelSearcherFactory(Executor executor, SlicePolicy slicePolicy) {
+        this.executor = executor;
+        this.slicePolicy = slicePolicy;
+    }
+
+    @Override
+    public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+        return new ParallelIndexSearcher(reader, executor, slicePolicy);
+    }
+}
@@ -0,0 +1,87 @@
+package net.coding.demon.lucene.search;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for {@link ParallelIndexSearcher}.
+ */
+public final class SearchExecutors {
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private SearchExecutors() {
+    }
+
+    /**
+     * A pool of {@code numThreads} daemon threads without a queue: when every thread is busy the slice runs on
+     * the searching thread instead of waiting. Under full load queries then degrade to sequential search
+     * rather than queueing behind each other, which keeps tail latency bounded.
+     * <p>
+     * Do not use shutdownNow with NIOFSDirectory, interrupting a reading thread closes the file channel.
+     */
+    public static ExecutorService newSearchThreadPool(int numThreads) {
+        return new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                newThreadFactory("search"), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * @return true if the running JDK has virtual threads (JDK 21+)
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return virtualThreadFactoryMethod() != null;
+    }
+
+    /**
+     * One virtual thread per slice. Cheap to create, so nothing is pooled, but the number of slices searched at
+     * once is only bounded by the carrier threads of the JDK scheduler.
+     *
+     * @throws UnsupportedOperationException if the JDK has no virtual threads
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        Method method = virtualThreadFactoryMethod();
+        if (method == null) {
+            throw new UnsupportedOperationException("virtual threads require JDK 21 or later, running " + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("could not create a virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Virtual threads when available, otherwise a {@link #newSearchThreadPool(int) search thread pool} with one
+     * thread per core.
+     */
+    public static ExecutorService newDefaultExecutor() {
+        if (isVirtualThreadsSupported()) {
+            return newVirtualThreadExecutor();
+        }
+        return newSearchThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    private static Method virtualThreadFactoryMethod() {
+        // looked up by reflection, the project is still compiled for Java 11
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory newThreadFactory(String prefix) {
+        final int pool = POOL_COUNTER.incrementAndGet();
+        final AtomicInteger threadCounter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + pool + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
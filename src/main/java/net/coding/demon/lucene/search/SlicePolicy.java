@@ -0,0 +1,78 @@
+package net.coding.demon.lucene.search;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher.LeafSlice;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides which segments are searched together by one thread.
+ * <p>
+ * By default IndexSearcher creates one slice per segment, so an index with many tiny segments pays the
+ * executor hand-off for every one of them. This policy gives every segment with at least
+ * {@code maxDocsPerSlice} documents its own slice, and packs the smaller segments together until a slice
+ * reaches {@code maxDocsPerSlice} documents or {@code maxSegmentsPerSlice} segments.
+ * <p>
+ * A segment is the smallest unit a slice can hold in this Lucene version, so a single huge segment can not be
+ * split across threads; merge policy settings (max segment size) are what keeps segments small enough.
+ */
+public class SlicePolicy {
+    public static final int DEFAULT_MAX_DOCS_PER_SLICE = 250_000;
+    public static final int DEFAULT_MAX_SEGMENTS_PER_SLICE = 5;
+
+    private final int maxDocsPerSlice;
+    private final int maxSegmentsPerSlice;
+
+    public SlicePolicy() {
+        this(DEFAULT_MAX_DOCS_PER_SLICE, DEFAULT_MAX_SEGMENTS_PER_SLICE);
+    }
+
+    public SlicePolicy(int maxDocsPerSlice, int maxSegmentsPerSlice) {
+        if (maxDocsPerSlice < 1) {
+            throw new IllegalArgumentException("maxDocsPerSlice must be >= 1, got " + maxDocsPerSlice);
+        }
+        if (maxSegmentsPerSlice < 1) {
+            throw new IllegalArgumentException("maxSegmentsPerSlice must be >= 1, got " + maxSegmentsPerSlice);
+        }
+        this.maxDocsPerSlice = maxDocsPerSlice;
+        this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+    }
+
+    public int getMaxDocsPerSlice() {
+        return maxDocsPerSlice;
+    }
+
+    public int getMaxSegmentsPerSlice() {
+        return maxSegmentsPerSlice;
+    }
+
+    public LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        List<LeafReaderContext> sorted = new ArrayList<>(leaves);
+        // largest first, so the big slices start early and the small ones fill the gaps
+        sorted.sort(Comparator.comparingInt((LeafReaderContext leaf) -> leaf.reader().maxDoc()).reversed());
+
+        List<LeafSlice> slices = new ArrayList<>();
+        List<LeafReaderContext> group = new ArrayList<>();
+        long groupDocs = 0;
+        for (LeafReaderContext leaf : sorted) {
+            int maxDoc = leaf.reader().maxDoc();
+            if (maxDoc >= maxDocsPerSlice) {
+                slices.add(new LeafSlice(leaf));
+                continue;
+            }
+            group.add(leaf);
+            groupDocs += maxDoc;
+            if (groupDocs >= maxDocsPerSlice || group.size() >= maxSegmentsPerSlice) {
+                slices.add(new LeafSlice(group.toArray(new LeafReaderContext[0])));
+                group.clear();
+                groupDocs = 0;
+            }
+        }
+        if (!group.isEmpty()) {
+            slices.add(new LeafSlice(group.toArray(new LeafReaderContext[0])));
+        }
+        return slices.toArray(new LeafSlice[0]);
+    }
+}
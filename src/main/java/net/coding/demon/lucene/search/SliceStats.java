@@ -0,0 +1,69 @@
+package net.coding.demon.lucene.search;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timing of one slice of a {@link ParallelIndexSearcher}, accumulated over all searches.
+ */
+public final class SliceStats {
+    private final int slice;
+    private final int numSegments;
+    private final long numDocs;
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    SliceStats(int slice, int numSegments, long numDocs) {
+        this.slice = slice;
+        this.numSegments = numSegments;
+        this.numDocs = numDocs;
+    }
+
+    void record(long nanos) {
+        searches.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public int getSlice() {
+        return slice;
+    }
+
+    public int getNumSegments() {
+        return numSegments;
+    }
+
+    /**
+     * Sum of maxDoc of the segments in the slice.
+     */
+    public long getNumDocs() {
+        return numDocs;
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    public double getAverageMillis() {
+        long count = searches.sum();
+        return count == 0 ? 0 : totalNanos.sum() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return "SliceStats{" +
+                "slice=" + slice +
+                ", numSegments=" + numSegments +
+                ", numDocs=" + numDocs +
+                ", searches=" + getSearches() +
+                ", averageMillis=" + String.format("%.3f", getAverageMillis()) +
+                ", maxMillis=" + String.format("%.3f", getMaxMillis()) +
+                '}';
+    }
+}
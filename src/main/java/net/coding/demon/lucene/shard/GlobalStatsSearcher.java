@@ -0,0 +1,59 @@
+package net.coding.demon.lucene.shard;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermStatistics;
+
+import java.io.IOException;
+
+/**
+ * Searches one shard with term and collection statistics summed over all shards, so that a score means the
+ * same on every shard and relevance ordered hits can be merged as if they came from a single index.
+ */
+final class GlobalStatsSearcher extends IndexSearcher {
+    private final IndexReader[] shardReaders;
+    private final int shard;
+
+    GlobalStatsSearcher(IndexSearcher shardSearcher, IndexReader[] shardReaders, int shard) {
+        super(shardSearcher.getIndexReader());
+        this.shardReaders = shardReaders;
+        this.shard = shard;
+        setSimilarity(shardSearcher.getSimilarity());
+        setQueryCache(shardSearcher.getQueryCache());
+        setQueryCachingPolicy(shardSearcher.getQueryCachingPolicy());
+    }
+
+    @Override
+    public TermStatistics termStatistics(Term term, int docFreq, long totalTermFreq) throws IOException {
+        // the statistics of this shard are given, only the other shards are looked up
+        long globalDocFreq = docFreq;
+        long globalTotalTermFreq = totalTermFreq;
+        for (int i = 0; i < shardReaders.length; i++) {
+            if (i != shard) {
+                globalDocFreq += shardReaders[i].docFreq(term);
+                globalTotalTermFreq += shardReaders[i].totalTermFreq(term);
+            }
+        }
+        return super.termStatistics(term, (int) Math.min(Integer.MAX_VALUE, globalDocFreq), globalTotalTermFreq);
+    }
+
+    @Override
+    public CollectionStatistics collectionStatistics(String field) throws IOException {
+        long maxDoc = 0;
+        long docCount = 0;
+        long sumTotalTermFreq = 0;
+        long sumDocFreq = 0;
+        for (IndexReader reader : shardReaders) {
+            maxDoc += reader.maxDoc();
+            docCount += reader.getDocCount(field);
+            sumTotalTermFreq += reader.getSumTotalTermFreq(field);
+            sumDocFreq += reader.getSumDocFreq(field);
+        }
+        if (docCount == 0) {
+            return null;
+        }
+        return new CollectionStatistics(field, maxDoc, docCount, sumTotalTermFreq, sumDocFreq);
+    }
+}
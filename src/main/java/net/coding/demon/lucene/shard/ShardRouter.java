@@ -0,0 +1,28 @@
+package net.coding.demon.lucene.shard;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+
+/**
+ * Maps a document id to a shard with murmur3 of its UTF-8 bytes. The hash only depends on the id, so documents
+ * keep their shard across restarts as long as the number of shards does not change. {@link String#hashCode()}
+ * would be stable too, but sequential ids get sequential hashes, so patterns in the ids show in the shard sizes.
+ */
+public final class ShardRouter {
+    private final int numShards;
+
+    public ShardRouter(int numShards) {
+        if (numShards < 1) {
+            throw new IllegalArgumentException("numShards must be >= 1, got " + numShards);
+        }
+        this.numShards = numShards;
+    }
+
+    public int getNumShards() {
+        return numShards;
+    }
+
+    public int shardOf(String id) {
+        return Math.floorMod(StringHelper.murmurhash3_x86_32(new BytesRef(id), 0), numShards);
+    }
+}
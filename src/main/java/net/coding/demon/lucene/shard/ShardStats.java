@@ -0,0 +1,73 @@
+package net.coding.demon.lucene.shard;
+
+import net.coding.demon.lucene.nrt.NrtSearchManager;
+import org.apache.lucene.index.IndexWriter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Search timing of one shard of a {@link ShardedIndex}, accumulated over all searches, along with the size
+ * and refresh count of the shard.
+ */
+public final class ShardStats {
+    private final int shard;
+    private final IndexWriter indexWriter;
+    private final NrtSearchManager searchManager;
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    ShardStats(int shard, IndexWriter indexWriter, NrtSearchManager searchManager) {
+        this.shard = shard;
+        this.indexWriter = indexWriter;
+        this.searchManager = searchManager;
+    }
+
+    void record(long nanos) {
+        searches.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Live documents in the shard's IndexWriter, including the ones not refreshed yet.
+     */
+    public long getNumDocs() {
+        return indexWriter.getDocStats().numDocs;
+    }
+
+    public long getRefreshCount() {
+        return searchManager.getRefreshCount();
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    public double getAverageMillis() {
+        long count = searches.sum();
+        return count == 0 ? 0 : totalNanos.sum() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return "ShardStats{" +
+                "shard=" + shard +
+                ", numDocs=" + getNumDocs() +
+                ", refreshCount=" + getRefreshCount() +
+                ", searches=" + getSearches() +
+                ", averageMillis=" + String.format("%.3f", getAverageMillis()) +
+                ", maxMillis=" + String.format("%.3f", getMaxMillis()) +
+                '}';
+    }
+}
@@ -0,0 +1,217 @@
+package net.coding.demon.lucene.shard;
+
+import net.coding.demon.lucene.nrt.NrtSearchManager;
+import net.coding.demon.lucene.nrt.SearcherLease;
+import net.coding.demon.lucene.search.SearchExecutors;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits one logical index into N local shards, {@code shard-<n>} folders under a root folder, each with its
+ * own MMapDirectory, IndexWriter and {@link NrtSearchManager}. Documents go to the shard given by the hash of
+ * their id, see {@link ShardRouter}, so flushes, merges and refreshes of different shards run independently.
+ * <p>
+ * Searches {@link #acquire()} a {@link ShardedSearcher}, which fans a query out to all shards in parallel and
+ * merges the per shard top hits with {@code TopDocs.merge}.
+ *
+ * <pre>
+ * try (ShardedIndex index = new ShardedIndex(root, new ShardedIndexConfig().setNumShards(8))) {
+ *     long seqNo = index.updateDocument(id, doc);
+ *     index.waitForGeneration(id, seqNo);   // only needed for read-your-writes
+ *     try (ShardedSearcher searcher = index.acquire()) {
+ *         ShardedTopDocs hits = searcher.search(query, 10, sort);
+ *     }
+ * }
+ * </pre>
+ */
+public class ShardedIndex implements Closeable {
+    private final ShardRouter router;
+    private final String idField;
+    private final boolean globalStatistics;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final List<Directory> directories = new ArrayList<>();
+    private final List<IndexWriter> indexWriters = new ArrayList<>();
+    private final List<NrtSearchManager> searchManagers = new ArrayList<>();
+    private final List<ShardStats> shardStats = new ArrayList<>();
+
+    public ShardedIndex(Path root, ShardedIndexConfig config) throws IOException {
+        this.router = new ShardRouter(config.getNumShards());
+        this.idField = config.getIdField();
+        this.globalStatistics = config.isGlobalStatistics();
+        this.ownsExecutor = config.getExecutor() == null;
+        this.executor = ownsExecutor ? SearchExecutors.newSearchThreadPool(config.getNumShards()) : config.getExecutor();
+        boolean success = false;
+        try {
+            for (int shard = 0; shard < config.getNumShards(); shard++) {
+                Directory directory = new MMapDirectory(root.resolve("shard-" + shard));
+                directories.add(directory);
+                IndexWriter indexWriter = new IndexWriter(directory, config.getIndexWriterConfigFactory().get());
+                indexWriters.add(indexWriter);
+                NrtSearchManager searchManager = new NrtSearchManager(indexWriter, config.getMaxStaleSec());
+                searchManagers.add(searchManager);
+                shardStats.add(new ShardStats(shard, indexWriter, searchManager));
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                close();
+            }
+        }
+    }
+
+    public int getNumShards() {
+        return router.getNumShards();
+    }
+
+    public ShardRouter getRouter() {
+        return router;
+    }
+
+    public int shardOf(String id) {
+        return router.shardOf(id);
+    }
+
+    /**
+     * Adds a document to the shard of its id field.
+     *
+     * @return the sequence number of the operation in the shard's IndexWriter
+     */
+    public long addDocument(Document document) throws IOException {
+        return indexWriters.get(shardOf(idOf(document))).addDocument(document);
+    }
+
+    /**
+     * Replaces the document with the given id. Both versions hash to the same shard, so this is a plain
+     * updateDocument of that shard.
+     */
+    public long updateDocument(String id, Document document) throws IOException {
+        return indexWriters.get(shardOf(id)).updateDocument(new Term(idField, id), document);
+    }
+
+    public long deleteDocument(String id) throws IOException {
+        return indexWriters.get(shardOf(id)).deleteDocuments(new Term(idField, id));
+    }
+
+    private String idOf(Document document) {
+        String id = document.get(idField);
+        if (id == null) {
+            throw new IllegalArgumentException("document has no stored " + idField + " field to be routed by");
+        }
+        return id;
+    }
+
+    /**
+     * Blocks until the shard of the given id publishes a searcher that includes the sequence number returned
+     * by a write of that id. The other shards are not refreshed.
+     */
+    public void waitForGeneration(String id, long generation) throws InterruptedException {
+        searchManagers.get(shardOf(id)).waitForGeneration(generation);
+    }
+
+    /**
+     * Refreshes one shard right away.
+     */
+    public void maybeRefreshBlocking(int shard) throws IOException {
+        searchManagers.get(shard).maybeRefreshBlocking();
+    }
+
+    /**
+     * Refreshes every shard right away, in parallel.
+     */
+    public void maybeRefreshBlocking() throws IOException {
+        forEachShard(shard -> searchManagers.get(shard).maybeRefreshBlocking());
+    }
+
+    /**
+     * Commits every shard, in parallel. Shards are committed independently: a crash in the middle can leave
+     * some shards committed and others not.
+     */
+    public void commit() throws IOException {
+        forEachShard(shard -> indexWriters.get(shard).commit());
+    }
+
+    /**
+     * Point in time searchers over all shards. The searcher must be closed, otherwise the readers are never released.
+     */
+    public ShardedSearcher acquire() throws IOException {
+        SearcherLease[] leases = new SearcherLease[getNumShards()];
+        boolean success = false;
+        try {
+            for (int shard = 0; shard < leases.length; shard++) {
+                leases[shard] = searchManagers.get(shard).acquire();
+            }
+            success = true;
+            return new ShardedSearcher(leases, executor, globalStatistics, shardStats);
+        } finally {
+            if (!success) {
+                ShardedSearcher.release(leases);
+            }
+        }
+    }
+
+    public IndexWriter getIndexWriter(int shard) {
+        return indexWriters.get(shard);
+    }
+
+    public NrtSearchManager getSearchManager(int shard) {
+        return searchManagers.get(shard);
+    }
+
+    /**
+     * Timings and sizes per shard, in shard order.
+     */
+    public List<ShardStats> getShardStats() {
+        return Collections.unmodifiableList(shardStats);
+    }
+
+    interface ShardTask {
+        void run(int shard) throws IOException;
+    }
+
+    private void forEachShard(ShardTask task) throws IOException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int shard = 0; shard < getNumShards() - 1; shard++) {
+            final int target = shard;
+            futures.add(executor.submit(() -> {
+                task.run(target);
+                return null;
+            }));
+        }
+        // the last shard runs on the calling thread
+        Throwable failure = null;
+        try {
+            task.run(getNumShards() - 1);
+        } catch (Throwable t) {
+            failure = t;
+        }
+        ShardedSearcher.awaitAll(futures, failure);
+    }
+
+    @Override
+    public void close() throws IOException {
+        List<Closeable> closeables = new ArrayList<>(searchManagers);
+        closeables.addAll(indexWriters);
+        closeables.addAll(directories);
+        try {
+            IOUtils.close(closeables);
+        } finally {
+            if (ownsExecutor) {
+                executor.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package net.coding.demon.lucene.shard;
+
+import net.coding.demon.lucene.search.SearchExecutors;
+import org.apache.lucene.index.IndexWriterConfig;
+
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Settings for {@link ShardedIndex}. Setters return this, like {@code IndexWriterConfig}.
+ */
+public class ShardedIndexConfig {
+    public static final String DEFAULT_ID_FIELD = "titleId";
+    public static final double DEFAULT_MAX_STALE_SEC = 1.0;
+
+    private int numShards = 4;
+    private String idField = DEFAULT_ID_FIELD;
+    private Supplier<IndexWriterConfig> indexWriterConfigFactory = IndexWriterConfig::new;
+    private double maxStaleSec = DEFAULT_MAX_STALE_SEC;
+    private boolean globalStatistics = true;
+    private ExecutorService executor;
+
+    public int getNumShards() {
+        return numShards;
+    }
+
+    /**
+     * Number of shards, each with its own Directory, IndexWriter and NRT searcher. Documents are routed by
+     * the hash of their id, so this can not change once documents are indexed.
+     */
+    public ShardedIndexConfig setNumShards(int numShards) {
+        if (numShards < 1) {
+            throw new IllegalArgumentException("numShards must be >= 1, got " + numShards);
+        }
+        this.numShards = numShards;
+        return this;
+    }
+
+    public String getIdField() {
+        return idField;
+    }
+
+    /**
+     * Field holding the id that documents are routed by, and updated and deleted by.
+     */
+    public ShardedIndexConfig setIdField(String idField) {
+        this.idField = idField;
+        return this;
+    }
+
+    public Supplier<IndexWriterConfig> getIndexWriterConfigFactory() {
+        return indexWriterConfigFactory;
+    }
+
+    /**
+     * Creates the IndexWriterConfig of each shard, an IndexWriterConfig can not be shared between writers.
+     */
+    public ShardedIndexConfig setIndexWriterConfigFactory(Supplier<IndexWriterConfig> indexWriterConfigFactory) {
+        this.indexWriterConfigFactory = indexWriterConfigFactory;
+        return this;
+    }
+
+    public double getMaxStaleSec() {
+        return maxStaleSec;
+    }
+
+    /**
+     * Longest time a change stays invisible to searches, each shard refreshes on its own.
+     */
+    public ShardedIndexConfig setMaxStaleSec(double maxStaleSec) {
+        this.maxStaleSec = maxStaleSec;
+        return this;
+    }
+
+    public boolean isGlobalStatistics() {
+        return globalStatistics;
+    }
+
+    /**
+     * Scores with term statistics summed over all shards (the default), so that relevance ordered hits of
+     * different shards compare. Without it each shard scores with its own statistics, which is cheaper and
+     * makes no difference to searches sorted by a field.
+     */
+    public ShardedIndexConfig setGlobalStatistics(boolean globalStatistics) {
+        this.globalStatistics = globalStatistics;
+        return this;
+    }
+
+    /**
+     * Executor the shards are searched on, null until set.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Executor to search the shards on, not shut down by the index. Defaults to a
+     * {@link SearchExecutors#newSearchThreadPool(int) search thread pool} with one thread per shard, owned by
+     * the index.
+     */
+    public ShardedIndexConfig setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+}
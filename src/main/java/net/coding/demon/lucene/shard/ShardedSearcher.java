@@ -0,0 +1,235 @@
+package net.coding.demon.lucene.shard;
+
+import net.coding.demon.lucene.fetch.FetchedHit;
+import net.coding.demon.lucene.fetch.HitFetcher;
+import net.coding.demon.lucene.nrt.SearcherLease;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Searchers over all shards of a {@link ShardedIndex}, acquired at the same time. Hits carry shard local doc
+ * ids, so they are only valid with the searcher that found them: fetch them before closing it.
+ * <p>
+ * A query is searched on every shard in parallel, the last shard on the calling thread. Each shard returns
+ * its own top N, which {@link TopDocs#merge} turns into the global top N:
+ * <ul>
+ *     <li>sorted searches merge on the sort values of the {@link org.apache.lucene.search.FieldDoc}s, so a
+ *     sort on custom_score, or on several fields, orders the hits as a single index would;</li>
+ *     <li>relevance ordered searches merge on scores, computed with statistics summed over all shards when
+ *     {@link ShardedIndexConfig#isGlobalStatistics()} is set.</li>
+ * </ul>
+ * Ties are broken by shard, then by doc id. Total hit counts are summed, and are a lower bound as soon as
+ * one shard only counted a lower bound.
+ */
+public final class ShardedSearcher implements AutoCloseable {
+    private final SearcherLease[] leases;
+    private final IndexSearcher[] searchers;
+    private final ExecutorService executor;
+    private final List<ShardStats> shardStats;
+
+    ShardedSearcher(SearcherLease[] leases, ExecutorService executor, boolean globalStatistics,
+                    List<ShardStats> shardStats) {
+        this.leases = leases;
+        this.executor = executor;
+        this.shardStats = shardStats;
+        this.searchers = new IndexSearcher[leases.length];
+        IndexReader[] readers = new IndexReader[leases.length];
+        for (int shard = 0; shard < leases.length; shard++) {
+            readers[shard] = leases[shard].getSearcher().getIndexReader();
+        }
+        for (int shard = 0; shard < leases.length; shard++) {
+            IndexSearcher searcher = leases[shard].getSearcher();
+            searchers[shard] = globalStatistics && leases.length > 1 ? new GlobalStatsSearcher(searcher, readers, shard) : searcher;
+        }
+    }
+
+    public int getNumShards() {
+        return searchers.length;
+    }
+
+    public IndexSearcher getSearcher(int shard) {
+        return searchers[shard];
+    }
+
+    /**
+     * Live documents visible to this searcher, over all shards.
+     */
+    public int numDocs() {
+        int numDocs = 0;
+        for (IndexSearcher searcher : searchers) {
+            numDocs += searcher.getIndexReader().numDocs();
+        }
+        return numDocs;
+    }
+
+    /**
+     * Top hits by relevance.
+     */
+    public ShardedTopDocs search(Query query, int n) throws IOException {
+        TopDocs[] shardHits = new TopDocs[searchers.length];
+        long[] shardNanos = fanOut(shard -> shardHits[shard] = searchers[shard].search(query, n));
+        return new ShardedTopDocs(TopDocs.merge(n, shardHits), shardNanos);
+    }
+
+    /**
+     * Top hits by the given sort, e.g. descending custom_score. Every shard returns its hits with their sort
+     * values, which the merge compares with the same sort.
+     */
+    public ShardedTopDocs search(Query query, int n, Sort sort) throws IOException {
+        TopFieldDocs[] shardHits = new TopFieldDocs[searchers.length];
+        long[] shardNanos = fanOut(shard -> shardHits[shard] = searchers[shard].search(query, n, sort));
+        return new ShardedTopDocs(TopDocs.merge(sort, n, shardHits), shardNanos);
+    }
+
+    public int count(Query query) throws IOException {
+        int[] counts = new int[searchers.length];
+        fanOut(shard -> counts[shard] = searchers[shard].count(query));
+        int count = 0;
+        for (int shardCount : counts) {
+            count += shardCount;
+        }
+        return count;
+    }
+
+    /**
+     * Stored fields of a merged hit, read from the shard of the hit.
+     */
+    public Document doc(ScoreDoc hit) throws IOException {
+        return searchers[hit.shardIndex].doc(hit.doc);
+    }
+
+    /**
+     * Fetches the fields of merged hits with one {@link HitFetcher} pass per shard, in the order of the hits.
+     */
+    public FetchedHit[] fetch(ScoreDoc[] hits, HitFetcher fetcher) throws IOException {
+        FetchedHit[] fetched = new FetchedHit[hits.length];
+        for (int shard = 0; shard < searchers.length; shard++) {
+            List<Integer> positions = new ArrayList<>();
+            for (int i = 0; i < hits.length; i++) {
+                if (hits[i].shardIndex == shard) {
+                    positions.add(i);
+                }
+            }
+            if (positions.isEmpty()) {
+                continue;
+            }
+            ScoreDoc[] shardHits = new ScoreDoc[positions.size()];
+            for (int i = 0; i < shardHits.length; i++) {
+                shardHits[i] = hits[positions.get(i)];
+            }
+            FetchedHit[] shardFetched = fetcher.fetch(searchers[shard].getIndexReader(), shardHits);
+            for (int i = 0; i < shardFetched.length; i++) {
+                fetched[positions.get(i)] = shardFetched[i];
+            }
+        }
+        return fetched;
+    }
+
+    interface ShardSearch {
+        void search(int shard) throws IOException;
+    }
+
+    /**
+     * Runs the search on every shard and returns how long each shard took.
+     */
+    private long[] fanOut(ShardSearch search) throws IOException {
+        long[] shardNanos = new long[searchers.length];
+        List<Future<?>> futures = new ArrayList<>(searchers.length - 1);
+        for (int shard = 0; shard < searchers.length - 1; shard++) {
+            final int target = shard;
+            futures.add(executor.submit(() -> {
+                timed(search, target, shardNanos);
+                return null;
+            }));
+        }
+        Throwable failure = null;
+        try {
+            timed(search, searchers.length - 1, shardNanos);
+        } catch (Throwable t) {
+            failure = t;
+        }
+        awaitAll(futures, failure);
+        return shardNanos;
+    }
+
+    private void timed(ShardSearch search, int shard, long[] shardNanos) throws IOException {
+        long start = System.nanoTime();
+        search.search(shard);
+        long elapsed = System.nanoTime() - start;
+        shardNanos[shard] = elapsed;
+        shardStats.get(shard).record(elapsed);
+    }
+
+    /**
+     * Waits for every future, also after one of them failed, so that no shard still runs once this returns. The
+     * first failure is rethrown with the others suppressed.
+     *
+     * @param failure the failure of the shard that ran on the calling thread, or null
+     */
+    static void awaitAll(List<Future<?>> futures, Throwable failure) throws IOException {
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // the shards may still use the searchers, keep waiting and restore the interrupt afterwards
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    failure = IOUtils.useOrSuppress(failure, e.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw IOUtils.rethrowAlways(failure);
+        }
+    }
+
+    /**
+     * Releases the searchers of all shards.
+     */
+    @Override
+    public void close() throws IOException {
+        release(leases);
+    }
+
+    static void release(SearcherLease[] leases) throws IOException {
+        IOException failure = null;
+        for (SearcherLease lease : leases) {
+            if (lease == null) {
+                continue;
+            }
+            try {
+                lease.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package net.coding.demon.lucene.shard;
+
+import org.apache.lucene.search.TopDocs;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merged hits of a sharded search, with the time each shard took. {@link org.apache.lucene.search.ScoreDoc#shardIndex}
+ * of every hit is the shard it comes from, its doc id is local to that shard.
+ */
+public final class ShardedTopDocs {
+    private final TopDocs topDocs;
+    private final long[] shardNanos;
+
+    ShardedTopDocs(TopDocs topDocs, long[] shardNanos) {
+        this.topDocs = topDocs;
+        this.shardNanos = shardNanos;
+    }
+
+    /**
+     * The merged hits, a {@link org.apache.lucene.search.TopFieldDocs} for sorted searches.
+     */
+    public TopDocs getTopDocs() {
+        return topDocs;
+    }
+
+    public int getNumShards() {
+        return shardNanos.length;
+    }
+
+    public double getShardMillis(int shard) {
+        return shardNanos[shard] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * The shard that answered last, which sets the latency of the whole search.
+     */
+    public int getSlowestShard() {
+        int slowest = 0;
+        for (int i = 1; i < shardNanos.length; i++) {
+            if (shardNanos[i] > shardNanos[slowest]) {
+                slowest = i;
+            }
+        }
+        return slowest;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ShardedTopDocs{totalHits=").append(topDocs.totalHits)
+                .append(", hits=").append(topDocs.scoreDocs.length)
+                .append(", shardMillis=[");
+        for (int i = 0; i < shardNanos.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format("%.3f", getShardMillis(i)));
+        }
+        return sb.append("]}").toString();
+    }
+}
@@ -0,0 +1,89 @@
+package net.coding.demon.lucene.sort;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sorted top-N search that stops collecting a segment as soon as its top N documents are known, when the
+ * index is sorted by the search sort (see {@link IndexSorting}).
+ * <p>
+ * The documents of such a segment are already in sort order, so the first N matches of the segment are its
+ * top N and the remaining matches are not even scored. The price is the hit count: the TotalHits of an early
+ * terminated search is a lower bound, reported with {@link TotalHits.Relation#GREATER_THAN_OR_EQUAL_TO}. With
+ * {@code exactTotalHits} the count is computed separately with {@link IndexSearcher#count}, which is answered
+ * from index statistics for term and match-all queries on segments without deletions, and otherwise still
+ * cheaper than collecting with a sort.
+ * <p>
+ * Searches whose sort does not match the index sort run as a regular sorted search.
+ */
+public class EarlyTerminatingSearch {
+    private final boolean exactTotalHits;
+    private final LongAdder earlyTerminatedCount = new LongAdder();
+    private final LongAdder sortedSearchCount = new LongAdder();
+    private final LongAdder fullSearchCount = new LongAdder();
+
+    public EarlyTerminatingSearch() {
+        this(false);
+    }
+
+    public EarlyTerminatingSearch(boolean exactTotalHits) {
+        this.exactTotalHits = exactTotalHits;
+    }
+
+    public TopFieldDocs search(IndexSearcher searcher, Query query, int n, Sort sort) throws IOException {
+        if (IndexSorting.matchesIndexSort(searcher.getIndexReader(), sort) == false) {
+            fullSearchCount.increment();
+            return searcher.search(query, n, sort);
+        }
+        sortedSearchCount.increment();
+        // same bounds as IndexSearcher
+        int numHits = Math.min(n, Math.max(1, searcher.getIndexReader().maxDoc()));
+        // a threshold of numHits lets every segment stop as soon as its queue is full
+        TopFieldDocs topDocs = searcher.search(query,
+                TopFieldCollector.createSharedManager(sort, numHits, null, numHits));
+        if (topDocs.totalHits.relation == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO) {
+            earlyTerminatedCount.increment();
+            if (exactTotalHits) {
+                TotalHits totalHits = new TotalHits(searcher.count(query), TotalHits.Relation.EQUAL_TO);
+                topDocs = new TopFieldDocs(totalHits, topDocs.scoreDocs, topDocs.fields);
+            }
+        }
+        return topDocs;
+    }
+
+    /**
+     * @return searches that ran on an index sorted by their sort
+     */
+    public long getSortedSearchCount() {
+        return sortedSearchCount.sum();
+    }
+
+    /**
+     * @return searches that stopped collecting before the last match
+     */
+    public long getEarlyTerminatedCount() {
+        return earlyTerminatedCount.sum();
+    }
+
+    /**
+     * @return searches whose sort did not match the index sort
+     */
+    public long getFullSearchCount() {
+        return fullSearchCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "EarlyTerminatingSearch{exactTotalHits=" + exactTotalHits
+                + ", sorted=" + getSortedSearchCount()
+                + ", earlyTerminated=" + getEarlyTerminatedCount()
+                + ", full=" + getFullSearchCount() + "}";
+    }
+}
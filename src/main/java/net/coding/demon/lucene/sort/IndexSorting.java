@@ -0,0 +1,65 @@
+package net.coding.demon.lucene.sort;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+
+import java.util.Arrays;
+
+/**
+ * Helpers to write an index sorted on a doc values field, and to find out whether a search sort can make use
+ * of it.
+ * <p>
+ * A search can only stop early in a segment when its sort is a prefix of the segment's index sort, compared
+ * with {@link SortField#equals}: the field, the type and the order must all be the same. Sorting an index
+ * on {@code SortField.Type.LONG} and searching with {@code SortField.Type.INT} on the same field is a full
+ * search.
+ */
+public final class IndexSorting {
+
+    private IndexSorting() {
+    }
+
+    /**
+     * Highest values first, for a field indexed with {@link org.apache.lucene.document.NumericDocValuesField}.
+     */
+    public static Sort descending(String field) {
+        return new Sort(new SortField(field, SortField.Type.LONG, true));
+    }
+
+    /**
+     * Sorts the segments written by the IndexWriter. The index sort can not be changed once an index has
+     * segments, so it has to be set when the index is created.
+     */
+    public static IndexWriterConfig sortIndex(IndexWriterConfig iwc, Sort indexSort) {
+        iwc.setIndexSort(indexSort);
+        return iwc;
+    }
+
+    /**
+     * @return whether a search sorted by {@code sort} can stop early in every segment of the reader
+     */
+    public static boolean matchesIndexSort(IndexReader reader, Sort sort) {
+        if (reader.leaves().isEmpty()) {
+            return false;
+        }
+        for (LeafReaderContext context : reader.leaves()) {
+            if (isPrefix(sort, context.reader().getMetaData().getSort()) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isPrefix(Sort sort, Sort indexSort) {
+        if (indexSort == null) {
+            return false;
+        }
+        SortField[] fields = sort.getSort();
+        SortField[] indexFields = indexSort.getSort();
+        return fields.length <= indexFields.length
+                && Arrays.asList(fields).equals(Arrays.asList(indexFields).subList(0, fields.length));
+    }
+}
@@ -0,0 +1,17 @@
+package net.coding.demon.lucene.telemetry;
+
+/**
+ * Receives structured IndexWriter events from {@link IndexTelemetry}, e.g. to forward them to a metrics system.
+ * Called on the indexing and merge threads, implementations must be quick and thread safe.
+ */
+public interface IndexEventListener {
+
+    default void onFlush(String segment, int numDocs, double sizeMB, long millis) {
+    }
+
+    default void onFlushStall(long millis) {
+    }
+
+    default void onMerge(MergeEvent event) {
+    }
+}
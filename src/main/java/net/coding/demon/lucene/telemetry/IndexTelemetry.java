@@ -0,0 +1,197 @@
+package net.coding.demon.lucene.telemetry;
+
+import org.apache.lucene.index.IndexWriterConfig;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Flush and merge metrics of one IndexWriter.
+ * <p>
+ * {@link #install(IndexWriterConfig)} plugs a {@link TelemetryInfoStream} and a {@link TelemetryMergeScheduler}
+ * into the config; from then on the counters below are updated and every flush, flush stall and merge is also
+ * passed to the registered {@link IndexEventListener}s. Segment counts, sizes and deleted-doc ratios are a
+ * point-in-time view, see {@link SegmentInspector}.
+ */
+public class IndexTelemetry {
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedDocs = new LongAdder();
+    private final LongAdder flushedBytes = new LongAdder();
+    private final LongAdder flushMillis = new LongAdder();
+    private final LongAdder flushStalls = new LongAdder();
+    private final LongAdder flushStallMillis = new LongAdder();
+    private final LongAdder merges = new LongAdder();
+    private final LongAdder abortedMerges = new LongAdder();
+    private final LongAdder mergedSegments = new LongAdder();
+    private final LongAdder mergedDocs = new LongAdder();
+    private final LongAdder mergedBytes = new LongAdder();
+    private final LongAdder mergeMillis = new LongAdder();
+    private final LongAdder mergeStalls = new LongAdder();
+    private final LongAdder mergeStallMillis = new LongAdder();
+    private final AtomicInteger runningMerges = new AtomicInteger();
+    private final List<IndexEventListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Installs the telemetry InfoStream (wrapping the configured one) and merge scheduler. Must be called before
+     * the IndexWriter is created, and replaces any merge scheduler set before.
+     */
+    public IndexWriterConfig install(IndexWriterConfig iwc) {
+        iwc.setInfoStream(new TelemetryInfoStream(this, iwc.getInfoStream()));
+        iwc.setMergeScheduler(new TelemetryMergeScheduler(this));
+        return iwc;
+    }
+
+    public void addListener(IndexEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(IndexEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    void onFlush(String segment, int numDocs, double sizeMB, long millis) {
+        flushes.increment();
+        flushedDocs.add(numDocs);
+        flushedBytes.add((long) (sizeMB * 1024 * 1024));
+        flushMillis.add(millis);
+        for (IndexEventListener listener : listeners) {
+            listener.onFlush(segment, numDocs, sizeMB, millis);
+        }
+    }
+
+    void onFlushStall(long millis) {
+        flushStalls.increment();
+        flushStallMillis.add(millis);
+        for (IndexEventListener listener : listeners) {
+            listener.onFlushStall(millis);
+        }
+    }
+
+    void onMergeStart() {
+        runningMerges.incrementAndGet();
+    }
+
+    void onMergeEnd(MergeEvent event) {
+        runningMerges.decrementAndGet();
+        if (event.isAborted()) {
+            abortedMerges.increment();
+        } else {
+            merges.increment();
+            mergedSegments.add(event.getNumSegments());
+            mergedDocs.add(event.getNumDocs());
+            mergedBytes.add(event.getBytes());
+            mergeMillis.add(event.getMillis());
+        }
+        for (IndexEventListener listener : listeners) {
+            listener.onMerge(event);
+        }
+    }
+
+    void onMergeStall(long millis) {
+        mergeStalls.increment();
+        mergeStallMillis.add(millis);
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getFlushedDocs() {
+        return flushedDocs.sum();
+    }
+
+    /**
+     * Size of the flushed segments, as reported by IndexWriter (rounded to a thousandth of a MB).
+     */
+    public long getFlushedBytes() {
+        return flushedBytes.sum();
+    }
+
+    /**
+     * Bytes written by flushes and merges per flushed byte, 0 before the first flush.
+     */
+    public double getWriteAmplification() {
+        long flushed = getFlushedBytes();
+        return flushed == 0 ? 0 : (double) (flushed + getMergedBytes()) / flushed;
+    }
+
+    public long getFlushMillis() {
+        return flushMillis.sum();
+    }
+
+    /**
+     * Times indexing threads were blocked because flushing fell behind the RAM buffer.
+     */
+    public long getFlushStalls() {
+        return flushStalls.sum();
+    }
+
+    public long getFlushStallMillis() {
+        return flushStallMillis.sum();
+    }
+
+    public long getMerges() {
+        return merges.sum();
+    }
+
+    public long getAbortedMerges() {
+        return abortedMerges.sum();
+    }
+
+    public int getRunningMerges() {
+        return runningMerges.get();
+    }
+
+    public long getMergedSegments() {
+        return mergedSegments.sum();
+    }
+
+    public long getMergedDocs() {
+        return mergedDocs.sum();
+    }
+
+    /**
+     * Size of the segments merged, roughly the bytes written by merges.
+     */
+    public long getMergedBytes() {
+        return mergedBytes.sum();
+    }
+
+    public long getMergeMillis() {
+        return mergeMillis.sum();
+    }
+
+    /**
+     * Times an indexing thread was blocked because too many merges were pending.
+     */
+    public long getMergeStalls() {
+        return mergeStalls.sum();
+    }
+
+    public long getMergeStallMillis() {
+        return mergeStallMillis.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "IndexTelemetry{" +
+                "flushes=" + getFlushes() +
+                ", flushedDocs=" + getFlushedDocs() +
+                ", flushedBytes=" + getFlushedBytes() +
+                ", flushMillis=" + getFlushMillis() +
+                ", flushStalls=" + getFlushStalls() +
+                ", flushStallMillis=" + getFlushStallMillis() +
+                ", merges=" + getMerges() +
+                ", abortedMerges=" + getAbortedMerges() +
+                ", runningMerges=" + getRunningMerges() +
+                ", mergedSegments=" + getMergedSegments() +
+                ", mergedDocs=" + getMergedDocs() +
+                ", mergedBytes=" + getMergedBytes() +
+                ", mergeMillis=" + getMergeMillis() +
+                ", mergeStalls=" + getMergeStalls() +
+                ", mergeStallMillis=" + getMergeStallMillis() +
+                '}';
+    }
+}
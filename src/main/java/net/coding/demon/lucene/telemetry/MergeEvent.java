@@ -0,0 +1,70 @@
+package net.coding.demon.lucene.telemetry;
+
+/**
+ * One finished (or aborted) merge.
+ */
+public final class MergeEvent {
+    private final String segment;
+    private final int numSegments;
+    private final int numDocs;
+    private final long bytes;
+    private final long millis;
+    private final boolean aborted;
+
+    MergeEvent(String segment, int numSegments, int numDocs, long bytes, long millis, boolean aborted) {
+        this.segment = segment;
+        this.numSegments = numSegments;
+        this.numDocs = numDocs;
+        this.bytes = bytes;
+        this.millis = millis;
+        this.aborted = aborted;
+    }
+
+    /**
+     * Name of the new segment, null if the merge failed before it was registered.
+     */
+    public String getSegment() {
+        return segment;
+    }
+
+    /**
+     * Number of segments merged together.
+     */
+    public int getNumSegments() {
+        return numSegments;
+    }
+
+    /**
+     * Documents in the merged segments, including deleted ones.
+     */
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    /**
+     * Size of the segments that were merged.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    @Override
+    public String toString() {
+        return "MergeEvent{" +
+                "segment=" + segment +
+                ", numSegments=" + numSegments +
+                ", numDocs=" + numDocs +
+                ", bytes=" + bytes +
+                ", millis=" + millis +
+                ", aborted=" + aborted +
+                '}';
+    }
+}
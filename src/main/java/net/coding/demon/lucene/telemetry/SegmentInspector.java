@@ -0,0 +1,62 @@
+package net.coding.demon.lucene.telemetry;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.store.Directory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists the segments of an index with their size, deletes and origin.
+ */
+public final class SegmentInspector {
+
+    private SegmentInspector() {
+    }
+
+    /**
+     * Segments of the last commit in the directory.
+     */
+    public static SegmentsSnapshot inspectLatestCommit(Directory directory) throws IOException {
+        SegmentInfos segmentInfos = SegmentInfos.readLatestCommit(directory);
+        List<SegmentStats> segments = new ArrayList<>(segmentInfos.size());
+        for (SegmentCommitInfo info : segmentInfos) {
+            segments.add(new SegmentStats(info, info.getDelCount()));
+        }
+        return new SegmentsSnapshot(segments);
+    }
+
+    /**
+     * Segments seen by the reader, deletes included for NRT readers.
+     */
+    public static SegmentsSnapshot inspect(DirectoryReader reader) throws IOException {
+        List<SegmentStats> segments = new ArrayList<>(reader.leaves().size());
+        for (LeafReaderContext context : reader.leaves()) {
+            LeafReader leafReader = FilterLeafReader.unwrap(context.reader());
+            if (!(leafReader instanceof SegmentReader)) {
+                throw new IllegalArgumentException("not a segment reader: " + leafReader);
+            }
+            SegmentCommitInfo info = ((SegmentReader) leafReader).getSegmentInfo();
+            segments.add(new SegmentStats(info, leafReader.numDeletedDocs()));
+        }
+        return new SegmentsSnapshot(segments);
+    }
+
+    /**
+     * Current segments of the writer, including uncommitted ones. Opens a NRT reader, so documents still
+     * buffered in RAM are flushed first.
+     */
+    public static SegmentsSnapshot inspect(IndexWriter indexWriter) throws IOException {
+        try (DirectoryReader reader = DirectoryReader.open(indexWriter, true, false)) {
+            return inspect(reader);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package net.coding.demon.lucene.telemetry;
+
+import org.apache.lucene.index.SegmentCommitInfo;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Size and deletes of one segment.
+ */
+public final class SegmentStats {
+    private final String name;
+    private final int maxDoc;
+    private final int delCount;
+    private final long sizeInBytes;
+    private final boolean compoundFile;
+    private final String codec;
+    private final String source;
+    private final long timestamp;
+
+    SegmentStats(SegmentCommitInfo info, int delCount) throws IOException {
+        this.name = info.info.name;
+        this.maxDoc = info.info.maxDoc();
+        this.delCount = delCount;
+        this.sizeInBytes = info.sizeInBytes();
+        this.compoundFile = info.info.getUseCompoundFile();
+        this.codec = info.info.getCodec().getName();
+        Map<String, String> diagnostics = info.info.getDiagnostics();
+        this.source = diagnostics.getOrDefault("source", "unknown");
+        String timestampValue = diagnostics.get("timestamp");
+        this.timestamp = timestampValue == null ? -1 : Long.parseLong(timestampValue);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxDoc() {
+        return maxDoc;
+    }
+
+    public int getNumDocs() {
+        return maxDoc - delCount;
+    }
+
+    public int getDelCount() {
+        return delCount;
+    }
+
+    public double getDeletedDocsRatio() {
+        return maxDoc == 0 ? 0 : (double) delCount / maxDoc;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public boolean isCompoundFile() {
+        return compoundFile;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    /**
+     * How the segment was written: "flush", "merge", "addIndexes(CodecReader...)", ...
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Creation time in epoch millis, -1 if unknown.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentStats{" +
+                "name=" + name +
+                ", maxDoc=" + maxDoc +
+                ", delCount=" + delCount +
+                ", sizeInBytes=" + sizeInBytes +
+                ", compoundFile=" + compoundFile +
+                ", codec=" + codec +
+                ", source=" + source +
+                '}';
+    }
+}
@@ -0,0 +1,75 @@
+package net.coding.demon.lucene.telemetry;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The segments of an index at one point in time, with totals.
+ */
+public final class SegmentsSnapshot {
+    private final List<SegmentStats> segments;
+    private final long totalBytes;
+    private final long maxDoc;
+    private final long delCount;
+
+    SegmentsSnapshot(List<SegmentStats> segments) {
+        this.segments = Collections.unmodifiableList(segments);
+        long bytes = 0;
+        long docs = 0;
+        long deletes = 0;
+        for (SegmentStats segment : segments) {
+            bytes += segment.getSizeInBytes();
+            docs += segment.getMaxDoc();
+            deletes += segment.getDelCount();
+        }
+        this.totalBytes = bytes;
+        this.maxDoc = docs;
+        this.delCount = deletes;
+    }
+
+    public List<SegmentStats> getSegments() {
+        return segments;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getMaxDoc() {
+        return maxDoc;
+    }
+
+    public long getDelCount() {
+        return delCount;
+    }
+
+    public double getDeletedDocsRatio() {
+        return maxDoc == 0 ? 0 : (double) delCount / maxDoc;
+    }
+
+    public SegmentStats getLargestSegment() {
+        SegmentStats largest = null;
+        for (SegmentStats segment : segments) {
+            if (largest == null || segment.getSizeInBytes() > largest.getSizeInBytes()) {
+                largest = segment;
+            }
+        }
+        return largest;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d segments, %d bytes, %d docs, %.1f%% deleted%n",
+                getSegmentCount(), totalBytes, maxDoc, 100 * getDeletedDocsRatio()));
+        for (SegmentStats segment : segments) {
+            sb.append(String.format("  %-8s %10d docs %8d del %12d bytes  %s%n", segment.getName(), segment.getMaxDoc(),
+                    segment.getDelCount(), segment.getSizeInBytes(), segment.getSource()));
+        }
+        return sb.toString();
+    }
+}
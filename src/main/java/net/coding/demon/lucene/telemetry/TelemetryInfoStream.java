@@ -0,0 +1,93 @@
+package net.coding.demon.lucene.telemetry;
+
+import org.apache.lucene.util.InfoStream;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Listens to the few IndexWriter components that describe flushes and turns their messages into
+ * {@link IndexTelemetry} events. Everything else is disabled unless the optional delegate asks for it, so this
+ * can stay on in production where PrintStreamInfoStream is far too verbose.
+ */
+public class TelemetryInfoStream extends InfoStream {
+    // DocumentsWriterFlushControl only reports stalls when "DWFC" is enabled, but writes them to "DW".
+    private static final String FLUSH_CONTROL_COMPONENT = "DWFC";
+    private static final String DOCUMENTS_WRITER_COMPONENT = "DW";
+    private static final String PER_THREAD_COMPONENT = "DWPT";
+
+    private static final Pattern DONE_STALLING = Pattern.compile("done stalling flushes for ([0-9.]+) msec");
+    private static final Pattern FLUSH_START = Pattern.compile("flush postings as segment (\\S+) numDocs=(\\d+)");
+    private static final Pattern FLUSHED_SIZE = Pattern.compile("flushed: segment=(\\S+) .*newFlushedSize=([0-9.,]+) MB");
+    private static final Pattern FLUSH_TIME = Pattern.compile("flush time ([0-9.]+) msec");
+
+    private final IndexTelemetry telemetry;
+    private final InfoStream delegate;
+    // DWPT messages of one flush all come from the flushing thread
+    private final ThreadLocal<PendingFlush> pendingFlush = ThreadLocal.withInitial(PendingFlush::new);
+
+    public TelemetryInfoStream(IndexTelemetry telemetry) {
+        this(telemetry, InfoStream.NO_OUTPUT);
+    }
+
+    public TelemetryInfoStream(IndexTelemetry telemetry, InfoStream delegate) {
+        this.telemetry = telemetry;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void message(String component, String message) {
+        if (DOCUMENTS_WRITER_COMPONENT.equals(component)) {
+            Matcher matcher = DONE_STALLING.matcher(message);
+            if (matcher.find()) {
+                telemetry.onFlushStall((long) Double.parseDouble(matcher.group(1)));
+            }
+        } else if (PER_THREAD_COMPONENT.equals(component)) {
+            onPerThreadMessage(message);
+        }
+        if (delegate.isEnabled(component)) {
+            delegate.message(component, message);
+        }
+    }
+
+    private void onPerThreadMessage(String message) {
+        PendingFlush flush = pendingFlush.get();
+        Matcher matcher = FLUSH_START.matcher(message);
+        if (matcher.find()) {
+            flush.segment = matcher.group(1);
+            flush.numDocs = Integer.parseInt(matcher.group(2));
+            flush.sizeMB = 0;
+            return;
+        }
+        matcher = FLUSHED_SIZE.matcher(message);
+        if (matcher.find()) {
+            flush.sizeMB = Double.parseDouble(matcher.group(2).replace(",", ""));
+            return;
+        }
+        matcher = FLUSH_TIME.matcher(message);
+        if (matcher.find() && flush.segment != null) {
+            telemetry.onFlush(flush.segment, flush.numDocs, flush.sizeMB, (long) Double.parseDouble(matcher.group(1)));
+            flush.segment = null;
+        }
+    }
+
+    @Override
+    public boolean isEnabled(String component) {
+        return FLUSH_CONTROL_COMPONENT.equals(component)
+                || DOCUMENTS_WRITER_COMPONENT.equals(component)
+                || PER_THREAD_COMPONENT.equals(component)
+                || delegate.isEnabled(component);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private static final class PendingFlush {
+        String segment;
+        int numDocs;
+        double sizeMB;
+    }
+}
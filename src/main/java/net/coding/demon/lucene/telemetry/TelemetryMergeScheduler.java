@@ -0,0 +1,48 @@
+package net.coding.demon.lucene.telemetry;
+
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.SegmentCommitInfo;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConcurrentMergeScheduler reporting every merge and every merge stall of indexing threads to
+ * {@link IndexTelemetry}.
+ */
+public class TelemetryMergeScheduler extends ConcurrentMergeScheduler {
+    private final IndexTelemetry telemetry;
+
+    public TelemetryMergeScheduler(IndexTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    @Override
+    protected synchronized boolean maybeStall(MergeSource mergeSource) {
+        long start = System.nanoTime();
+        boolean result = super.maybeStall(mergeSource);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // super.maybeStall returns immediately when nothing has to wait, only count real stalls
+        if (elapsedMillis > 0) {
+            telemetry.onMergeStall(elapsedMillis);
+        }
+        return result;
+    }
+
+    @Override
+    protected void doMerge(MergeSource mergeSource, MergePolicy.OneMerge merge) throws IOException {
+        long start = System.nanoTime();
+        telemetry.onMergeStart();
+        boolean success = false;
+        try {
+            super.doMerge(mergeSource, merge);
+            success = true;
+        } finally {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            SegmentCommitInfo mergeInfo = merge.getMergeInfo();
+            telemetry.onMergeEnd(new MergeEvent(mergeInfo == null ? null : mergeInfo.info.name, merge.segments.size(),
+                    merge.totalNumDocs(), merge.totalBytesSize(), millis, !success || merge.isAborted()));
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package net.coding.demon.lucene.wal;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Makes every add, update and delete durable without a Lucene commit per operation.
+ * <p>
+ * Each operation is applied to the IndexWriter, then appended to a {@link WriteAheadLog}, and the call returns
+ * once the log entry is fsynced. Concurrent writers share fsyncs (group commit), so acknowledging N writes
+ * costs far fewer than N fsyncs, and none of them pays for a Lucene commit. Lucene commits happen every
+ * {@link WalConfig#getCommitIntervalNanos()} or on {@link #checkpoint()}: the log is rolled to a new
+ * generation, the generation is stored in the commit user data, and the older log files are deleted once
+ * the commit is done.
+ * <p>
+ * The constructor recovers from a crash: the IndexWriter, freshly opened on the last commit, gets every log
+ * entry that the commit does not hold replayed into it, then a checkpoint is taken.
+ * <p>
+ * Operations are visible to NRT readers as soon as they are applied, which can be shortly before they are
+ * durable. The IndexWriter must not be committed by anything else, nor closed before this class.
+ *
+ * <pre>
+ * WalConfig config = new WalConfig(logDirectory).setCommitInterval(30, TimeUnit.SECONDS);
+ * try (DurableIndexWriter&lt;String&gt; writer = new DurableIndexWriter&lt;&gt;(indexWriter, Json::toDocument,
+ *         RecordCodec.utf8(), config)) {
+ *     writer.update(id, json);
+ * }
+ * </pre>
+ */
+public class DurableIndexWriter<T> implements Closeable {
+    /**
+     * Commit user data key holding the first log generation not covered by the commit.
+     */
+    public static final String LOG_GENERATION_KEY = "wal.generation";
+
+    private static final byte ADD = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    private static final int LOCK_STRIPES = 64;
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final IndexWriter indexWriter;
+    private final Function<? super T, Document> documentBuilder;
+    private final RecordCodec<T> codec;
+    private final String idField;
+    private final WriteAheadLog log;
+    // operations hold the read lock from apply to append, a checkpoint holds the write lock so that the log
+    // generation it records matches the documents it commits
+    private final ReadWriteLock applyLock = new ReentrantReadWriteLock();
+    // operations on the same id are applied in log order, otherwise replay could end with another version
+    private final Object[] idLocks = new Object[LOCK_STRIPES];
+    private final Object checkpointLock = new Object();
+    private final ScheduledExecutorService scheduler;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicLong checkpoints = new AtomicLong();
+    private final long recoveredEntries;
+    private volatile boolean closed;
+
+    public DurableIndexWriter(IndexWriter indexWriter, Function<? super T, Document> documentBuilder,
+                              RecordCodec<T> codec, WalConfig config) throws IOException {
+        this.indexWriter = indexWriter;
+        this.documentBuilder = documentBuilder;
+        this.codec = codec;
+        this.idField = config.getIdField();
+        for (int i = 0; i < idLocks.length; i++) {
+            idLocks[i] = new Object();
+        }
+        Files.createDirectories(config.getLogDirectory());
+        List<Long> generations = WriteAheadLog.generations(config.getLogDirectory());
+        this.recoveredEntries = recover(config, generations);
+        long generation = generations.isEmpty() ? 0 : generations.get(generations.size() - 1) + 1;
+        this.log = new WriteAheadLog(config.getLogDirectory(), generation, config.getMaxSyncDelayNanos());
+        checkpoint();
+
+        long interval = config.getCommitIntervalNanos();
+        if (interval > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
+            scheduler.scheduleWithFixedDelay(this::periodicCheckpoint, interval, interval, TimeUnit.NANOSECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    private static ThreadFactory newThreadFactory() {
+        final int pool = POOL_COUNTER.incrementAndGet();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "wal-checkpoint-" + pool);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private long recover(WalConfig config, List<Long> generations) throws IOException {
+        long committedGeneration = 0;
+        Iterable<Map.Entry<String, String>> commitData = indexWriter.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (LOG_GENERATION_KEY.equals(entry.getKey())) {
+                    committedGeneration = Long.parseLong(entry.getValue());
+                }
+            }
+        }
+        long entries = 0;
+        for (long generation : generations) {
+            if (generation >= committedGeneration) {
+                entries += WriteAheadLog.read(WriteAheadLog.fileName(config.getLogDirectory(), generation), this::replay);
+            }
+        }
+        return entries;
+    }
+
+    private void replay(byte[] entry) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+        byte operation = in.readByte();
+        String id = operation == ADD ? null : in.readUTF();
+        T record = operation == DELETE ? null : codec.decode(in.readAllBytes());
+        apply(operation, id, record == null ? null : documentBuilder.apply(record));
+    }
+
+    /**
+     * Adds a document, returning once it is durable.
+     *
+     * @return the IndexWriter sequence number of the operation
+     */
+    public long add(T record) throws IOException {
+        return write(ADD, null, record);
+    }
+
+    /**
+     * Replaces the documents with the given id by the document built from the record, returning once it is durable.
+     */
+    public long update(String id, T record) throws IOException {
+        return write(UPDATE, id, record);
+    }
+
+    /**
+     * Deletes the documents with the given id, returning once it is durable.
+     */
+    public long delete(String id) throws IOException {
+        return write(DELETE, id, null);
+    }
+
+    private long write(byte operation, String id, T record) throws IOException {
+        ensureOpen();
+        rethrowFailure();
+        Document document = record == null ? null : documentBuilder.apply(record);
+        byte[] entry = encode(operation, id, record);
+        long position;
+        long seqNo;
+        applyLock.readLock().lock();
+        try {
+            // applied before it is logged: what IndexWriter rejects, e.g. an immense term, must never be
+            // replayed, or the index could not be reopened after a crash
+            if (id == null) {
+                seqNo = apply(operation, null, document);
+                position = log.append(entry);
+            } else {
+                synchronized (idLocks[Math.floorMod(id.hashCode(), LOCK_STRIPES)]) {
+                    seqNo = apply(operation, id, document);
+                    position = log.append(entry);
+                }
+            }
+        } finally {
+            applyLock.readLock().unlock();
+        }
+        log.sync(position);
+        return seqNo;
+    }
+
+    private byte[] encode(byte operation, String id, T record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(operation);
+        if (id != null) {
+            out.writeUTF(id);
+        }
+        if (record != null) {
+            out.write(codec.encode(record));
+        }
+        return bytes.toByteArray();
+    }
+
+    private long apply(byte operation, String id, Document document) throws IOException {
+        switch (operation) {
+            case ADD:
+                return indexWriter.addDocument(document);
+            case UPDATE:
+                return indexWriter.updateDocument(new Term(idField, id), document);
+            case DELETE:
+                return indexWriter.deleteDocuments(new Term(idField, id));
+            default:
+                throw new IOException("unknown write-ahead log operation " + operation);
+        }
+    }
+
+    /**
+     * Commits the IndexWriter and deletes the log files the commit makes obsolete. Writers are only blocked
+     * while the log is rolled and the commit is prepared, not while the commit is fsynced.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            long generation;
+            applyLock.writeLock().lock();
+            try {
+                generation = log.roll();
+                Map<String, String> commitData = new HashMap<>();
+                Iterable<Map.Entry<String, String>> previous = indexWriter.getLiveCommitData();
+                if (previous != null) {
+                    for (Map.Entry<String, String> entry : previous) {
+                        commitData.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                commitData.put(LOG_GENERATION_KEY, Long.toString(generation));
+                indexWriter.setLiveCommitData(commitData.entrySet());
+                indexWriter.prepareCommit();
+            } finally {
+                applyLock.writeLock().unlock();
+            }
+            indexWriter.commit();
+            log.deleteGenerationsBefore(generation);
+            checkpoints.incrementAndGet();
+        }
+    }
+
+    private void periodicCheckpoint() {
+        try {
+            if (!closed) {
+                checkpoint();
+            }
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+    }
+
+    /**
+     * Log entries replayed into the IndexWriter by the constructor.
+     */
+    public long getRecoveredEntries() {
+        return recoveredEntries;
+    }
+
+    /**
+     * Entries appended to the log since it was opened.
+     */
+    public long getAppendedEntries() {
+        return log.getAppended();
+    }
+
+    /**
+     * Number of fsyncs of the log, a sync covers every entry appended before it started.
+     */
+    public long getLogSyncs() {
+        return log.getSyncs();
+    }
+
+    public long getLogBytesWritten() {
+        return log.getBytesWritten();
+    }
+
+    /**
+     * Number of Lucene commits, including the one taken on open.
+     */
+    public long getCheckpoints() {
+        return checkpoints.get();
+    }
+
+    public long getLogGeneration() {
+        return log.getGeneration();
+    }
+
+    public IndexWriter getIndexWriter() {
+        return indexWriter;
+    }
+
+    /**
+     * Takes a last checkpoint and closes the log. The IndexWriter is left open.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            checkpoint();
+        } finally {
+            log.close();
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        Throwable t = failure.get();
+        if (t == null) {
+            return;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IOException("periodic checkpoint failed", t);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("DurableIndexWriter is closed");
+        }
+    }
+
+    @Override
+    public String toString() {
+        long appended = getAppendedEntries();
+        long syncs = getLogSyncs();
+        return "DurableIndexWriter{generation=" + getLogGeneration()
+                + ", appendedEntries=" + appended
+                + ", logSyncs=" + syncs
+                + ", entriesPerSync=" + (syncs == 0 ? 0 : String.format("%.1f", (double) appended / syncs))
+                + ", logBytesWritten=" + getLogBytesWritten()
+                + ", checkpoints=" + getCheckpoints()
+                + ", recoveredEntries=" + recoveredEntries
+                + '}';
+    }
+}
@@ -0,0 +1,33 @@
+package net.coding.demon.lucene.wal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns the records given to {@link DurableIndexWriter} into the bytes kept in the write-ahead log and back.
+ * The log stores source records rather than Documents, recovery rebuilds the Documents with the same function
+ * as the live path.
+ */
+public interface RecordCodec<T> {
+
+    byte[] encode(T record) throws IOException;
+
+    T decode(byte[] bytes) throws IOException;
+
+    /**
+     * Records that are plain strings, e.g. JSON.
+     */
+    static RecordCodec<String> utf8() {
+        return new RecordCodec<String>() {
+            @Override
+            public byte[] encode(String record) {
+                return record.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
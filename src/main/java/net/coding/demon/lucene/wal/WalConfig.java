@@ -0,0 +1,75 @@
+package net.coding.demon.lucene.wal;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings for {@link DurableIndexWriter}. Setters return this, like {@code IndexWriterConfig}.
+ */
+public class WalConfig {
+    public static final String DEFAULT_ID_FIELD = "titleId";
+    public static final long DEFAULT_COMMIT_INTERVAL_SEC = 60;
+
+    private final Path logDirectory;
+    private String idField = DEFAULT_ID_FIELD;
+    private long maxSyncDelayNanos = 0;
+    private long commitIntervalNanos = TimeUnit.SECONDS.toNanos(DEFAULT_COMMIT_INTERVAL_SEC);
+
+    /**
+     * @param logDirectory folder of the log files, preferably not the index folder so that nothing else
+     *                     deletes or lists them
+     */
+    public WalConfig(Path logDirectory) {
+        this.logDirectory = logDirectory;
+    }
+
+    public Path getLogDirectory() {
+        return logDirectory;
+    }
+
+    public String getIdField() {
+        return idField;
+    }
+
+    /**
+     * Field holding the id used by updates and deletes.
+     */
+    public WalConfig setIdField(String idField) {
+        this.idField = idField;
+        return this;
+    }
+
+    public long getMaxSyncDelayNanos() {
+        return maxSyncDelayNanos;
+    }
+
+    /**
+     * How long the thread that syncs the log waits for more writers to join the batch before it fsyncs.
+     * With the default of 0, a batch is made of the writers that arrived while the previous fsync ran, which
+     * is enough when fsync is slow; a small delay helps when fsync is fast and writers are many.
+     */
+    public WalConfig setMaxSyncDelay(long delay, TimeUnit unit) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("delay must be >= 0, got " + delay);
+        }
+        this.maxSyncDelayNanos = unit.toNanos(delay);
+        return this;
+    }
+
+    public long getCommitIntervalNanos() {
+        return commitIntervalNanos;
+    }
+
+    /**
+     * Interval between Lucene commits, each of which truncates the log. Longer intervals mean fewer commits
+     * but a longer log to replay after a crash. 0 disables periodic commits, see
+     * {@link DurableIndexWriter#checkpoint()}.
+     */
+    public WalConfig setCommitInterval(long interval, TimeUnit unit) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("interval must be >= 0, got " + interval);
+        }
+        this.commitIntervalNanos = unit.toNanos(interval);
+        return this;
+    }
+}
@@ -0,0 +1,324 @@
+package net.coding.demon.lucene.wal;
+
+import org.apache.lucene.util.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log made of one file per generation, {@code wal-<generation>.log}. Every entry is written as
+ * {@code length, crc32, bytes} so that a torn write at the end of the last file is detected on recovery.
+ * <p>
+ * Appending and syncing are separate: {@link #append} only writes to the file channel, {@link #sync} blocks
+ * until the entry is on disk. The first thread to call sync becomes the syncer and fsyncs everything appended
+ * so far; threads arriving while it runs wait and are covered by the next fsync, so N concurrent writers cost
+ * far fewer than N fsyncs.
+ */
+final class WriteAheadLog implements Closeable {
+    static final String PREFIX = "wal-";
+    static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final Path directory;
+    private final long maxSyncDelayNanos;
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    // guarded by this
+    private FileChannel channel;
+    private long generation;
+    private long appended;
+    // set by the first failed write or fsync, the state of the file is unknown from then on
+    private volatile Throwable failure;
+
+    // guarded by syncLock
+    private final Object syncLock = new Object();
+    private long synced;
+    private boolean syncing;
+
+    WriteAheadLog(Path directory, long generation, long maxSyncDelayNanos) throws IOException {
+        this.directory = directory;
+        this.maxSyncDelayNanos = maxSyncDelayNanos;
+        this.generation = generation;
+        this.channel = create(generation);
+    }
+
+    private FileChannel create(long generation) throws IOException {
+        FileChannel created = FileChannel.open(fileName(directory, generation), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        // the new file must survive a crash too, not only its content
+        IOUtils.fsync(directory, true);
+        return created;
+    }
+
+    static Path fileName(Path directory, long generation) {
+        return directory.resolve(String.format("%s%019d%s", PREFIX, generation, SUFFIX));
+    }
+
+    /**
+     * Generations of the log files in the directory, in increasing order.
+     */
+    static List<Long> generations(Path directory) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                generations.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Appends one entry, which is not durable until {@link #sync} returns for the returned position.
+     */
+    long append(byte[] entry) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(entry);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + entry.length);
+        buffer.putInt(entry.length).putInt((int) crc.getValue()).put(entry).flip();
+        synchronized (this) {
+            ensureOpen();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (Throwable t) {
+                // a partly written entry would end the file on recovery, with later entries behind it
+                failure = t;
+                throw t;
+            }
+            bytesWritten.addAndGet(buffer.limit());
+            return ++appended;
+        }
+    }
+
+    /**
+     * Blocks until the entry at the given position, and every entry before it, is on disk.
+     */
+    void sync(long position) throws IOException {
+        synchronized (syncLock) {
+            while (synced < position && syncing) {
+                awaitSyncer();
+            }
+            if (synced >= position) {
+                return;
+            }
+            ensureNotFailed();
+            syncing = true;
+        }
+        long target = 0;
+        boolean success = false;
+        try {
+            if (maxSyncDelayNanos > 0) {
+                // let more writers append before paying for the fsync
+                LockSupport.parkNanos(maxSyncDelayNanos);
+            }
+            FileChannel toSync;
+            synchronized (this) {
+                ensureOpen();
+                target = appended;
+                toSync = channel;
+            }
+            // outside of the append lock, writers keep appending to the next batch meanwhile
+            toSync.force(false);
+            syncs.incrementAndGet();
+            success = true;
+        } catch (Throwable t) {
+            // after a failed fsync the page cache may have dropped the dirty pages, retrying could succeed
+            // without the entries ever reaching the disk
+            failure = t;
+            throw t;
+        } finally {
+            // the waiting writers are only released as durable when the fsync succeeded
+            releaseSyncer(success ? target : 0);
+        }
+    }
+
+    /**
+     * Syncs and closes the current file and starts a new generation. Every entry appended before this call is
+     * in a generation lower than the returned one.
+     */
+    long roll() throws IOException {
+        synchronized (syncLock) {
+            // a syncer works on the channel outside of the append lock, wait for it to finish
+            while (syncing) {
+                awaitSyncer();
+            }
+            syncing = true;
+        }
+        long target = 0;
+        try {
+            synchronized (this) {
+                ensureOpen();
+                FileChannel next = create(generation + 1);
+                try {
+                    channel.force(false);
+                    channel.close();
+                } catch (Throwable t) {
+                    failure = t;
+                    next.close();
+                    throw t;
+                }
+                channel = next;
+                generation++;
+                target = appended;
+                return generation;
+            }
+        } finally {
+            releaseSyncer(target);
+        }
+    }
+
+    private void awaitSyncer() throws IOException {
+        try {
+            syncLock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the log to be synced", e);
+        }
+    }
+
+    private void releaseSyncer(long target) {
+        synchronized (syncLock) {
+            synced = Math.max(synced, target);
+            syncing = false;
+            syncLock.notifyAll();
+        }
+    }
+
+    /**
+     * Deletes the files of the generations below the given one, once a Lucene commit holds their entries.
+     */
+    void deleteGenerationsBefore(long generation) throws IOException {
+        for (long old : generations(directory)) {
+            if (old < generation) {
+                Files.deleteIfExists(fileName(directory, old));
+            }
+        }
+    }
+
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    synchronized long getAppended() {
+        return appended;
+    }
+
+    long getSyncs() {
+        return syncs.get();
+    }
+
+    long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (channel == null) {
+            throw new IllegalStateException("write-ahead log is closed");
+        }
+        ensureNotFailed();
+    }
+
+    private void ensureNotFailed() throws IOException {
+        Throwable t = failure;
+        if (t != null) {
+            throw new IOException("write-ahead log failed, the index must be reopened to recover", t);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            while (syncing) {
+                awaitSyncer();
+            }
+            syncing = true;
+        }
+        long target = 0;
+        try {
+            synchronized (this) {
+                if (channel != null) {
+                    try {
+                        channel.force(false);
+                        target = appended;
+                    } finally {
+                        channel.close();
+                        channel = null;
+                    }
+                }
+            }
+        } finally {
+            releaseSyncer(target);
+        }
+    }
+
+    /**
+     * Receives the entries of a log file on recovery.
+     */
+    interface EntryConsumer {
+        void accept(byte[] entry) throws IOException;
+    }
+
+    /**
+     * Reads the complete entries of one log file. An incomplete or corrupt entry ends the file: it can only
+     * be the last write before a crash, which was never acknowledged. The file is truncated to its complete
+     * entries so that later generations can be appended behind it safely.
+     *
+     * @return the number of entries read
+     */
+    static long read(Path file, EntryConsumer consumer) throws IOException {
+        long entries = 0;
+        long validLength = 0;
+        long fileLength = Files.size(file);
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024))) {
+            while (validLength + HEADER_BYTES <= fileLength) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 0 || validLength + HEADER_BYTES + length > fileLength) {
+                    break;
+                }
+                byte[] entry = new byte[length];
+                try {
+                    in.readFully(entry);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(entry);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                consumer.accept(entry);
+                entries++;
+                validLength += HEADER_BYTES + length;
+            }
+        }
+        if (validLength < fileLength) {
+            try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncate.truncate(validLength);
+                truncate.force(true);
+            }
+        }
+        return entries;
+    }
+}
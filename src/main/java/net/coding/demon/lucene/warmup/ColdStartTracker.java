@@ -0,0 +1,76 @@
+package net.coding.demon.lucene.warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes after a start (a deploy, a restart, a new commit) until queries are fast again.
+ * <p>
+ * Every query reports its latency with {@link #record}. The first query that takes at most
+ * {@code fastQueryNanos} ends the cold period: its completion time, relative to {@link #start()}, is the time
+ * to first fast query. Slower queries before that are counted as cold queries.
+ */
+public class ColdStartTracker {
+    private final long fastQueryNanos;
+
+    private long startNanos;
+    private long timeToFirstFastQueryNanos = -1;
+    private long coldQueryCount;
+    private long maxColdQueryNanos;
+
+    public ColdStartTracker(long fastQueryLatency, TimeUnit unit) {
+        this.fastQueryNanos = unit.toNanos(fastQueryLatency);
+        start();
+    }
+
+    /**
+     * Starts a new cold period, the tracker starts with one on creation.
+     */
+    public synchronized void start() {
+        startNanos = System.nanoTime();
+        timeToFirstFastQueryNanos = -1;
+        coldQueryCount = 0;
+        maxColdQueryNanos = 0;
+    }
+
+    public void record(long queryNanos) {
+        record(queryNanos, System.nanoTime());
+    }
+
+    synchronized void record(long queryNanos, long endNanos) {
+        if (timeToFirstFastQueryNanos != -1) {
+            return;
+        }
+        if (queryNanos <= fastQueryNanos) {
+            timeToFirstFastQueryNanos = Math.max(0, endNanos - startNanos);
+        } else {
+            coldQueryCount++;
+            maxColdQueryNanos = Math.max(maxColdQueryNanos, queryNanos);
+        }
+    }
+
+    public synchronized boolean isWarm() {
+        return timeToFirstFastQueryNanos != -1;
+    }
+
+    /**
+     * @return nanoseconds from the start to the end of the first fast query, -1 while no query was fast
+     */
+    public synchronized long getTimeToFirstFastQueryNanos() {
+        return timeToFirstFastQueryNanos;
+    }
+
+    public synchronized long getColdQueryCount() {
+        return coldQueryCount;
+    }
+
+    public synchronized long getMaxColdQueryNanos() {
+        return maxColdQueryNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ColdStartTracker{fastQueryUs=" + fastQueryNanos / 1000
+                + ", timeToFirstFastQueryUs=" + (timeToFirstFastQueryNanos == -1 ? -1 : timeToFirstFastQueryNanos / 1000)
+                + ", coldQueries=" + coldQueryCount + ", maxColdQueryUs=" + maxColdQueryNanos / 1000 + "}";
+    }
+}
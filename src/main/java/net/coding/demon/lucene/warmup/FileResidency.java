@@ -0,0 +1,49 @@
+package net.coding.demon.lucene.warmup;
+
+import net.coding.demon.lucene.inspect.FileCategory;
+
+/**
+ * How much of one index file is in the page cache.
+ */
+public final class FileResidency {
+    private final String name;
+    private final FileCategory category;
+    private final long sizeInBytes;
+    private final long residentBytes;
+
+    FileResidency(String name, long sizeInBytes, long residentBytes) {
+        this.name = name;
+        this.category = FileCategory.forFileName(name);
+        this.sizeInBytes = sizeInBytes;
+        this.residentBytes = residentBytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public FileCategory getCategory() {
+        return category;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * @return between 0 and 1, 1 for an empty file
+     */
+    public double getResidentRatio() {
+        return sizeInBytes == 0 ? 1 : (double) residentBytes / sizeInBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s, %d/%d bytes resident, %.1f%%)", name, category, residentBytes, sizeInBytes,
+                100 * getResidentRatio());
+    }
+}
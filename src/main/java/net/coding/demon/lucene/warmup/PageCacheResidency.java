@@ -0,0 +1,144 @@
+package net.coding.demon.lucene.warmup;
+
+import net.coding.demon.lucene.inspect.FileCategory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports which part of the index files is in the page cache, without reading them.
+ * <p>
+ * Files are mapped and their pages checked with {@link MappedByteBuffer#isLoaded()} (mincore on Linux), first
+ * by regions of 1MB, then 64KB, then by page for the regions that are only partly resident. Checking does not
+ * load anything. Since Java 13 slices of a mapping can be checked on their own; older runtimes map every
+ * region separately.
+ */
+public final class PageCacheResidency {
+    private static final int PAGE_SIZE = 4096;
+    private static final int REGION_SIZE = 1 << 20;
+    private static final int MAX_MAPPING_SIZE = 1 << 30;
+    private static final boolean SLICES_ARE_MAPPED = Runtime.version().feature() >= 13;
+
+    private PageCacheResidency() {
+    }
+
+    /**
+     * Residency of all the files of an index folder, by name.
+     */
+    public static Report report(Path indexLocation) throws IOException {
+        List<FileResidency> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(indexLocation)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file) && file.getFileName().toString().equals("write.lock") == false) {
+                    files.add(of(file));
+                }
+            }
+        }
+        files.sort(Comparator.comparing(FileResidency::getName));
+        return new Report(files);
+    }
+
+    public static FileResidency of(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long resident = 0;
+            for (long base = 0; base < size; base += MAX_MAPPING_SIZE) {
+                int length = (int) Math.min(MAX_MAPPING_SIZE, size - base);
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, base, length);
+                resident += residentBytes(channel, base, mapping, 0, length, REGION_SIZE);
+            }
+            return new FileResidency(file.getFileName().toString(), size, resident);
+        }
+    }
+
+    private static long residentBytes(FileChannel channel, long base, MappedByteBuffer mapping, int offset, int length,
+                                      int regionSize) throws IOException {
+        long resident = 0;
+        for (int pos = offset; pos < offset + length; pos += regionSize) {
+            int regionLength = Math.min(regionSize, offset + length - pos);
+            if (region(channel, base, mapping, pos, regionLength).isLoaded()) {
+                resident += regionLength;
+            } else if (regionSize > PAGE_SIZE) {
+                resident += residentBytes(channel, base, mapping, pos, regionLength, Math.max(PAGE_SIZE, regionSize / 16));
+            }
+        }
+        return resident;
+    }
+
+    private static MappedByteBuffer region(FileChannel channel, long base, MappedByteBuffer mapping, int pos, int length)
+            throws IOException {
+        if (SLICES_ARE_MAPPED) {
+            ByteBuffer duplicate = mapping.duplicate();
+            duplicate.position(pos).limit(pos + length);
+            return (MappedByteBuffer) duplicate.slice();
+        }
+        // before Java 13, slices lose the file descriptor and always report as loaded
+        return channel.map(FileChannel.MapMode.READ_ONLY, base + pos, length);
+    }
+
+    /**
+     * Residency of the files of an index folder.
+     */
+    public static final class Report {
+        private final List<FileResidency> files;
+
+        Report(List<FileResidency> files) {
+            this.files = Collections.unmodifiableList(files);
+        }
+
+        public List<FileResidency> getFiles() {
+            return files;
+        }
+
+        public FileResidency getFile(String name) {
+            for (FileResidency file : files) {
+                if (file.getName().equals(name)) {
+                    return file;
+                }
+            }
+            return null;
+        }
+
+        public long getTotalBytes() {
+            return files.stream().mapToLong(FileResidency::getSizeInBytes).sum();
+        }
+
+        public long getResidentBytes() {
+            return files.stream().mapToLong(FileResidency::getResidentBytes).sum();
+        }
+
+        /**
+         * Resident bytes per kind of data. Compound files are counted as {@link FileCategory#COMPOUND}.
+         */
+        public Map<FileCategory, Long> getResidentBytesByCategory() {
+            Map<FileCategory, Long> bytes = new EnumMap<>(FileCategory.class);
+            for (FileResidency file : files) {
+                bytes.merge(file.getCategory(), file.getResidentBytes(), Long::sum);
+            }
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d/%d bytes resident%n", getResidentBytes(), getTotalBytes()));
+            for (FileResidency file : files) {
+                sb.append(String.format("  %-32s %-14s %12d/%-12d %6.1f%%%n", file.getName(), file.getCategory(),
+                        file.getResidentBytes(), file.getSizeInBytes(), 100 * file.getResidentRatio()));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package net.coding.demon.lucene.warmup;
+
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.LockFactory;
+import org.apache.lucene.store.MMapDirectory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MMapDirectory that loads the pages of selected files when they are opened, so that the first queries on a
+ * new reader do not wait on page faults.
+ * <p>
+ * {@link MMapDirectory#setPreload} does the same for every file of the directory; here a {@link WarmupPolicy}
+ * picks the files by extension. Preloading reads every page of the file through the mapping that searches
+ * use, which also brings the pages into the page cache. Files inside a compound file are preloaded when the
+ * compound reader opens them, so the policy applies to them as well.
+ * <p>
+ * Files are preloaded in {@link #openInput}, i.e. while {@code DirectoryReader.open} or a reopen runs, before
+ * the new reader serves any query. Files opened for merging are left alone. A file counts against
+ * {@link WarmupPolicy#getMaxPreloadBytes()} once, however often it is opened, until it is deleted.
+ */
+public class PreloadingMMapDirectory extends MMapDirectory {
+    private static final int PAGE_SIZE = 4096;
+
+    private final WarmupPolicy policy;
+    // preloaded file name to its length
+    private final Map<String, Long> preloadedFiles = new ConcurrentHashMap<>();
+    private final AtomicLong preloadedBytes = new AtomicLong();
+    private final AtomicLong preloadNanos = new AtomicLong();
+    private final AtomicLong skippedFileCount = new AtomicLong();
+
+    public PreloadingMMapDirectory(Path path, WarmupPolicy policy) throws IOException {
+        super(path);
+        this.policy = policy;
+    }
+
+    public PreloadingMMapDirectory(Path path, LockFactory lockFactory, WarmupPolicy policy) throws IOException {
+        super(path, lockFactory);
+        this.policy = policy;
+    }
+
+    @Override
+    public IndexInput openInput(String name, IOContext context) throws IOException {
+        IndexInput input = super.openInput(name, context);
+        if (context.context == IOContext.Context.MERGE || context.readOnce) {
+            return input;
+        }
+        if (isCompoundData(name) && policy.shouldPreload(name) == false) {
+            return new CompoundDataInput(input);
+        }
+        preload(name, input);
+        return input;
+    }
+
+    private static boolean isCompoundData(String name) {
+        return name.endsWith(".cfs") || name.endsWith(".scf");
+    }
+
+    private void preload(String name, IndexInput input) throws IOException {
+        if (policy.shouldPreload(name) == false) {
+            return;
+        }
+        long length = input.length();
+        // a file opened again, by another reader, is paged in again but only counted once
+        boolean counted = preloadedFiles.containsKey(name);
+        if (counted == false && preloadedBytes.addAndGet(length) > policy.getMaxPreloadBytes()) {
+            preloadedBytes.addAndGet(-length);
+            skippedFileCount.incrementAndGet();
+            return;
+        }
+        long start = System.nanoTime();
+        // a clone shares the mapping of the input, reading one byte per page faults the page in
+        IndexInput clone = input.clone();
+        for (long pos = 0; pos < length; pos += PAGE_SIZE) {
+            clone.seek(pos);
+            clone.readByte();
+        }
+        if (length > 0) {
+            // the file may start in the middle of a page
+            clone.seek(length - 1);
+            clone.readByte();
+        }
+        preloadNanos.addAndGet(System.nanoTime() - start);
+        if (counted == false && preloadedFiles.putIfAbsent(name, length) != null) {
+            // another thread preloaded it at the same time and counted it already
+            preloadedBytes.addAndGet(-length);
+        }
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        super.deleteFile(name);
+        forget(name);
+        if (isCompoundData(name)) {
+            // the files inside a compound file go with it
+            String segment = IndexFileNames.parseSegmentName(name);
+            for (String file : preloadedFiles.keySet()) {
+                if (segment.equals(IndexFileNames.parseSegmentName(file))) {
+                    forget(file);
+                }
+            }
+        }
+    }
+
+    private void forget(String name) {
+        Long length = preloadedFiles.remove(name);
+        if (length != null) {
+            preloadedBytes.addAndGet(-length);
+        }
+    }
+
+    /**
+     * Names of the preloaded files, including files inside compound files.
+     */
+    public Set<String> getPreloadedFiles() {
+        return Collections.unmodifiableSet(preloadedFiles.keySet());
+    }
+
+    /**
+     * Bytes of the preloaded files that were not deleted since.
+     */
+    public long getPreloadedBytes() {
+        return preloadedBytes.get();
+    }
+
+    public long getPreloadNanos() {
+        return preloadNanos.get();
+    }
+
+    /**
+     * @return files that matched the policy but were not preloaded because of {@link WarmupPolicy#getMaxPreloadBytes()}
+     */
+    public long getSkippedFileCount() {
+        return skippedFileCount.get();
+    }
+
+    public WarmupPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public String toString() {
+        return "PreloadingMMapDirectory@" + getDirectory() + "{policy=" + policy
+                + ", preloadedFiles=" + preloadedFiles.size() + ", preloadedBytes=" + getPreloadedBytes()
+                + ", preloadMs=" + getPreloadNanos() / 1_000_000 + ", skippedFiles=" + getSkippedFileCount() + "}";
+    }
+
+    /**
+     * The data file of a compound file. The compound reader opens the files it holds as slices named after
+     * them, which is where they are preloaded.
+     */
+    private final class CompoundDataInput extends IndexInput {
+        private final IndexInput in;
+
+        CompoundDataInput(IndexInput in) {
+            super("CompoundDataInput(" + in + ")");
+            this.in = in;
+        }
+
+        @Override
+        public IndexInput slice(String sliceDescription, long offset, long length) throws IOException {
+            IndexInput slice = in.slice(sliceDescription, offset, length);
+            preload(sliceDescription, slice);
+            return slice;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public long getFilePointer() {
+            return in.getFilePointer();
+        }
+
+        @Override
+        public void seek(long pos) throws IOException {
+            in.seek(pos);
+        }
+
+        @Override
+        public long length() {
+            return in.length();
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            return in.readByte();
+        }
+
+        @Override
+        public void readBytes(byte[] b, int offset, int len) throws IOException {
+            in.readBytes(b, offset, len);
+        }
+
+        @Override
+        public IndexInput clone() {
+            return new CompoundDataInput(in.clone());
+        }
+    }
+}
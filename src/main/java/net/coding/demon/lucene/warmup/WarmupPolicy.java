@@ -0,0 +1,80 @@
+package net.coding.demon.lucene.warmup;
+
+import net.coding.demon.lucene.inspect.FileCategory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Which index files {@link PreloadingMMapDirectory} loads into memory when they are opened, by file extension,
+ * and how many bytes it may load in total.
+ * <p>
+ * Preloading pays off for files that are read at random on every query and are small compared to the
+ * memory of the node: doc values used for sorting and scoring, the terms index and dictionary, and points.
+ * Stored fields and postings of large fields are better left to the page cache.
+ */
+public class WarmupPolicy {
+    public static final String[] DOC_VALUES_EXTENSIONS = {"dvd", "dvm", "cdvd", "cdvm"};
+    public static final String[] TERMS_EXTENSIONS = {"tim", "tip", "tmd"};
+    public static final String[] POINTS_EXTENSIONS = {"kdd", "kdi", "kdm", "dim", "dii"};
+
+    private final Set<String> extensions = new HashSet<>();
+    private long maxPreloadBytes = Long.MAX_VALUE;
+
+    /**
+     * Doc values, terms dictionary and points, without a byte limit.
+     */
+    public static WarmupPolicy defaults() {
+        return new WarmupPolicy()
+                .preloadExtensions(DOC_VALUES_EXTENSIONS)
+                .preloadExtensions(TERMS_EXTENSIONS)
+                .preloadExtensions(POINTS_EXTENSIONS);
+    }
+
+    public WarmupPolicy preloadExtensions(String... extensions) {
+        for (String extension : extensions) {
+            this.extensions.add(extension.toLowerCase(Locale.ROOT));
+        }
+        return this;
+    }
+
+    /**
+     * Preloads every file of the category, e.g. {@link FileCategory#POSTINGS} for the terms dictionary
+     * along with the postings lists.
+     */
+    public WarmupPolicy preload(FileCategory category) {
+        extensions.addAll(category.getExtensions());
+        return this;
+    }
+
+    /**
+     * Files are not preloaded anymore once this many bytes were preloaded by the directory.
+     */
+    public WarmupPolicy setMaxPreloadBytes(long maxPreloadBytes) {
+        if (maxPreloadBytes < 0) {
+            throw new IllegalArgumentException("maxPreloadBytes must be >= 0, got " + maxPreloadBytes);
+        }
+        this.maxPreloadBytes = maxPreloadBytes;
+        return this;
+    }
+
+    public long getMaxPreloadBytes() {
+        return maxPreloadBytes;
+    }
+
+    public Set<String> getExtensions() {
+        return Collections.unmodifiableSet(extensions);
+    }
+
+    public boolean shouldPreload(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot != -1 && extensions.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public String toString() {
+        return "WarmupPolicy{extensions=" + extensions + ", maxPreloadBytes=" + maxPreloadBytes + "}";
+    }
+}
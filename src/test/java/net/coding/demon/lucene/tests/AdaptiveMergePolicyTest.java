@@ -0,0 +1,237 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.merge.AdaptiveMergePolicy;
+import net.coding.demon.lucene.merge.AdaptiveMergeScheduler;
+import net.coding.demon.lucene.merge.IdleMergeTrigger;
+import net.coding.demon.lucene.merge.SearchLoadMonitor;
+import net.coding.demon.lucene.telemetry.IndexTelemetry;
+import net.coding.demon.lucene.telemetry.SegmentInspector;
+import net.coding.demon.lucene.telemetry.SegmentsSnapshot;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveMergePolicyTest {
+    static final long FAST_QUERY_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    static final long SLOW_QUERY_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    IndexWriter indexWriter;
+    Path indexLocation;
+    IndexTelemetry indexTelemetry;
+    SearchLoadMonitor searchLoadMonitor;
+    AdaptiveMergePolicy mergePolicy;
+    AdaptiveMergeScheduler mergeScheduler;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        // busy above 5 ms average latency, idle after 300 ms without queries
+        searchLoadMonitor = new SearchLoadMonitor(5, 300);
+        mergePolicy = new AdaptiveMergePolicy(searchLoadMonitor);
+        mergePolicy.setSegmentsPerTier(3);
+        indexTelemetry = new IndexTelemetry();
+        mergeScheduler = new AdaptiveMergeScheduler(indexTelemetry, searchLoadMonitor);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        iwc.setMaxBufferedDocs(100);
+        iwc.setMergePolicy(mergePolicy);
+        indexTelemetry.install(iwc);
+        iwc.setMergeScheduler(mergeScheduler);
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+    }
+
+    @Test
+    public void testYoungSegmentsMergedOnceIdle() throws Exception {
+        mergePolicy.setMinSegmentAgeMillis(TimeUnit.MINUTES.toMillis(1));
+        for (int i = 0; i < 1000; i++) {
+            searchLoadMonitor.recordQuery(FAST_QUERY_NANOS);
+            indexDoc(i);
+        }
+        searchLoadMonitor.recordQuery(FAST_QUERY_NANOS);
+        indexWriter.commit();
+        assertEquals(SearchLoadMonitor.LoadState.NORMAL, searchLoadMonitor.getState());
+        assertEquals(0, indexTelemetry.getMerges());
+        assertEquals(10, SegmentInspector.inspectLatestCommit(indexWriter.getDirectory()).getSegmentCount());
+
+        // no more queries, the trigger merges the young segments as soon as the searchers are idle
+        try (IdleMergeTrigger trigger = new IdleMergeTrigger(indexWriter, searchLoadMonitor, 50)) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (indexTelemetry.getMerges() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            System.out.println("trigger count : " + trigger.getTriggerCount());
+            assertNull(trigger.getLastFailure());
+        }
+        mergeScheduler.sync();
+        indexWriter.commit();
+
+        SegmentsSnapshot snapshot = SegmentInspector.inspectLatestCommit(indexWriter.getDirectory());
+        System.out.println("index telemetry : " + indexTelemetry);
+        System.out.println("segments : " + snapshot);
+        assertEquals(SearchLoadMonitor.LoadState.IDLE, searchLoadMonitor.getState());
+        assertTrue(indexTelemetry.getMerges() > 0);
+        assertTrue(snapshot.getSegmentCount() < 10);
+        assertEquals(1000, snapshot.getMaxDoc());
+    }
+
+    @Test
+    public void testOldSegmentsMergedAroundYoungOnes() throws Exception {
+        mergePolicy.setMinSegmentAgeMillis(TimeUnit.MINUTES.toMillis(1));
+        for (int i = 0; i < 600; i++) {
+            searchLoadMonitor.recordQuery(FAST_QUERY_NANOS);
+            indexDoc(i);
+        }
+        searchLoadMonitor.recordQuery(FAST_QUERY_NANOS);
+        indexWriter.commit();
+        assertEquals(0, indexTelemetry.getMerges());
+
+        // the first six segments are old by now, the next two are still young
+        Thread.sleep(200);
+        mergePolicy.setMinSegmentAgeMillis(150);
+        for (int i = 600; i < 800; i++) {
+            searchLoadMonitor.recordQuery(FAST_QUERY_NANOS);
+            indexDoc(i);
+        }
+        searchLoadMonitor.recordQuery(FAST_QUERY_NANOS);
+        indexWriter.commit();
+        assertEquals(SearchLoadMonitor.LoadState.NORMAL, searchLoadMonitor.getState());
+        mergeScheduler.sync();
+        indexWriter.commit();
+
+        SegmentsSnapshot snapshot = SegmentInspector.inspectLatestCommit(indexWriter.getDirectory());
+        System.out.println("segments : " + snapshot);
+        assertTrue(indexTelemetry.getMerges() > 0);
+        // the young segments were left alone
+        long flushed = snapshot.getSegments().stream()
+                .filter(segment -> segment.getSource().equals("flush"))
+                .count();
+        assertTrue(flushed >= 2, "flushed segments " + flushed);
+        assertEquals(800, snapshot.getMaxDoc());
+    }
+
+    @Test
+    public void testBigMergesPostponedWhileBusy() throws IOException {
+        mergePolicy.setMinSegmentAgeMillis(0);
+        mergePolicy.setMaxBusyMergeMB(0.001);
+        for (int i = 0; i < 1000; i++) {
+            searchLoadMonitor.recordQuery(SLOW_QUERY_NANOS);
+            indexDoc(i);
+        }
+        indexWriter.commit();
+        assertEquals(SearchLoadMonitor.LoadState.BUSY, searchLoadMonitor.getState());
+        assertEquals(AdaptiveMergeScheduler.DEFAULT_BUSY_MB_PER_SEC, mergeScheduler.getMergeMBPerSec());
+        assertEquals(0, indexTelemetry.getMerges());
+
+        // back to fast queries, merges of any size are allowed again
+        for (int i = 0; i < 50; i++) {
+            searchLoadMonitor.recordQuery(FAST_QUERY_NANOS);
+        }
+        assertEquals(SearchLoadMonitor.LoadState.NORMAL, searchLoadMonitor.getState());
+        assertEquals(Double.POSITIVE_INFINITY, mergeScheduler.getMergeMBPerSec());
+        indexWriter.maybeMerge();
+        mergeScheduler.sync();
+
+        System.out.println("index telemetry : " + indexTelemetry);
+        assertTrue(indexTelemetry.getMerges() > 0);
+        assertTrue(indexTelemetry.getWriteAmplification() > 1);
+    }
+
+    @Test
+    public void testForceMergeWhileBusy() throws Exception {
+        mergePolicy.setMinSegmentAgeMillis(0);
+        mergePolicy.setMaxBusyMergeMB(0.001);
+        final double maxMergedSegmentMB = mergePolicy.getMaxMergedSegmentMB();
+        for (int i = 0; i < 500; i++) {
+            searchLoadMonitor.recordQuery(SLOW_QUERY_NANOS);
+            indexDoc(i);
+        }
+        for (int i = 0; i < 50; i++) {
+            indexWriter.deleteDocuments(new Term("titleId", Integer.toString(i)));
+        }
+        indexWriter.commit();
+        assertEquals(SearchLoadMonitor.LoadState.BUSY, searchLoadMonitor.getState());
+
+        // flushes keep running the busy selection while the forced merges are planned
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> indexing = executor.submit(() -> {
+            for (int i = 500; i < 1500; i++) {
+                searchLoadMonitor.recordQuery(SLOW_QUERY_NANOS);
+                indexDoc(i);
+                assertEquals(maxMergedSegmentMB, mergePolicy.getMaxMergedSegmentMB());
+            }
+            return null;
+        });
+        indexWriter.forceMergeDeletes();
+        indexWriter.forceMerge(1);
+        indexing.get();
+        executor.shutdown();
+
+        assertEquals(SearchLoadMonitor.LoadState.BUSY, searchLoadMonitor.getState());
+        indexWriter.forceMerge(1);
+        indexWriter.commit();
+        SegmentsSnapshot snapshot = SegmentInspector.inspectLatestCommit(indexWriter.getDirectory());
+        System.out.println("segments : " + snapshot);
+        assertEquals(maxMergedSegmentMB, mergePolicy.getMaxMergedSegmentMB());
+        assertEquals(1, snapshot.getSegmentCount());
+        assertEquals(1450, snapshot.getMaxDoc());
+        assertEquals(0, snapshot.getDelCount());
+    }
+
+    @Test
+    public void testDeletesReclaimedWhileIdle() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            indexDoc(i);
+        }
+        indexWriter.commit();
+        // 25% deletes stays below TieredMergePolicy's regular deletesPctAllowed
+        for (int i = 0; i < 25; i++) {
+            indexWriter.deleteDocuments(new Term("titleId", Integer.toString(i)));
+        }
+        assertEquals(SearchLoadMonitor.LoadState.IDLE, searchLoadMonitor.getState());
+        indexWriter.commit();
+        mergeScheduler.sync();
+        indexWriter.commit();
+
+        SegmentsSnapshot snapshot = SegmentInspector.inspectLatestCommit(indexWriter.getDirectory());
+        System.out.println("segments : " + snapshot);
+        assertEquals(1, indexTelemetry.getMerges());
+        assertEquals(1, snapshot.getSegmentCount());
+        assertEquals(75, snapshot.getMaxDoc());
+        assertEquals(0, snapshot.getDelCount());
+        assertEquals("merge", snapshot.getLargestSegment().getSource());
+    }
+
+    private void indexDoc(int i) throws IOException {
+        Document doc = new Document();
+        doc.add(new StringField("titleId", Integer.toString(i), Field.Store.YES));
+        doc.add(new TextField("title", "new movie part " + i, Field.Store.YES));
+        indexWriter.addDocument(doc);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexWriter.close();
+    }
+}
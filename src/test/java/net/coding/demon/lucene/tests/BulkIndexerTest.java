@@ -0,0 +1,122 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.ingest.BulkIndexer;
+import net.coding.demon.lucene.ingest.BulkIndexerConfig;
+import net.coding.demon.lucene.ingest.IngestMetrics;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BulkIndexerTest {
+    public static final String DOC_SCORE_FIELD = "custom_score";
+    public static final String TITLE_FIELD = "title";
+    IndexWriter indexWriter;
+    Path indexLocation;
+    BulkIndexerConfig bulkIndexerConfig;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        // small buffers so that the test actually flushes and merges
+        bulkIndexerConfig = new BulkIndexerConfig()
+                .setNumThreads(4)
+                .setBatchSize(100)
+                .setMaxPendingBatches(4)
+                .setRAMBufferSizeMB(1);
+        IndexWriterConfig iwc = bulkIndexerConfig.applyTo(new IndexWriterConfig());
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+    }
+
+    @Test
+    public void testBulkIndexing() throws IOException {
+        final int numDocs = 20_000;
+        try (BulkIndexer<Integer> bulkIndexer = new BulkIndexer<>(indexWriter, BulkIndexerTest::toDocument, bulkIndexerConfig)) {
+            bulkIndexer.addAll(IntStream.range(0, numDocs).boxed());
+        }
+        indexWriter.commit();
+
+        final IngestMetrics metrics = bulkIndexerConfig.getMetrics();
+        System.out.println("metrics : " + metrics);
+        assertEquals(numDocs, metrics.getDocsIndexed());
+        assertEquals(numDocs / 100, metrics.getBatchesIndexed());
+        assertEquals(0, metrics.getFailedBatches());
+
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            assertEquals(numDocs, indexReader.numDocs());
+            // more than one segment, the 1 MB buffer was flushed several times
+            System.out.println("segments : " + indexReader.leaves().size());
+            assertTrue(indexReader.leaves().size() > 1);
+            IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+            assertEquals(1, indexSearcher.count(new TermQuery(new Term("titleId", "12345"))));
+        }
+    }
+
+    @Test
+    public void testFlushIndexesPartialBatch() throws IOException {
+        try (BulkIndexer<Integer> bulkIndexer = new BulkIndexer<>(indexWriter, BulkIndexerTest::toDocument, bulkIndexerConfig)) {
+            for (int i = 0; i < 42; i++) {
+                bulkIndexer.add(i);
+            }
+            bulkIndexer.flush();
+            // flush hands the records to the IndexWriter, a NRT reader sees them without a commit
+            try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+                assertEquals(42, indexReader.numDocs());
+            }
+        }
+    }
+
+    @Test
+    public void testWorkerFailureIsRethrown() throws IOException {
+        final AtomicInteger built = new AtomicInteger();
+        BulkIndexer<Integer> bulkIndexer = new BulkIndexer<>(indexWriter, i -> {
+            if (built.incrementAndGet() == 150) {
+                throw new IllegalStateException("bad record " + i);
+            }
+            return toDocument(i);
+        }, bulkIndexerConfig);
+
+        assertThrows(IllegalStateException.class, () -> {
+            bulkIndexer.addAll(IntStream.range(0, 10_000).boxed());
+            bulkIndexer.flush();
+        });
+        assertEquals(1, bulkIndexerConfig.getMetrics().getFailedBatches());
+        assertThrows(IllegalStateException.class, bulkIndexer::close);
+    }
+
+    private static Document toDocument(Integer i) {
+        Document doc = new Document();
+        doc.add(new StringField("titleId", Integer.toString(i), Field.Store.YES));
+        doc.add(new TextField(TITLE_FIELD, "new movie part " + i, Field.Store.YES));
+        doc.add(new NumericDocValuesField(DOC_SCORE_FIELD, i));
+        return doc;
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexWriter.close();
+    }
+}
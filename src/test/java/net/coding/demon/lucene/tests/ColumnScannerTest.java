@@ -0,0 +1,131 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.docvalues.ColumnScanner;
+import net.coding.demon.lucene.docvalues.ColumnStats;
+import net.coding.demon.lucene.docvalues.HistogramSpec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColumnScannerTest {
+    public static final String DOC_SCORE_FIELD = "custom_score";
+    public static final String TAGS_FIELD = "tags";
+    public static final String TITLE_FIELD = "title";
+    IndexWriter indexWriter;
+    Path indexLocation;
+    ForkJoinPool pool;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+        pool = new ForkJoinPool(4);
+
+        // three commits, so the reader has several leaves
+        for (int i = 0; i < 100; i++) {
+            indexDoc(i, i % 2 == 0 ? "even movie" : "odd movie");
+            if (i % 40 == 39) {
+                indexWriter.commit();
+            }
+        }
+        indexWriter.deleteDocuments(new Term("titleId", "99"));
+        indexWriter.commit();
+    }
+
+    @Test
+    public void testScanAllLiveDocs() throws IOException {
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            assertTrue(indexReader.leaves().size() > 1);
+            final ColumnStats stats = new ColumnScanner(pool).scan(indexReader, DOC_SCORE_FIELD, new HistogramSpec(0, 25, 3));
+            System.out.println("stats : " + stats);
+
+            // 0..98, doc 99 is deleted
+            assertEquals(99, stats.getDocCount());
+            assertEquals(99, stats.getValueCount());
+            assertEquals(98 * 99 / 2, stats.getSum());
+            assertEquals(0, stats.getMin());
+            assertEquals(98, stats.getMax());
+            assertArrayEquals(new long[]{25, 25, 25}, stats.getBuckets());
+            assertEquals(0, stats.getUnderflow());
+            assertEquals(24, stats.getOverflow());
+        }
+    }
+
+    @Test
+    public void testScanQueryMatches() throws IOException {
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            final IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+            final ColumnStats stats = new ColumnScanner(pool).scan(indexSearcher,
+                    new TermQuery(new Term(TITLE_FIELD, "odd")), DOC_SCORE_FIELD, null);
+            System.out.println("stats : " + stats);
+
+            // 1, 3, ..., 97, doc 99 is deleted
+            assertEquals(49, stats.getDocCount());
+            assertEquals(49 * 49, stats.getSum());
+            assertEquals(1, stats.getMin());
+            assertEquals(97, stats.getMax());
+            assertEquals(null, stats.getBuckets());
+        }
+    }
+
+    @Test
+    public void testScanSortedNumeric() throws IOException {
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            final ColumnStats stats = new ColumnScanner(pool).scan(indexReader, TAGS_FIELD, null);
+            // every doc has the values i and -i
+            assertEquals(99, stats.getDocCount());
+            assertEquals(198, stats.getValueCount());
+            assertEquals(0, stats.getSum());
+            assertEquals(-98, stats.getMin());
+            assertEquals(98, stats.getMax());
+
+            // a field without doc values in any segment is empty
+            final ColumnStats missing = new ColumnScanner(pool).scan(indexReader, "missing", null);
+            assertEquals(0, missing.getDocCount());
+
+            assertThrows(IllegalArgumentException.class, () -> new ColumnScanner(pool).scan(indexReader, TITLE_FIELD, null));
+        }
+    }
+
+    private void indexDoc(int i, String title) throws IOException {
+        Document doc = new Document();
+        doc.add(new StringField("titleId", Integer.toString(i), Field.Store.YES));
+        doc.add(new TextField(TITLE_FIELD, title, Field.Store.YES));
+        doc.add(new NumericDocValuesField(DOC_SCORE_FIELD, i));
+        doc.add(new SortedNumericDocValuesField(TAGS_FIELD, i));
+        doc.add(new SortedNumericDocValuesField(TAGS_FIELD, -i));
+        indexWriter.addDocument(doc);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        indexWriter.close();
+    }
+}
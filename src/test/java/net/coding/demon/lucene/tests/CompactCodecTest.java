@@ -0,0 +1,207 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.codec.CompactCodec;
+import net.coding.demon.lucene.codec.CompactDocValuesFormat;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.CheckIndex;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactCodecTest {
+    static final int NUM_DOCS = 1000;
+
+    IndexWriter indexWriter;
+    Path indexLocation;
+    MMapDirectory mMapDirectory;
+
+    long[] noOfCharacters = new long[NUM_DOCS];
+    long[] noOfLines = new long[NUM_DOCS];
+    String[] noOfWords = new String[NUM_DOCS];
+    String[] titleIds = new String[NUM_DOCS];
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        // titleId has more distinct values than the dictionary takes, it falls back to the default format
+        iwc.setCodec(new CompactCodec(new HashSet<>(Arrays.asList("noOfCharacters", "noOfLines", "noOfWords", "titleId")),
+                new CompactDocValuesFormat(64)));
+        iwc.setMaxBufferedDocs(300);
+        // keep the per format files visible
+        iwc.setUseCompoundFile(false);
+        iwc.getMergePolicy().setNoCFSRatio(0);
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        indexDocs();
+        indexWriter.commit();
+        System.out.println("Files created in the index folder : " + Arrays.toString(indexLocation.toFile().list()));
+        assertTrue(Arrays.stream(indexLocation.toFile().list()).anyMatch(name -> name.endsWith(".cdvd")));
+        verify();
+
+        // merging goes through the same consumer
+        indexWriter.forceMerge(1);
+        indexWriter.commit();
+        verify();
+
+        // CheckIndex needs the write lock
+        indexWriter.close();
+        CheckIndex.Status status;
+        try (CheckIndex checkIndex = new CheckIndex(mMapDirectory)) {
+            status = checkIndex.checkIndex();
+        }
+        assertTrue(status.clean);
+        assertEquals(CompactCodec.NAME, status.segmentInfos.get(0).codec.getName());
+    }
+
+    @Test
+    public void testLargeBinaryValue() throws IOException {
+        // more than a BytesRefHash block, accepted by the default format
+        byte[] large = new byte[40_000];
+        new Random(42).nextBytes(large);
+        Document doc = new Document();
+        doc.add(new StoredField("id", "0"));
+        doc.add(new BinaryDocValuesField("noOfWords", new BytesRef(large)));
+        indexWriter.addDocument(doc);
+        doc = new Document();
+        doc.add(new StoredField("id", "1"));
+        doc.add(new BinaryDocValuesField("noOfWords", new BytesRef("small")));
+        indexWriter.addDocument(doc);
+        indexWriter.commit();
+
+        try (DirectoryReader indexReader = DirectoryReader.open(mMapDirectory)) {
+            BinaryDocValues values = DocValues.getBinary(indexReader.leaves().get(0).reader(), "noOfWords");
+            assertTrue(values.advanceExact(0));
+            assertEquals(new BytesRef(large), values.binaryValue());
+            assertTrue(values.advanceExact(1));
+            assertEquals(new BytesRef("small"), values.binaryValue());
+        }
+    }
+
+    @Test
+    public void testAdvanceOnSparseField() throws IOException {
+        indexDocs();
+        indexWriter.forceMerge(1);
+        indexWriter.commit();
+
+        try (DirectoryReader indexReader = DirectoryReader.open(mMapDirectory)) {
+            LeafReader leafReader = indexReader.leaves().get(0).reader();
+            NumericDocValues lines = leafReader.getNumericDocValues("noOfLines");
+            int expectedCount = 0;
+            for (int doc = 0; doc < leafReader.maxDoc(); doc++) {
+                int id = Integer.parseInt(leafReader.document(doc).get("id"));
+                if (noOfLines[id] != -1) {
+                    expectedCount++;
+                }
+                // advanceExact agrees with the presence of the value
+                NumericDocValues exact = leafReader.getNumericDocValues("noOfLines");
+                assertEquals(noOfLines[id] != -1, exact.advanceExact(doc));
+            }
+            int count = 0;
+            for (int doc = lines.advance(100); doc != DocIdSetIterator.NO_MORE_DOCS; doc = lines.nextDoc()) {
+                count++;
+            }
+            NumericDocValues head = leafReader.getNumericDocValues("noOfLines");
+            int skipped = 0;
+            for (int doc = head.nextDoc(); doc < 100; doc = head.nextDoc()) {
+                skipped++;
+            }
+            assertEquals(expectedCount, count + skipped);
+            assertEquals(DocIdSetIterator.NO_MORE_DOCS, lines.advance(leafReader.maxDoc()));
+        }
+    }
+
+    private void verify() throws IOException {
+        try (DirectoryReader indexReader = DirectoryReader.open(mMapDirectory)) {
+            int docs = 0;
+            for (LeafReaderContext context : indexReader.leaves()) {
+                LeafReader leafReader = context.reader();
+                NumericDocValues characters = DocValues.getNumeric(leafReader, "noOfCharacters");
+                NumericDocValues lines = DocValues.getNumeric(leafReader, "noOfLines");
+                BinaryDocValues words = DocValues.getBinary(leafReader, "noOfWords");
+                BinaryDocValues titleId = DocValues.getBinary(leafReader, "titleId");
+                SortedDocValues category = DocValues.getSorted(leafReader, "category");
+                for (int doc = 0; doc < leafReader.maxDoc(); doc++) {
+                    int id = Integer.parseInt(leafReader.document(doc).get("id"));
+                    assertEquals(doc, characters.nextDoc());
+                    assertEquals(noOfCharacters[id], characters.longValue());
+                    if (noOfLines[id] == -1) {
+                        assertFalse(lines.advanceExact(doc));
+                    } else {
+                        assertTrue(lines.advanceExact(doc));
+                        assertEquals(noOfLines[id], lines.longValue());
+                    }
+                    assertTrue(words.advanceExact(doc));
+                    assertEquals(noOfWords[id], words.binaryValue().utf8ToString());
+                    assertTrue(titleId.advanceExact(doc));
+                    assertEquals(titleIds[id], titleId.binaryValue().utf8ToString());
+                    assertTrue(category.advanceExact(doc));
+                    assertEquals("category" + (id % 5), category.binaryValue().utf8ToString());
+                    docs++;
+                }
+                assertEquals(DocIdSetIterator.NO_MORE_DOCS, characters.nextDoc());
+            }
+            assertEquals(NUM_DOCS, docs);
+        }
+    }
+
+    private void indexDocs() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < NUM_DOCS; i++) {
+            noOfCharacters[i] = 200 + random.nextInt(800);
+            // every third doc has no line count
+            noOfLines[i] = i % 3 == 0 ? -1 : random.nextInt(40);
+            noOfWords[i] = Integer.toString(10 + random.nextInt(30));
+            titleIds[i] = "title-" + i;
+
+            Document doc = new Document();
+            doc.add(new StoredField("id", i));
+            doc.add(new NumericDocValuesField("noOfCharacters", noOfCharacters[i]));
+            if (noOfLines[i] != -1) {
+                doc.add(new NumericDocValuesField("noOfLines", noOfLines[i]));
+            }
+            doc.add(new BinaryDocValuesField("noOfWords", new BytesRef(noOfWords[i])));
+            doc.add(new BinaryDocValuesField("titleId", new BytesRef(titleIds[i])));
+            doc.add(new SortedDocValuesField("category", new BytesRef("category" + (i % 5))));
+            indexWriter.addDocument(doc);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexWriter.close();
+    }
+}
@@ -1,5 +1,7 @@
 package net.coding.demon.lucene.tests;
 
+import net.coding.demon.lucene.fetch.FetchedHit;
+import net.coding.demon.lucene.fetch.HitFetcher;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.NumericDocValuesField;
@@ -30,6 +32,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
 
 public class DocValuesTest {
     public static final String DOC_SCORE_FIELD = "custom_score";
@@ -118,8 +121,10 @@ public class DocValuesTest {
 
     private void printDocs(IndexSearcher indexSearcher, TopDocs topDocsSorted) throws IOException {
         System.out.println("Printing topDocs : ");
-        for (ScoreDoc scoreDoc : topDocsSorted.scoreDocs) {
-            System.out.println(indexSearcher.doc(scoreDoc.doc));
+        // loads the title and the score of all hits in one pass, instead of every stored field hit by hit
+        HitFetcher hitFetcher = new HitFetcher(Collections.singleton(TITLE_FIELD), Collections.singleton(DOC_SCORE_FIELD));
+        for (FetchedHit hit : hitFetcher.fetch(indexSearcher.getIndexReader(), topDocsSorted.scoreDocs)) {
+            System.out.println(hit.getDocument());
         }
     }
 
@@ -0,0 +1,278 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.wal.DurableIndexWriter;
+import net.coding.demon.lucene.wal.RecordCodec;
+import net.coding.demon.lucene.wal.WalConfig;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DurableIndexWriterTest {
+    IndexWriter indexWriter;
+    Path indexLocation;
+    Path logLocation;
+    DurableIndexWriter<String> durableIndexWriter;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        logLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+    }
+
+    // records are "<titleId>:<title>"
+    private static Document toDocument(String record) {
+        int separator = record.indexOf(':');
+        Document doc = new Document();
+        doc.add(new StringField("titleId", record.substring(0, separator), Field.Store.YES));
+        doc.add(new TextField("title", record.substring(separator + 1), Field.Store.YES));
+        return doc;
+    }
+
+    private DurableIndexWriter<String> open(IndexWriter writer, WalConfig config) throws IOException {
+        return new DurableIndexWriter<>(writer, DurableIndexWriterTest::toDocument, RecordCodec.utf8(), config);
+    }
+
+    @Test
+    public void testAcknowledgedWritesSurviveCrash() throws Exception {
+        // no periodic commit, only the log makes the writes durable
+        durableIndexWriter = open(indexWriter, new WalConfig(logLocation).setCommitInterval(0, TimeUnit.SECONDS));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 250; i++) {
+                    String id = Integer.toString(thread * 250 + i);
+                    durableIndexWriter.add(id + ":lucene movie " + id);
+                    if (i % 10 == 0) {
+                        durableIndexWriter.update(id, id + ":updated movie " + id);
+                    }
+                    if (i % 25 == 1) {
+                        durableIndexWriter.delete(id);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        System.out.println("durable index writer : " + durableIndexWriter);
+        assertEquals(1, durableIndexWriter.getCheckpoints());
+
+        Path[] crashed = crash();
+        try (MMapDirectory directory = new MMapDirectory(crashed[0]);
+             IndexWriter recoveredWriter = new IndexWriter(directory, new IndexWriterConfig())) {
+            // nothing was committed after the writes, the fresh writer starts from an empty index
+            assertEquals(0, recoveredWriter.getDocStats().numDocs);
+            try (DurableIndexWriter<String> recovered = open(recoveredWriter,
+                    new WalConfig(crashed[1]).setCommitInterval(0, TimeUnit.SECONDS))) {
+                System.out.println("recovered : " + recovered);
+                assertEquals(1000 + 100 + 40, recovered.getRecoveredEntries());
+            }
+            try (DirectoryReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                assertEquals(1000 - 40, indexReader.numDocs());
+                assertEquals(100, indexSearcher.count(new TermQuery(new Term("title", "updated"))));
+                assertEquals(0, indexSearcher.count(new TermQuery(new Term("titleId", "1"))));
+                assertEquals(1, indexSearcher.count(new TermQuery(new Term("titleId", "2"))));
+            }
+            // the commit taken after recovery made the replayed log obsolete
+            assertEquals(1, logFiles(crashed[1]).size());
+        }
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        final int numThreads = 8;
+        final int docsPerThread = 200;
+        durableIndexWriter = open(indexWriter, new WalConfig(logLocation)
+                .setCommitInterval(0, TimeUnit.SECONDS)
+                .setMaxSyncDelay(1, TimeUnit.MILLISECONDS));
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < docsPerThread; i++) {
+                    String id = thread + "-" + i;
+                    durableIndexWriter.add(id + ":group commit " + id);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        System.out.println("durable index writer : " + durableIndexWriter);
+        assertEquals(numThreads * docsPerThread, durableIndexWriter.getAppendedEntries());
+        // every acknowledged write was fsynced, but in batches
+        assertTrue(durableIndexWriter.getLogSyncs() < durableIndexWriter.getAppendedEntries(),
+                "syncs " + durableIndexWriter.getLogSyncs());
+        assertEquals(numThreads * docsPerThread, indexWriter.getDocStats().numDocs);
+    }
+
+    @Test
+    public void testCheckpointTruncatesLog() throws Exception {
+        durableIndexWriter = open(indexWriter, new WalConfig(logLocation).setCommitInterval(0, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            durableIndexWriter.add(i + ":before checkpoint");
+        }
+        assertTrue(Files.size(logFiles(logLocation).get(0)) > 0);
+        durableIndexWriter.checkpoint();
+        List<Path> logFiles = logFiles(logLocation);
+        assertEquals(1, logFiles.size());
+        assertEquals(0, Files.size(logFiles.get(0)));
+        for (int i = 100; i < 110; i++) {
+            durableIndexWriter.add(i + ":after checkpoint");
+        }
+
+        Path[] crashed = crash();
+        try (MMapDirectory directory = new MMapDirectory(crashed[0]);
+             IndexWriter recoveredWriter = new IndexWriter(directory, new IndexWriterConfig())) {
+            assertEquals(100, recoveredWriter.getDocStats().numDocs);
+            try (DurableIndexWriter<String> recovered = open(recoveredWriter,
+                    new WalConfig(crashed[1]).setCommitInterval(0, TimeUnit.SECONDS))) {
+                // only what came after the commit is replayed
+                assertEquals(10, recovered.getRecoveredEntries());
+            }
+            assertEquals(110, recoveredWriter.getDocStats().numDocs);
+        }
+    }
+
+    @Test
+    public void testPeriodicCommit() throws Exception {
+        durableIndexWriter = open(indexWriter, new WalConfig(logLocation).setCommitInterval(50, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 10; i++) {
+            durableIndexWriter.add(i + ":periodic");
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (durableIndexWriter.getCheckpoints() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        System.out.println("durable index writer : " + durableIndexWriter);
+        assertTrue(durableIndexWriter.getCheckpoints() >= 2);
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter.getDirectory())) {
+            assertEquals(10, indexReader.numDocs());
+        }
+    }
+
+    @Test
+    public void testTornWriteIsIgnored() throws Exception {
+        durableIndexWriter = open(indexWriter, new WalConfig(logLocation).setCommitInterval(0, TimeUnit.SECONDS));
+        for (int i = 0; i < 20; i++) {
+            durableIndexWriter.add(i + ":torn write");
+        }
+        Path[] crashed = crash();
+        // the crash happened while the header and half of an entry were written
+        Path logFile = logFiles(crashed[1]).get(0);
+        long completeLength = Files.size(logFile);
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(12).putInt(100).putInt(42).putInt(7).flip());
+        }
+        try (MMapDirectory directory = new MMapDirectory(crashed[0]);
+             IndexWriter recoveredWriter = new IndexWriter(directory, new IndexWriterConfig())) {
+            try (DurableIndexWriter<String> recovered = open(recoveredWriter,
+                    new WalConfig(crashed[1]).setCommitInterval(0, TimeUnit.SECONDS))) {
+                assertEquals(20, recovered.getRecoveredEntries());
+                assertEquals(20, recoveredWriter.getDocStats().numDocs);
+                recovered.add("20:after recovery");
+            }
+            assertEquals(21, recoveredWriter.getDocStats().numDocs);
+        }
+        System.out.println("log file of " + completeLength + " bytes recovered from a torn write");
+    }
+
+    @Test
+    public void testRejectedDocumentIsNotLogged() throws Exception {
+        durableIndexWriter = open(indexWriter, new WalConfig(logLocation).setCommitInterval(0, TimeUnit.SECONDS));
+        durableIndexWriter.add("1:before");
+        // a titleId over the 32766 bytes limit of a term is rejected by IndexWriter
+        String immenseId = "x".repeat(40_000);
+        assertThrows(IllegalArgumentException.class, () -> durableIndexWriter.add(immenseId + ":immense"));
+        durableIndexWriter.add("2:after");
+        assertEquals(2, durableIndexWriter.getAppendedEntries());
+
+        Path[] crashed = crash();
+        try (MMapDirectory directory = new MMapDirectory(crashed[0]);
+             IndexWriter recoveredWriter = new IndexWriter(directory, new IndexWriterConfig())) {
+            // the index can be reopened, with the accepted documents only
+            try (DurableIndexWriter<String> recovered = open(recoveredWriter,
+                    new WalConfig(crashed[1]).setCommitInterval(0, TimeUnit.SECONDS))) {
+                assertEquals(2, recovered.getRecoveredEntries());
+            }
+            assertEquals(2, recoveredWriter.getDocStats().numDocs);
+        }
+    }
+
+    /**
+     * Copies the index and the log as they are on disk, without committing or closing anything, like a process
+     * killed at this point would leave them.
+     */
+    private Path[] crash() throws IOException {
+        Path index = Files.createTempDirectory(null);
+        Path log = Files.createTempDirectory(null);
+        copyFiles(indexLocation, index);
+        copyFiles(logLocation, log);
+        return new Path[]{index, log};
+    }
+
+    private static void copyFiles(Path from, Path to) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(from)) {
+            for (Path file : files) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+    }
+
+    private static List<Path> logFiles(Path logDirectory) throws IOException {
+        List<Path> logFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(logDirectory, "*.log")) {
+            files.forEach(logFiles::add);
+        }
+        return logFiles;
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (durableIndexWriter != null) {
+            durableIndexWriter.close();
+        }
+        indexWriter.close();
+    }
+}
@@ -0,0 +1,121 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.fetch.FetchedHit;
+import net.coding.demon.lucene.fetch.HitFetcher;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HitFetcherTest {
+    public static final String DOC_SCORE_FIELD = "custom_score";
+    IndexWriter indexWriter;
+    Path indexLocation;
+    DirectoryReader indexReader;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        // a few segments, so hits are spread over several leaves
+        iwc.setMaxBufferedDocs(1000);
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("titleId", Integer.toString(i), Field.Store.YES));
+            doc.add(new TextField("title", "new movie part " + i, Field.Store.YES));
+            doc.add(new StoredField("description", "a long description that is never needed on the result page " + i));
+            doc.add(new NumericDocValuesField(DOC_SCORE_FIELD, random.nextInt(1_000_000)));
+            doc.add(new SortedDocValuesField("category", new BytesRef("category" + (i % 7))));
+            indexWriter.addDocument(doc);
+        }
+        indexWriter.commit();
+        indexReader = DirectoryReader.open(indexWriter);
+    }
+
+    @Test
+    public void testFetchKeepsHitOrder() throws IOException {
+        IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+        // sorted by custom_score the hits jump across segments
+        TopDocs topDocs = indexSearcher.search(new TermQuery(new Term("title", "movie")), 200,
+                new Sort(new SortField(DOC_SCORE_FIELD, SortField.Type.LONG, true)));
+        assertTrue(indexReader.leaves().size() > 1);
+
+        HitFetcher hitFetcher = new HitFetcher(new HashSet<>(Arrays.asList("titleId", "title")),
+                new HashSet<>(Arrays.asList(DOC_SCORE_FIELD, "category")));
+        FetchedHit[] hits = hitFetcher.fetch(indexReader, topDocs.scoreDocs);
+        System.out.println("first hit : " + hits[0]);
+
+        assertEquals(topDocs.scoreDocs.length, hits.length);
+        for (int i = 0; i < hits.length; i++) {
+            assertSame(topDocs.scoreDocs[i], hits[i].getScoreDoc());
+            Document expected = indexSearcher.doc(topDocs.scoreDocs[i].doc);
+            Document document = hits[i].getDocument();
+            assertEquals(expected.get("titleId"), document.get("titleId"));
+            assertEquals(expected.get("title"), document.get("title"));
+            // not requested
+            assertNull(document.get("description"));
+            int id = Integer.parseInt(document.get("titleId"));
+            assertEquals("category" + (id % 7), document.get("category"));
+            if (i > 0) {
+                long previous = hits[i - 1].getDocument().getField(DOC_SCORE_FIELD).numericValue().longValue();
+                assertTrue(previous >= document.getField(DOC_SCORE_FIELD).numericValue().longValue());
+            }
+        }
+    }
+
+    @Test
+    public void testDocValuesOnly() throws IOException {
+        IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+        TopDocs topDocs = indexSearcher.search(new TermQuery(new Term("title", "movie")), 100);
+
+        HitFetcher hitFetcher = new HitFetcher(Collections.emptySet(), Collections.singleton(DOC_SCORE_FIELD));
+        FetchedHit[] hits = hitFetcher.fetch(indexReader, topDocs.scoreDocs);
+        for (FetchedHit hit : hits) {
+            // stored fields are never read
+            assertEquals(1, hit.getDocument().getFields().size());
+            assertTrue(hit.getDocument().getField(DOC_SCORE_FIELD).numericValue().longValue() >= 0);
+        }
+        assertEquals(0, hitFetcher.fetch(indexReader, new ScoreDoc[0]).length);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexReader.close();
+        indexWriter.close();
+    }
+}
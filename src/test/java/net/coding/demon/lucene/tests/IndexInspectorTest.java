@@ -0,0 +1,143 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.inspect.DiskUsageReport;
+import net.coding.demon.lucene.inspect.FieldUsage;
+import net.coding.demon.lucene.inspect.FileCategory;
+import net.coding.demon.lucene.inspect.FileUsage;
+import net.coding.demon.lucene.inspect.IndexInspector;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IndexInspectorTest {
+    IndexWriter indexWriter;
+    Path indexLocation;
+    MMapDirectory mMapDirectory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        iwc.setMaxBufferedDocs(500);
+        // the first segments are compound, the merged one is not
+        iwc.setUseCompoundFile(true);
+        iwc.getMergePolicy().setNoCFSRatio(0);
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+    }
+
+    @Test
+    public void testDiskUsage() throws IOException {
+        indexDocs(0, 1000);
+        indexWriter.commit();
+
+        DiskUsageReport report = IndexInspector.inspect(mMapDirectory);
+        System.out.println(report);
+        assertEquals(2, report.getSegments().getSegmentCount());
+        assertTrue(report.getFiles().stream().anyMatch(file -> file.getName().endsWith(".cfs")));
+        assertFieldUsage(report);
+
+        indexWriter.forceMerge(1);
+        indexWriter.commit();
+        report = IndexInspector.inspect(mMapDirectory);
+        System.out.println(report);
+        assertEquals(1, report.getSegments().getSegmentCount());
+        assertTrue(report.getFiles().stream().noneMatch(file -> file.getName().endsWith(".cfs")));
+        assertFieldUsage(report);
+    }
+
+    @Test
+    public void testFilesOnly() throws IOException {
+        indexDocs(0, 100);
+        indexWriter.commit();
+
+        DiskUsageReport report = IndexInspector.inspectFiles(mMapDirectory);
+        System.out.println(report);
+        assertTrue(report.getFields().isEmpty());
+        assertEquals(FileCategory.COMMIT, report.getFiles().get(0).getCategory());
+        long compoundBytes = 0;
+        long insideCompoundBytes = 0;
+        for (FileUsage file : report.getFiles()) {
+            if (file.getName().endsWith(".cfs")) {
+                compoundBytes += file.getSizeInBytes();
+            } else if (file.getName().contains(".cfs:")) {
+                insideCompoundBytes += file.getSizeInBytes();
+            }
+        }
+        // the compound file is its sub files plus headers and footers
+        assertTrue(insideCompoundBytes > 0 && insideCompoundBytes < compoundBytes);
+    }
+
+    private void assertFieldUsage(DiskUsageReport report) throws IOException {
+        // every file of the commit is in the directory, and nothing else but the lock
+        long directoryBytes = 0;
+        for (String file : mMapDirectory.listAll()) {
+            if (!file.equals(IndexWriter.WRITE_LOCK_NAME)) {
+                directoryBytes += mMapDirectory.fileLength(file);
+            }
+        }
+        assertEquals(directoryBytes, report.getTotalBytes());
+
+        FieldUsage description = report.getField("description");
+        FieldUsage title = report.getField("title");
+        FieldUsage titleId = report.getField("titleId");
+        FieldUsage score = report.getField("custom_score");
+        FieldUsage length = report.getField("length");
+        assertTrue(description.getBytes(FileCategory.POSTINGS) > title.getBytes(FileCategory.POSTINGS));
+        assertTrue(description.getBytes(FileCategory.NORMS) > 0);
+        assertEquals(0, description.getBytes(FileCategory.STORED_FIELDS));
+        assertTrue(title.getBytes(FileCategory.STORED_FIELDS) > titleId.getBytes(FileCategory.STORED_FIELDS));
+        assertEquals(0, titleId.getBytes(FileCategory.NORMS));
+        assertTrue(score.getBytes(FileCategory.DOC_VALUES) > 0);
+        assertEquals(0, score.getBytes(FileCategory.POSTINGS));
+        assertTrue(length.getBytes(FileCategory.POINTS) > 0);
+        assertEquals("description", report.getLargestFields(1).get(0).getField());
+
+        // attributed bytes never exceed what the files hold
+        long postings = 0;
+        for (FieldUsage field : report.getFields()) {
+            postings += field.getBytes(FileCategory.POSTINGS);
+        }
+        assertTrue(postings <= report.getBytesByCategory().get(FileCategory.POSTINGS));
+    }
+
+    private void indexDocs(int from, int to) throws IOException {
+        Random random = new Random(from);
+        for (int i = from; i < to; i++) {
+            StringBuilder description = new StringBuilder();
+            for (int w = 50 + random.nextInt(100); w > 0; w--) {
+                description.append("word").append(random.nextInt(2000)).append(' ');
+            }
+            Document doc = new Document();
+            doc.add(new StringField("titleId", Integer.toString(i), Field.Store.YES));
+            doc.add(new TextField("title", "new movie part " + i, Field.Store.YES));
+            doc.add(new TextField("description", description.toString(), Field.Store.NO));
+            doc.add(new NumericDocValuesField("custom_score", random.nextInt(1_000_000)));
+            doc.add(new IntPoint("length", description.length()));
+            indexWriter.addDocument(doc);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexWriter.close();
+    }
+}
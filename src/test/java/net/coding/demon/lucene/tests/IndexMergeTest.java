@@ -1,5 +1,8 @@
 package net.coding.demon.lucene.tests;
 
+import net.coding.demon.lucene.telemetry.IndexTelemetry;
+import net.coding.demon.lucene.telemetry.SegmentInspector;
+import net.coding.demon.lucene.telemetry.SegmentsSnapshot;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
@@ -7,7 +10,6 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.store.MMapDirectory;
-import org.apache.lucene.util.PrintStreamInfoStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -16,9 +18,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 public class IndexMergeTest {
     IndexWriter indexWriter;
     Path indexLocation;
+    IndexTelemetry indexTelemetry;
 
     @BeforeEach
     // create the indexer
@@ -27,8 +32,9 @@ public class IndexMergeTest {
         MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
 
         IndexWriterConfig iwc = new IndexWriterConfig();
-        // add debug print stream for getting indexer logs -- output is too verbose
-        iwc.setInfoStream(new PrintStreamInfoStream(System.out));
+        // structured flush and merge metrics, the InfoStream output is too verbose
+        indexTelemetry = new IndexTelemetry();
+        indexTelemetry.install(iwc);
         indexWriter = new IndexWriter(mMapDirectory, iwc);
     }
 
@@ -71,6 +77,11 @@ public class IndexMergeTest {
         final MergePolicy mergePolicy = indexWriter.getConfig().getMergePolicy();
         System.out.println("index merge policy : " + mergePolicy);
 
+        // one segment per commit
+        final SegmentsSnapshot beforeMerge = SegmentInspector.inspect(indexWriter);
+        System.out.println("Segments before force merge : " + beforeMerge);
+        assertEquals(2, beforeMerge.getSegmentCount());
+
         // merge all segments
         indexWriter.forceMerge(1);
         System.out.println("Files in the index folder after force merge : " + Arrays.toString(indexLocation.toFile().list()));
@@ -78,7 +89,18 @@ public class IndexMergeTest {
         indexWriter.deleteUnusedFiles();
         System.out.println("Files in the index folder after deleteUnusedFiles : " + Arrays.toString(indexLocation.toFile().list()));
 
-        // TODO : not sure how to confirm if there is exactly one segment left after merging.
+        // the segments of the writer, and of the last commit once the merge is committed
+        final SegmentsSnapshot afterMerge = SegmentInspector.inspect(indexWriter);
+        System.out.println("Segments after force merge : " + afterMerge);
+        assertEquals(1, afterMerge.getSegmentCount());
+        assertEquals("merge", afterMerge.getSegments().get(0).getSource());
+        indexWriter.commit();
+        assertEquals(1, SegmentInspector.inspectLatestCommit(indexWriter.getDirectory()).getSegmentCount());
+
+        System.out.println("index telemetry : " + indexTelemetry);
+        assertEquals(2, indexTelemetry.getFlushes());
+        assertEquals(1, indexTelemetry.getMerges());
+        assertEquals(2, indexTelemetry.getMergedSegments());
     }
 
     public void tearDown() throws IOException {
@@ -0,0 +1,147 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.sort.EarlyTerminatingSearch;
+import net.coding.demon.lucene.sort.IndexSorting;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IndexSortTest {
+    public static final String DOC_SCORE_FIELD = "custom_score";
+    static final int NUM_DOCS = 10_000;
+    static final Sort POPULARITY = IndexSorting.descending(DOC_SCORE_FIELD);
+
+    IndexWriter indexWriter;
+    IndexWriter unsortedIndexWriter;
+    DirectoryReader indexReader;
+    DirectoryReader unsortedIndexReader;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        Path indexLocation = Files.createTempDirectory(null);
+        Path unsortedIndexLocation = Files.createTempDirectory(null);
+
+        IndexWriterConfig iwc = IndexSorting.sortIndex(new IndexWriterConfig(), POPULARITY);
+        iwc.setMaxBufferedDocs(2000);
+        indexWriter = new IndexWriter(new MMapDirectory(indexLocation), iwc);
+        unsortedIndexWriter = new IndexWriter(new MMapDirectory(unsortedIndexLocation), new IndexWriterConfig());
+
+        // the same documents in both indexes, with distinct scores so that the top N is unique
+        Random random = new Random(42);
+        for (int i = 0; i < NUM_DOCS; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("titleId", Integer.toString(i), Field.Store.YES));
+            doc.add(new TextField("title", (i % 2 == 0 ? "new movie part " : "old movie part ") + i, Field.Store.YES));
+            doc.add(new NumericDocValuesField(DOC_SCORE_FIELD, (long) i * 7919 % 1_000_003));
+            indexWriter.addDocument(doc);
+            unsortedIndexWriter.addDocument(doc);
+            if (random.nextInt(3000) == 0) {
+                indexWriter.commit();
+            }
+        }
+        indexWriter.commit();
+        unsortedIndexWriter.commit();
+        indexReader = DirectoryReader.open(indexWriter);
+        unsortedIndexReader = DirectoryReader.open(unsortedIndexWriter);
+    }
+
+    @Test
+    public void testEarlyTerminationKeepsTopN() throws IOException {
+        assertTrue(indexReader.leaves().size() > 1);
+        assertTrue(IndexSorting.matchesIndexSort(indexReader, POPULARITY));
+        assertFalse(IndexSorting.matchesIndexSort(unsortedIndexReader, POPULARITY));
+
+        EarlyTerminatingSearch search = new EarlyTerminatingSearch();
+        Query query = new TermQuery(new Term("title", "new"));
+        TopFieldDocs expected = new IndexSearcher(unsortedIndexReader).search(query, 10, POPULARITY);
+        TopFieldDocs topDocs = search.search(new IndexSearcher(indexReader), query, 10, POPULARITY);
+        System.out.println("sorted index total hits : " + topDocs.totalHits + ", unsorted : " + expected.totalHits);
+
+        assertSameValues(expected, topDocs);
+        assertEquals(new TotalHits(NUM_DOCS / 2, TotalHits.Relation.EQUAL_TO), expected.totalHits);
+        // only a lower bound, but at least the hits collected in every segment
+        assertEquals(TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO, topDocs.totalHits.relation);
+        assertTrue(topDocs.totalHits.value >= 10);
+        assertTrue(topDocs.totalHits.value < NUM_DOCS / 2);
+        assertEquals(1, search.getEarlyTerminatedCount());
+
+        // the unsorted index is searched in full
+        TopFieldDocs fullTopDocs = search.search(new IndexSearcher(unsortedIndexReader), query, 10, POPULARITY);
+        assertSameValues(expected, fullTopDocs);
+        assertEquals(expected.totalHits, fullTopDocs.totalHits);
+        assertEquals(1, search.getFullSearchCount());
+        System.out.println(search);
+    }
+
+    @Test
+    public void testExactTotalHits() throws IOException {
+        EarlyTerminatingSearch search = new EarlyTerminatingSearch(true);
+        Query query = new TermQuery(new Term("title", "movie"));
+        TopFieldDocs topDocs = search.search(new IndexSearcher(indexReader), query, 10, POPULARITY);
+        assertEquals(new TotalHits(NUM_DOCS, TotalHits.Relation.EQUAL_TO), topDocs.totalHits);
+        assertSameValues(new IndexSearcher(unsortedIndexReader).search(query, 10, POPULARITY), topDocs);
+        assertEquals(1, search.getEarlyTerminatedCount());
+
+        // fewer matches than requested, nothing to terminate
+        Query rare = new TermQuery(new Term("title", "42"));
+        topDocs = search.search(new IndexSearcher(indexReader), rare, 10, POPULARITY);
+        assertEquals(new TotalHits(1, TotalHits.Relation.EQUAL_TO), topDocs.totalHits);
+        assertEquals(1, search.getEarlyTerminatedCount());
+    }
+
+    @Test
+    public void testOtherSortIsFullSearch() throws IOException {
+        EarlyTerminatingSearch search = new EarlyTerminatingSearch();
+        Query query = new TermQuery(new Term("title", "movie"));
+        // same field, but ascending and as an int: not a prefix of the index sort
+        Sort ascending = new Sort(new SortField(DOC_SCORE_FIELD, SortField.Type.INT));
+        TopFieldDocs topDocs = search.search(new IndexSearcher(indexReader), query, 10, ascending);
+        assertSameValues(new IndexSearcher(unsortedIndexReader).search(query, 10, ascending), topDocs);
+        assertEquals(new TotalHits(NUM_DOCS, TotalHits.Relation.EQUAL_TO), topDocs.totalHits);
+        assertEquals(1, search.getFullSearchCount());
+        assertEquals(0, search.getSortedSearchCount());
+    }
+
+    private static void assertSameValues(TopFieldDocs expected, TopFieldDocs actual) {
+        assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+        for (int i = 0; i < expected.scoreDocs.length; i++) {
+            // doc ids differ between the two indexes, the sort values do not
+            assertEquals(((FieldDoc) expected.scoreDocs[i]).fields[0], ((FieldDoc) actual.scoreDocs[i]).fields[0]);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexReader.close();
+        unsortedIndexReader.close();
+        indexWriter.close();
+        unsortedIndexWriter.close();
+    }
+}
@@ -0,0 +1,131 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.telemetry.IndexEventListener;
+import net.coding.demon.lucene.telemetry.IndexTelemetry;
+import net.coding.demon.lucene.telemetry.MergeEvent;
+import net.coding.demon.lucene.telemetry.SegmentInspector;
+import net.coding.demon.lucene.telemetry.SegmentsSnapshot;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IndexTelemetryTest {
+    IndexWriter indexWriter;
+    Path indexLocation;
+    IndexTelemetry indexTelemetry;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        // flush every 100 docs and merge as soon as there are 3 similar segments
+        iwc.setMaxBufferedDocs(100);
+        TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setSegmentsPerTier(3);
+        iwc.setMergePolicy(mergePolicy);
+        indexTelemetry = new IndexTelemetry();
+        indexTelemetry.install(iwc);
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+    }
+
+    @Test
+    public void testFlushAndMergeEvents() throws IOException {
+        final List<MergeEvent> mergeEvents = new CopyOnWriteArrayList<>();
+        final AtomicLong flushedDocs = new AtomicLong();
+        indexTelemetry.addListener(new IndexEventListener() {
+            @Override
+            public void onFlush(String segment, int numDocs, double sizeMB, long millis) {
+                flushedDocs.addAndGet(numDocs);
+            }
+
+            @Override
+            public void onMerge(MergeEvent event) {
+                mergeEvents.add(event);
+            }
+        });
+
+        for (int i = 0; i < 2000; i++) {
+            indexDoc(i);
+        }
+        indexWriter.commit();
+        // let the background merges finish
+        indexWriter.getConfig().getMergeScheduler().close();
+
+        System.out.println("index telemetry : " + indexTelemetry);
+        System.out.println("merge events : " + mergeEvents);
+        assertEquals(20, indexTelemetry.getFlushes());
+        assertEquals(2000, indexTelemetry.getFlushedDocs());
+        assertEquals(2000, flushedDocs.get());
+        assertTrue(indexTelemetry.getMerges() > 0);
+        assertEquals(indexTelemetry.getMerges(), mergeEvents.size());
+        assertTrue(indexTelemetry.getMergedBytes() > 0);
+        assertEquals(0, indexTelemetry.getRunningMerges());
+        for (MergeEvent mergeEvent : mergeEvents) {
+            assertFalse(mergeEvent.isAborted());
+            assertTrue(mergeEvent.getNumSegments() > 1);
+        }
+    }
+
+    @Test
+    public void testDeletedDocsRatio() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            indexDoc(i);
+        }
+        indexWriter.commit();
+        for (int i = 0; i < 25; i++) {
+            indexWriter.deleteDocuments(new Term("titleId", Integer.toString(i)));
+        }
+
+        // the NRT view sees the deletes, the last commit does not
+        final SegmentsSnapshot snapshot = SegmentInspector.inspect(indexWriter);
+        System.out.println("segments : " + snapshot);
+        assertEquals(1, snapshot.getSegmentCount());
+        assertEquals(100, snapshot.getMaxDoc());
+        assertEquals(25, snapshot.getDelCount());
+        assertEquals(0.25, snapshot.getDeletedDocsRatio(), 0.0001);
+        assertEquals("flush", snapshot.getLargestSegment().getSource());
+        assertTrue(snapshot.getTotalBytes() > 0);
+        assertEquals(0, SegmentInspector.inspectLatestCommit(indexWriter.getDirectory()).getDelCount());
+
+        indexWriter.commit();
+        assertEquals(25, SegmentInspector.inspectLatestCommit(indexWriter.getDirectory()).getDelCount());
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            assertEquals(25, SegmentInspector.inspect(indexReader).getDelCount());
+        }
+    }
+
+    private void indexDoc(int i) throws IOException {
+        Document doc = new Document();
+        doc.add(new StringField("titleId", Integer.toString(i), Field.Store.YES));
+        doc.add(new TextField("title", "new movie part " + i, Field.Store.YES));
+        indexWriter.addDocument(doc);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexWriter.close();
+    }
+}
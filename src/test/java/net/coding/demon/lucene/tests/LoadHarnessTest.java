@@ -0,0 +1,121 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.load.LoadConfig;
+import net.coding.demon.lucene.load.LoadHarness;
+import net.coding.demon.lucene.load.LoadMix;
+import net.coding.demon.lucene.load.LoadReport;
+import net.coding.demon.lucene.load.Operation;
+import net.coding.demon.lucene.load.Workload;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadHarnessTest {
+    public static final String DOC_SCORE_FIELD = "custom_score";
+    IndexWriter indexWriter;
+    Path indexLocation;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+    }
+
+    @Test
+    public void testMixedLoad() throws IOException, InterruptedException {
+        LoadConfig config = new LoadConfig()
+                .setNumThreads(4)
+                .setDuration(2, TimeUnit.SECONDS)
+                .setInitialDocs(1000)
+                .setMaxStaleSec(0.1)
+                .setMix(LoadMix.parse("add=20,update=10,delete=5,commit=0.1,query=65"));
+        LoadReport report = new LoadHarness(indexWriter, new MovieWorkload(), config).run();
+        System.out.println(report);
+
+        for (Operation operation : Operation.values()) {
+            assertTrue(report.getCount(operation) > 0, operation.name());
+            assertEquals(0, report.getErrors(operation), operation.name());
+        }
+        long writes = report.getCount(Operation.ADD) + report.getCount(Operation.UPDATE) + report.getCount(Operation.DELETE);
+        // every write became visible, after the final refresh at the latest
+        assertEquals(writes, report.getVisibilityLag().getTotalCount() + report.getPendingVisibility());
+        assertTrue(report.getVisibilityLag().getTotalCount() > 0);
+        // refreshed every 100ms, leave room for slow refreshes on a loaded machine
+        assertTrue(report.getVisibilityLag().getValueAtPercentile(50) < TimeUnit.SECONDS.toNanos(1),
+                "p50 visibility lag " + report.getVisibilityLag().getValueAtPercentile(50));
+        assertTrue(indexWriter.getDocStats().numDocs <= 1000 + report.getCount(Operation.ADD));
+    }
+
+    @Test
+    public void testTargetRate() throws IOException, InterruptedException {
+        LoadConfig config = new LoadConfig()
+                .setNumThreads(2)
+                .setDuration(1, TimeUnit.SECONDS)
+                .setInitialDocs(100)
+                .setTargetOpsPerSec(500)
+                .setMix(new LoadMix().set(Operation.ADD, 1).set(Operation.QUERY, 1));
+        LoadReport report = new LoadHarness(indexWriter, new MovieWorkload(), config).run();
+        System.out.println(report);
+        // paced, not as fast as possible
+        assertTrue(report.getTotalCount() > 250 && report.getTotalCount() < 750, "ops " + report.getTotalCount());
+        assertEquals(0, report.getCount(Operation.DELETE));
+    }
+
+    @Test
+    public void testParseMix() {
+        LoadMix mix = LoadMix.parse("add=1, query=3");
+        assertEquals(1, mix.getWeight(Operation.ADD));
+        assertEquals(3, mix.getWeight(Operation.QUERY));
+        assertEquals(0, mix.getWeight(Operation.COMMIT));
+        Random random = new Random(0);
+        int queries = 0;
+        for (int i = 0; i < 10_000; i++) {
+            Operation operation = mix.next(random);
+            assertTrue(operation == Operation.ADD || operation == Operation.QUERY);
+            queries += operation == Operation.QUERY ? 1 : 0;
+        }
+        assertTrue(queries > 7000 && queries < 8000, "queries " + queries);
+    }
+
+    static final class MovieWorkload implements Workload {
+        @Override
+        public Document newDocument(Random random) {
+            Document doc = new Document();
+            doc.add(new TextField("title", "new movie part " + random.nextInt(1000), Field.Store.YES));
+            doc.add(new NumericDocValuesField(DOC_SCORE_FIELD, random.nextInt(1000)));
+            return doc;
+        }
+
+        @Override
+        public Query newQuery(Random random) {
+            return new TermQuery(new Term("title", Integer.toString(random.nextInt(1000))));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexWriter.close();
+    }
+}
@@ -1,4 +1,188 @@
 package net.coding.demon.lucene.tests;
 
+import net.coding.demon.lucene.filter.FilterCache;
+import net.coding.demon.lucene.filter.FrequencyCostCachingPolicy;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class LuceneFilterTest {
+    static final int NUM_DOCS = 100_000;
+
+    IndexWriter indexWriter;
+    Path indexLocation;
+    DirectoryReader indexReader;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        iwc.setRAMBufferSizeMB(64);
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+        for (int i = 0; i < NUM_DOCS; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("titleId", Integer.toString(i), Field.Store.YES));
+            // 10% of the docs per tenant, 0.1% per category, and 10 rare docs
+            doc.add(new StringField("tenant", "tenant" + (i % 10), Field.Store.NO));
+            doc.add(new StringField("category", i % 10_000 == 0 ? "rare" : "category" + (i % 1000), Field.Store.NO));
+            doc.add(new TextField("title", "new movie part " + i, Field.Store.YES));
+            doc.add(new IntPoint("year", 1950 + i % 70));
+            indexWriter.addDocument(doc);
+        }
+        indexWriter.forceMerge(1);
+        indexWriter.commit();
+        indexReader = DirectoryReader.open(indexWriter);
+    }
+
+    @Test
+    public void testBitSetChosenByDensity() throws IOException {
+        FilterCache filterCache = new FilterCache(100, 16 * 1024 * 1024);
+        FrequencyCostCachingPolicy policy = new FrequencyCostCachingPolicy().setTermMinFrequency(1);
+        IndexSearcher indexSearcher = filterCache.install(new IndexSearcher(indexReader), policy);
+        IndexSearcher uncachedSearcher = new IndexSearcher(indexReader);
+        uncachedSearcher.setQueryCache(null);
+
+        for (String[] filter : new String[][]{{"tenant", "tenant3"}, {"category", "category7"}, {"category", "rare"}}) {
+            Query query = filtered(new MatchAllDocsQuery(), new TermQuery(new Term(filter[0], filter[1])));
+            assertEquals(count(uncachedSearcher, query), count(indexSearcher, query));
+            // answered from the cache the second time
+            assertEquals(count(uncachedSearcher, query), count(indexSearcher, query));
+        }
+        System.out.println("filter cache : " + filterCache);
+        assertEquals(1, filterCache.getDenseSetCount());
+        assertEquals(1, filterCache.getRoaringSetCount());
+        assertEquals(1, filterCache.getSparseSetCount());
+        assertEquals(3, filterCache.getCacheSize());
+        assertEquals(3, filterCache.getHitCount());
+        assertTrue(filterCache.ramBytesUsed() > NUM_DOCS / 8);
+    }
+
+    @Test
+    public void testCachingPolicy() {
+        FrequencyCostCachingPolicy policy = new FrequencyCostCachingPolicy();
+        Query term = new TermQuery(new Term("tenant", "tenant1"));
+        Query ids = new TermInSetQuery("titleId", new BytesRef("1"), new BytesRef("2"));
+        for (int i = 1; i <= FrequencyCostCachingPolicy.DEFAULT_TERM_MIN_FREQUENCY; i++) {
+            assertFalse(policy.shouldCache(term));
+            policy.onUse(term);
+            policy.onUse(ids);
+            assertEquals(i >= FrequencyCostCachingPolicy.DEFAULT_COSTLY_MIN_FREQUENCY, policy.shouldCache(ids));
+        }
+        assertTrue(policy.shouldCache(term));
+
+        Query matchAll = new MatchAllDocsQuery();
+        for (int i = 0; i < 10; i++) {
+            policy.onUse(matchAll);
+        }
+        assertFalse(policy.shouldCache(matchAll));
+    }
+
+    @Test
+    public void testFilteredSearchServedFromCache() throws IOException {
+        // the usual shape of our queries: a scoring query, a costly range filter and a tenant filter
+        Query query = filtered(new TermQuery(new Term("title", "movie")),
+                IntPoint.newRangeQuery("year", 1980, 2000), new TermQuery(new Term("tenant", "tenant3")));
+
+        IndexSearcher uncachedSearcher = new IndexSearcher(indexReader);
+        uncachedSearcher.setQueryCache(null);
+        FilterCache filterCache = new FilterCache(100, 16 * 1024 * 1024);
+        IndexSearcher cachedSearcher = filterCache.install(new IndexSearcher(indexReader), new FrequencyCostCachingPolicy());
+
+        long uncachedNanos = medianSearchNanos(uncachedSearcher, query);
+        long cachedNanos = medianSearchNanos(cachedSearcher, query);
+        System.out.println("filter cache : " + filterCache);
+        System.out.println("median uncached search : " + uncachedNanos / 1000 + " us, cached search : " + cachedNanos / 1000 + " us");
+        assertEquals(count(uncachedSearcher, query), count(cachedSearcher, query));
+        // the latencies are only printed, timings are too noisy to assert on; the filters are served from the cache
+        assertTrue(filterCache.getCacheSize() > 0);
+        long hits = filterCache.getHitCount();
+        long misses = filterCache.getMissCount();
+        assertTrue(hits > 0);
+        // once cached, a search is one hit per filter on the single segment and no miss
+        cachedSearcher.search(query, 10);
+        assertEquals(misses, filterCache.getMissCount());
+        assertEquals(hits + filterCache.getCacheSize(), filterCache.getHitCount());
+    }
+
+    @Test
+    public void testHeapStaysBounded() throws IOException {
+        long maxRamBytesUsed = 64 * 1024;
+        FilterCache filterCache = new FilterCache(10_000, maxRamBytesUsed);
+        FrequencyCostCachingPolicy policy = new FrequencyCostCachingPolicy(1000).setTermMinFrequency(1);
+        IndexSearcher indexSearcher = filterCache.install(new IndexSearcher(indexReader), policy);
+
+        for (int i = 0; i < 1000; i++) {
+            Query query = filtered(new MatchAllDocsQuery(), new TermQuery(new Term("category", "category" + i)),
+                    new TermQuery(new Term("tenant", "tenant" + (i % 10))));
+            // the rare docs are taken from category0
+            assertEquals(i == 0 ? 90 : 100, count(indexSearcher, query));
+            assertTrue(filterCache.ramBytesUsed() <= maxRamBytesUsed, "ramBytesUsed " + filterCache.ramBytesUsed());
+        }
+        System.out.println("filter cache : " + filterCache);
+        assertTrue(filterCache.getEvictionCount() > 0);
+        assertTrue(filterCache.getCacheCount() > filterCache.getCacheSize());
+    }
+
+    private static Query filtered(Query query, Query... filters) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(query, BooleanClause.Occur.MUST);
+        for (Query filter : filters) {
+            builder.add(filter, BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+
+    private static int count(IndexSearcher indexSearcher, Query query) throws IOException {
+        // IndexSearcher.count answers single term queries from the doc freq, without the cache
+        TotalHitCountCollector collector = new TotalHitCountCollector();
+        indexSearcher.search(query, collector);
+        return collector.getTotalHits();
+    }
+
+    private static long medianSearchNanos(IndexSearcher indexSearcher, Query query) throws IOException {
+        long[] nanos = new long[21];
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            indexSearcher.search(query, 10);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[nanos.length / 2];
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexReader.close();
+        indexWriter.close();
+    }
 }
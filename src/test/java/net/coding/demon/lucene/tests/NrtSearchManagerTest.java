@@ -0,0 +1,153 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.nrt.DocValuesWarmer;
+import net.coding.demon.lucene.nrt.NrtSearchManager;
+import net.coding.demon.lucene.nrt.QueryWarmer;
+import net.coding.demon.lucene.nrt.SearcherLease;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NrtSearchManagerTest {
+    public static final String DOC_SCORE_FIELD = "custom_score";
+    public static final String TITLE_FIELD = "title";
+    IndexWriter indexWriter;
+    Path indexLocation;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+    }
+
+    @Test
+    public void testReadYourWrites() throws IOException, InterruptedException {
+        // a long max staleness, visibility has to come from waitForGeneration
+        try (NrtSearchManager nrtSearchManager = new NrtSearchManager(indexWriter, 60)) {
+            try (SearcherLease lease = nrtSearchManager.acquire()) {
+                assertEquals(0, lease.getSearcher().getIndexReader().numDocs());
+            }
+
+            indexDoc("1", "new movie", 1);
+            final long seqNo = indexDoc("2", "new movie part2", 3);
+            nrtSearchManager.waitForGeneration(seqNo);
+
+            try (SearcherLease lease = nrtSearchManager.acquire()) {
+                assertEquals(2, lease.getSearcher().count(new TermQuery(new Term(TITLE_FIELD, "movie"))));
+            }
+
+            final long deleteSeqNo = indexWriter.deleteDocuments(new Term("titleId", "1"));
+            assertTrue(nrtSearchManager.waitForGeneration(deleteSeqNo, 10, TimeUnit.SECONDS));
+            try (SearcherLease lease = nrtSearchManager.acquire()) {
+                assertEquals(1, lease.getSearcher().count(new MatchAllDocsQuery()));
+            }
+        }
+    }
+
+    @Test
+    public void testBackgroundRefreshWithinMaxStaleness() throws IOException, InterruptedException {
+        try (NrtSearchManager nrtSearchManager = new NrtSearchManager(indexWriter, 0.1)) {
+            indexDoc("1", "new movie", 1);
+            // nobody waits for the generation, the reopen thread still picks it up within ~100ms
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            int numDocs = 0;
+            while (numDocs == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+                try (SearcherLease lease = nrtSearchManager.acquire()) {
+                    numDocs = lease.getSearcher().getIndexReader().numDocs();
+                }
+            }
+            assertEquals(1, numDocs);
+        }
+    }
+
+    @Test
+    public void testLeaseReleasesReader() throws IOException, InterruptedException {
+        try (NrtSearchManager nrtSearchManager = new NrtSearchManager(indexWriter, 60)) {
+            final IndexReader oldReader;
+            try (SearcherLease lease = nrtSearchManager.acquire()) {
+                oldReader = lease.getSearcher().getIndexReader();
+                // one reference held by the manager, one by this lease
+                assertEquals(2, oldReader.getRefCount());
+
+                nrtSearchManager.waitForGeneration(indexDoc("1", "new movie", 1));
+                // the manager moved on, the old reader stays open as long as it is leased
+                assertEquals(1, oldReader.getRefCount());
+            }
+            // closing the lease released the last reference
+            assertEquals(0, oldReader.getRefCount());
+
+            SearcherLease lease = nrtSearchManager.acquire();
+            lease.close();
+            assertThrows(IllegalStateException.class, lease::getSearcher);
+        }
+    }
+
+    @Test
+    public void testWarmersRunBeforePublish() throws IOException, InterruptedException {
+        final List<Integer> warmedReaders = new ArrayList<>();
+        final DocValuesWarmer docValuesWarmer = new DocValuesWarmer(DOC_SCORE_FIELD);
+        final QueryWarmer queryWarmer = new QueryWarmer(10)
+                .addQuery(new TermQuery(new Term(TITLE_FIELD, "movie")))
+                .addQuery(new TermQuery(new Term(TITLE_FIELD, "movie")), new Sort(new SortField(DOC_SCORE_FIELD, SortField.Type.INT)));
+
+        try (NrtSearchManager nrtSearchManager = new NrtSearchManager(indexWriter, 60, docValuesWarmer, queryWarmer,
+                (IndexSearcher searcher, IndexReader previousReader) -> warmedReaders.add(searcher.getIndexReader().numDocs()))) {
+            for (int i = 0; i < 10; i++) {
+                indexDoc(Integer.toString(i), "Movie " + i, i);
+            }
+            indexWriter.commit();
+            nrtSearchManager.maybeRefreshBlocking();
+
+            try (SearcherLease lease = nrtSearchManager.acquire()) {
+                assertEquals(10, lease.getSearcher().getIndexReader().numDocs());
+            }
+            // initial empty searcher plus the refreshed one
+            assertEquals(2, nrtSearchManager.getRefreshCount());
+            assertEquals(List.of(0, 10), warmedReaders);
+            System.out.println("last warm millis : " + nrtSearchManager.getLastWarmMillis());
+        }
+    }
+
+    private long indexDoc(String id, String s, int i) throws IOException {
+        Document doc = new Document();
+        doc.add(new StringField("titleId", id, Field.Store.YES));
+        doc.add(new TextField(TITLE_FIELD, s, Field.Store.YES));
+        doc.add(new NumericDocValuesField(DOC_SCORE_FIELD, i));
+        return indexWriter.addDocument(doc);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexWriter.close();
+    }
+}
@@ -0,0 +1,129 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.numeric.NumericField;
+import net.coding.demon.lucene.numeric.NumericQueries;
+import net.coding.demon.lucene.numeric.NumericQueryParser;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NumericRangeQueryTest {
+    static final int NUM_DOCS = 10_000;
+    static final long BASE_TIMESTAMP = 1_600_000_000_000L;
+    static final NumericField NO_OF_LINES = NumericField.intField("noOfLines");
+    static final NumericField TIMESTAMP = NumericField.longField("timestamp");
+
+    IndexWriter indexWriter;
+    Path indexLocation;
+    DirectoryReader indexReader;
+    IndexSearcher indexSearcher;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        iwc.setMaxBufferedDocs(3000);
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+        for (int i = 0; i < NUM_DOCS; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("titleId", Integer.toString(i), Field.Store.YES));
+            doc.add(new TextField("title", (i % 2 == 0 ? "new movie part " : "old movie part ") + i, Field.Store.YES));
+            NO_OF_LINES.addStoredTo(doc, i % 100);
+            TIMESTAMP.addTo(doc, BASE_TIMESTAMP + i * 1000L);
+            indexWriter.addDocument(doc);
+        }
+        indexWriter.commit();
+        indexReader = DirectoryReader.open(indexWriter);
+        indexSearcher = new IndexSearcher(indexReader);
+    }
+
+    @Test
+    public void testRangeAndSetQueries() throws IOException {
+        Query range = NumericQueries.newRangeQuery(NO_OF_LINES, 10, 19);
+        assertTrue(range instanceof IndexOrDocValuesQuery);
+        assertEquals(1000, indexSearcher.count(range));
+        // both paths agree
+        assertEquals(1000, indexSearcher.count(NumericQueries.pointsRangeQuery(NO_OF_LINES, 10, 19)));
+        assertEquals(1000, indexSearcher.count(NumericQueries.docValuesRangeQuery(NO_OF_LINES, 10, 19)));
+
+        assertEquals(100, indexSearcher.count(NumericQueries.newExactQuery(NO_OF_LINES, 42)));
+        assertEquals(300, indexSearcher.count(NumericQueries.newSetQuery(NO_OF_LINES, 1, 7, 7, 99)));
+        assertEquals(10, indexSearcher.count(NumericQueries.newRangeQuery(TIMESTAMP, BASE_TIMESTAMP, BASE_TIMESTAMP + 9999)));
+        assertEquals(2, indexSearcher.count(NumericQueries.newSetQuery(TIMESTAMP, BASE_TIMESTAMP, BASE_TIMESTAMP + 1000, 3)));
+
+        // int bounds are clamped, int values out of range match nothing
+        assertEquals(NUM_DOCS, indexSearcher.count(NumericQueries.newRangeQuery(NO_OF_LINES, Long.MIN_VALUE, Long.MAX_VALUE)));
+        assertEquals(0, indexSearcher.count(NumericQueries.newExactQuery(NO_OF_LINES, 1L << 40)));
+        assertEquals(100, indexSearcher.count(NumericQueries.newSetQuery(NO_OF_LINES, 1L << 40, 5)));
+        assertEquals(0, indexSearcher.count(NumericQueries.newRangeQuery(NO_OF_LINES, 20, 10)));
+        assertThrows(IllegalArgumentException.class, () -> NO_OF_LINES.addTo(new Document(), 1L << 40));
+    }
+
+    @Test
+    public void testRangeAsFilter() throws IOException {
+        // a selective query led by a term, the range only verifies its matches through doc values
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(new TermQuery(new Term("titleId", "1234")), BooleanClause.Occur.MUST);
+        builder.add(NumericQueries.newRangeQuery(NO_OF_LINES, 30, 40), BooleanClause.Occur.FILTER);
+        assertEquals(1, indexSearcher.count(builder.build()));
+
+        builder = new BooleanQuery.Builder();
+        builder.add(new TermQuery(new Term("title", "new")), BooleanClause.Occur.MUST);
+        builder.add(NumericQueries.newSetQuery(NO_OF_LINES, 1, 2, 3, 4), BooleanClause.Occur.FILTER);
+        builder.add(NumericQueries.newRangeQuery(TIMESTAMP, BASE_TIMESTAMP, BASE_TIMESTAMP + 5_000_000), BooleanClause.Occur.FILTER);
+        // even lines among 1..4 in the first 5001 docs
+        assertEquals(100, indexSearcher.count(builder.build()));
+    }
+
+    @Test
+    public void testQueryParser() throws ParseException, IOException {
+        NumericQueryParser parser = new NumericQueryParser("title", new StandardAnalyzer(), NO_OF_LINES, TIMESTAMP);
+        assertEquals(1000, indexSearcher.count(parser.parse("noOfLines:[10 TO 19]")));
+        assertEquals(900, indexSearcher.count(parser.parse("noOfLines:{10 TO 20}")));
+        assertEquals(1000, indexSearcher.count(parser.parse("noOfLines:[* TO 9]")));
+        assertEquals(500, indexSearcher.count(parser.parse("noOfLines:{94 TO *]")));
+        assertEquals(100, indexSearcher.count(parser.parse("noOfLines:42")));
+        assertEquals(300, indexSearcher.count(parser.parse("noOfLines:(1 OR 2 OR 3)")));
+        // even docs with 0, 2 or 4 lines
+        assertEquals(300, indexSearcher.count(parser.parse("new AND noOfLines:[0 TO 4]")));
+        assertEquals(10, indexSearcher.count(parser.parse("timestamp:[" + BASE_TIMESTAMP + " TO " + (BASE_TIMESTAMP + 9999) + "]")));
+        // a range on a string field is still a term range, numbers are compared as strings there
+        Query titleRange = parser.parse("titleId:[10 TO 19]");
+        System.out.println("titleId range : " + titleRange + ", noOfLines range : " + parser.parse("noOfLines:[10 TO 19]"));
+        assertTrue(indexSearcher.count(titleRange) > 10);
+        assertThrows(ParseException.class, () -> parser.parse("noOfLines:many"));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexReader.close();
+        indexWriter.close();
+    }
+}
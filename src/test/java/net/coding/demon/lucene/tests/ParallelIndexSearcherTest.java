@@ -0,0 +1,158 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.nrt.NrtSearchManager;
+import net.coding.demon.lucene.nrt.SearcherLease;
+import net.coding.demon.lucene.search.ParallelIndexSearcher;
+import net.coding.demon.lucene.search.ParallelSearcherFactory;
+import net.coding.demon.lucene.search.SearchExecutors;
+import net.coding.demon.lucene.search.SlicePolicy;
+import net.coding.demon.lucene.search.SliceStats;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelIndexSearcherTest {
+    public static final String DOC_SCORE_FIELD = "custom_score";
+    public static final String TITLE_FIELD = "title";
+    IndexWriter indexWriter;
+    Path indexLocation;
+    ExecutorService executor;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        // keep every flushed segment, so the sizes below are predictable
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+        executor = SearchExecutors.newSearchThreadPool(4);
+
+        // one large segment of 1000 docs, then 6 small ones of 10 docs
+        int doc = 0;
+        for (int i = 0; i < 1000; i++) {
+            indexDoc(doc++);
+        }
+        indexWriter.commit();
+        for (int segment = 0; segment < 6; segment++) {
+            for (int i = 0; i < 10; i++) {
+                indexDoc(doc++);
+            }
+            indexWriter.commit();
+        }
+    }
+
+    @Test
+    public void testSlicePolicyGroupsSmallSegments() throws IOException {
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            assertEquals(7, indexReader.leaves().size());
+            final ParallelIndexSearcher indexSearcher = new ParallelIndexSearcher(indexReader, executor, new SlicePolicy(500, 4));
+            final IndexSearcher.LeafSlice[] slices = indexSearcher.getSlices();
+            // the large segment alone, then 4 + 2 small segments
+            assertEquals(3, slices.length);
+            assertEquals(1, slices[0].leaves.length);
+            assertEquals(1000, slices[0].leaves[0].reader().maxDoc());
+            assertEquals(4, slices[1].leaves.length);
+            assertEquals(2, slices[2].leaves.length);
+        }
+    }
+
+    @Test
+    public void testSameResultsAsSequentialSearch() throws IOException {
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            final IndexSearcher sequential = new IndexSearcher(indexReader);
+            final ParallelIndexSearcher parallel = new ParallelIndexSearcher(indexReader, executor, new SlicePolicy(500, 4));
+            final TermQuery termQuery = new TermQuery(new Term(TITLE_FIELD, "movie"));
+            final Sort sort = new Sort(new SortField(DOC_SCORE_FIELD, SortField.Type.INT, true));
+
+            for (int i = 0; i < 10; i++) {
+                assertSameHits(sequential.search(termQuery, 20), parallel.search(termQuery, 20));
+                assertSameHits(sequential.search(termQuery, 20, sort), parallel.search(termQuery, 20, sort));
+            }
+
+            for (SliceStats sliceStats : parallel.getSliceStats()) {
+                System.out.println(sliceStats);
+                assertEquals(20, sliceStats.getSearches());
+                assertTrue(sliceStats.getMaxMillis() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testVirtualThreadExecutor() throws IOException {
+        if (!SearchExecutors.isVirtualThreadsSupported()) {
+            System.out.println("no virtual threads on java " + System.getProperty("java.version"));
+            assertThrows(UnsupportedOperationException.class, SearchExecutors::newVirtualThreadExecutor);
+            return;
+        }
+        final ExecutorService virtualThreads = SearchExecutors.newVirtualThreadExecutor();
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            final ParallelIndexSearcher parallel = new ParallelIndexSearcher(indexReader, virtualThreads);
+            assertEquals(1060, parallel.count(new TermQuery(new Term(TITLE_FIELD, "movie"))));
+        } finally {
+            virtualThreads.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelSearcherFactory() throws IOException {
+        try (NrtSearchManager nrtSearchManager = new NrtSearchManager(indexWriter, 60, NrtSearchManager.DEFAULT_MIN_STALE_SEC,
+                new ParallelSearcherFactory(executor, new SlicePolicy(500, 4)))) {
+            try (SearcherLease lease = nrtSearchManager.acquire()) {
+                assertTrue(lease.getSearcher() instanceof ParallelIndexSearcher);
+                assertEquals(3, lease.getSearcher().getSlices().length);
+                assertEquals(1060, lease.getSearcher().search(new TermQuery(new Term(TITLE_FIELD, "movie")), 10).totalHits.value);
+            }
+        }
+    }
+
+    private static void assertSameHits(TopDocs expected, TopDocs actual) {
+        assertEquals(expected.totalHits, actual.totalHits);
+        assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+        for (int i = 0; i < expected.scoreDocs.length; i++) {
+            ScoreDoc expectedDoc = expected.scoreDocs[i];
+            ScoreDoc actualDoc = actual.scoreDocs[i];
+            assertEquals(expectedDoc.doc, actualDoc.doc);
+            assertEquals(expectedDoc.score, actualDoc.score);
+        }
+    }
+
+    private void indexDoc(int i) throws IOException {
+        Document doc = new Document();
+        doc.add(new TextField(TITLE_FIELD, "new movie part " + i, Field.Store.YES));
+        doc.add(new NumericDocValuesField(DOC_SCORE_FIELD, i));
+        indexWriter.addDocument(doc);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        executor.shutdown();
+        indexWriter.close();
+    }
+}
@@ -0,0 +1,252 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.fetch.FetchedHit;
+import net.coding.demon.lucene.fetch.HitFetcher;
+import net.coding.demon.lucene.shard.ShardStats;
+import net.coding.demon.lucene.shard.ShardedIndex;
+import net.coding.demon.lucene.shard.ShardedIndexConfig;
+import net.coding.demon.lucene.shard.ShardedSearcher;
+import net.coding.demon.lucene.shard.ShardedTopDocs;
+import net.coding.demon.lucene.sort.IndexSorting;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedIndexTest {
+    static final int NUM_DOCS = 2000;
+    static final int NUM_SHARDS = 4;
+    static final Sort POPULARITY = IndexSorting.descending("custom_score");
+
+    // the same documents in one index, as the reference for the merged results
+    IndexWriter indexWriter;
+    Path indexLocation;
+    Path shardsLocation;
+    ShardedIndex shardedIndex;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+        indexWriter = new IndexWriter(mMapDirectory, new IndexWriterConfig());
+
+        shardsLocation = Files.createTempDirectory(null);
+        // no background refresh within a test, refreshes are explicit
+        shardedIndex = new ShardedIndex(shardsLocation, new ShardedIndexConfig()
+                .setNumShards(NUM_SHARDS)
+                .setMaxStaleSec(60));
+    }
+
+    private static Document newDocument(int i) {
+        Document doc = new Document();
+        doc.add(new StringField("titleId", Integer.toString(i), Field.Store.YES));
+        // term frequencies and lengths vary from doc to doc, so do the scores
+        StringBuilder title = new StringBuilder("movie part " + i);
+        for (int j = 0; j < i % 5; j++) {
+            title.append(" lucene");
+        }
+        for (int j = 0; j < i % 7; j++) {
+            title.append(" filler").append(j);
+        }
+        doc.add(new TextField("title", title.toString(), Field.Store.YES));
+        // a distinct score per doc, 7919 is prime
+        doc.add(new NumericDocValuesField("custom_score", (i * 7919L) % NUM_DOCS));
+        return doc;
+    }
+
+    private void indexAll() throws IOException {
+        for (int i = 0; i < NUM_DOCS; i++) {
+            indexWriter.addDocument(newDocument(i));
+            shardedIndex.addDocument(newDocument(i));
+        }
+        shardedIndex.maybeRefreshBlocking();
+    }
+
+    @Test
+    public void testRoutingAndUpdates() throws Exception {
+        indexAll();
+        try (ShardedSearcher searcher = shardedIndex.acquire()) {
+            assertEquals(NUM_DOCS, searcher.numDocs());
+            for (int shard = 0; shard < NUM_SHARDS; shard++) {
+                int shardDocs = searcher.getSearcher(shard).getIndexReader().numDocs();
+                System.out.println("shard " + shard + " : " + shardDocs + " docs");
+                // murmur3 spreads sequential ids evenly
+                assertTrue(shardDocs > NUM_DOCS / NUM_SHARDS / 2, "shard " + shard + " has " + shardDocs + " docs");
+            }
+            for (int i = 0; i < 100; i++) {
+                String id = Integer.toString(i);
+                Query byId = new TermQuery(new Term("titleId", id));
+                assertEquals(1, searcher.getSearcher(shardedIndex.shardOf(id)).count(byId));
+                assertEquals(1, searcher.count(byId));
+            }
+        }
+
+        Document updated = newDocument(5);
+        updated.removeFields("title");
+        updated.add(new TextField("title", "updated movie", Field.Store.YES));
+        shardedIndex.waitForGeneration("5", shardedIndex.updateDocument("5", updated));
+        shardedIndex.waitForGeneration("6", shardedIndex.deleteDocument("6"));
+        try (ShardedSearcher searcher = shardedIndex.acquire()) {
+            assertEquals(NUM_DOCS - 1, searcher.numDocs());
+            ShardedTopDocs hits = searcher.search(new TermQuery(new Term("title", "updated")), 10);
+            assertEquals(1, hits.getTopDocs().totalHits.value);
+            assertEquals("5", searcher.doc(hits.getTopDocs().scoreDocs[0]).get("titleId"));
+            assertEquals(0, searcher.count(new TermQuery(new Term("titleId", "6"))));
+        }
+    }
+
+    @Test
+    public void testSortedMergeMatchesSingleIndex() throws IOException {
+        indexAll();
+        Query query = new TermQuery(new Term("title", "lucene"));
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter);
+             ShardedSearcher searcher = shardedIndex.acquire()) {
+            TopDocs expected = new IndexSearcher(indexReader).search(query, 50, POPULARITY);
+            ShardedTopDocs hits = searcher.search(query, 50, POPULARITY);
+            System.out.println("sorted : " + hits);
+            TopDocs merged = hits.getTopDocs();
+            assertEquals(expected.totalHits, merged.totalHits);
+            assertEquals(expected.scoreDocs.length, merged.scoreDocs.length);
+
+            FetchedHit[] fetched = searcher.fetch(merged.scoreDocs, HitFetcher.storedFields("titleId"));
+            for (int i = 0; i < expected.scoreDocs.length; i++) {
+                assertEquals(((FieldDoc) expected.scoreDocs[i]).fields[0], ((FieldDoc) merged.scoreDocs[i]).fields[0]);
+                assertEquals(indexReader.document(expected.scoreDocs[i].doc).get("titleId"), fetched[i].getDocument().get("titleId"));
+            }
+            // descending custom_score across shards
+            for (int i = 1; i < merged.scoreDocs.length; i++) {
+                long previous = (Long) ((FieldDoc) merged.scoreDocs[i - 1]).fields[0];
+                long current = (Long) ((FieldDoc) merged.scoreDocs[i]).fields[0];
+                assertTrue(previous > current);
+            }
+        }
+    }
+
+    @Test
+    public void testRelevanceMergeMatchesSingleIndex() throws IOException {
+        indexAll();
+        Query query = new TermQuery(new Term("title", "lucene"));
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter);
+             ShardedSearcher searcher = shardedIndex.acquire()) {
+            IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+            TopDocs expected = indexSearcher.search(query, 20);
+            TopDocs merged = searcher.search(query, 20).getTopDocs();
+            // relevance searches stop counting after 1000 hits, on every shard
+            assertEquals(indexSearcher.count(query), searcher.count(query));
+            // the shards score with the statistics of all shards, as the single index does
+            for (int i = 0; i < expected.scoreDocs.length; i++) {
+                assertEquals(expected.scoreDocs[i].score, merged.scoreDocs[i].score, 1e-6);
+            }
+
+            // with local statistics the scores of the shards drift apart
+            ScoreDoc top = merged.scoreDocs[0];
+            float localScore = new IndexSearcher(searcher.getSearcher(top.shardIndex).getIndexReader())
+                    .search(query, 1).scoreDocs[0].score;
+            System.out.println("top score with global statistics : " + top.score + ", with shard statistics : " + localScore);
+        }
+    }
+
+    @Test
+    public void testShardLevelRefreshAndLatency() throws IOException {
+        indexAll();
+        long[] refreshes = new long[NUM_SHARDS];
+        for (int shard = 0; shard < NUM_SHARDS; shard++) {
+            refreshes[shard] = shardedIndex.getShardStats().get(shard).getRefreshCount();
+        }
+
+        String id = Integer.toString(NUM_DOCS);
+        int target = shardedIndex.shardOf(id);
+        shardedIndex.addDocument(newDocument(NUM_DOCS));
+        try (ShardedSearcher searcher = shardedIndex.acquire()) {
+            assertEquals(0, searcher.count(new TermQuery(new Term("titleId", id))));
+        }
+        shardedIndex.maybeRefreshBlocking(target);
+        try (ShardedSearcher searcher = shardedIndex.acquire()) {
+            assertEquals(1, searcher.count(new TermQuery(new Term("titleId", id))));
+            for (int i = 0; i < 10; i++) {
+                ShardedTopDocs hits = searcher.search(new MatchAllDocsQuery(), 10, POPULARITY);
+                assertEquals(NUM_SHARDS, hits.getNumShards());
+                assertTrue(hits.getShardMillis(hits.getSlowestShard()) >= hits.getShardMillis(0));
+            }
+        }
+        for (ShardStats stats : shardedIndex.getShardStats()) {
+            System.out.println(stats);
+            // only the shard that received the document was refreshed
+            assertEquals(refreshes[stats.getShard()] + (stats.getShard() == target ? 1 : 0), stats.getRefreshCount());
+            // two counts and ten searches
+            assertEquals(12, stats.getSearches());
+            assertTrue(stats.getMaxMillis() >= stats.getAverageMillis());
+        }
+    }
+
+    @Test
+    public void testEveryShardFailureIsReported() throws IOException {
+        indexAll();
+        Query failing = new Query() {
+            @Override
+            public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+                throw new IOException("shard failed");
+            }
+
+            @Override
+            public void visit(QueryVisitor visitor) {
+            }
+
+            @Override
+            public String toString(String field) {
+                return "failing";
+            }
+
+            @Override
+            public boolean equals(Object other) {
+                return other == this;
+            }
+
+            @Override
+            public int hashCode() {
+                return System.identityHashCode(this);
+            }
+        };
+        try (ShardedSearcher searcher = shardedIndex.acquire()) {
+            IOException e = assertThrows(IOException.class, () -> searcher.search(failing, 10));
+            // the first failure is thrown once all shards are done, the others are attached to it
+            assertEquals(NUM_SHARDS - 1, e.getSuppressed().length);
+            // the searchers are still usable
+            assertEquals(NUM_DOCS, searcher.count(new MatchAllDocsQuery()));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        shardedIndex.close();
+        indexWriter.close();
+    }
+}
@@ -40,6 +40,7 @@ public class SimpleIndexSearchTest {
         // Directory directory = new RAFDirectory();
         // An FSDirectory implementation that uses java.nio's FileChannel's positional read, which allows multiple threads to read from the same file without synchronizing.
         // Directory directory = new NIOFSDirectory();
+        // See DirectorySearchBenchmark in the benchmarks module for the numbers behind these comments.
         indexLocation = Files.createTempDirectory(null);
         MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
 
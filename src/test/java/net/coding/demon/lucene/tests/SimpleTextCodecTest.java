@@ -1,5 +1,7 @@
 package net.coding.demon.lucene.tests;
 
+import net.coding.demon.lucene.numeric.NumericField;
+import net.coding.demon.lucene.numeric.NumericQueries;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.lucene.codecs.simpletext.SimpleTextCodec;
 import org.apache.lucene.document.BinaryDocValuesField;
@@ -8,8 +10,10 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.PrintStreamInfoStream;
@@ -23,8 +27,11 @@ import java.util.Arrays;
 import java.util.StringTokenizer;
 
 import static net.coding.demon.lucene.tests.TestUtils.catFiles;
+import static net.coding.demon.lucene.tests.TestUtils.printDiskUsage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class SimpleTextCodecTest {
+    static final NumericField NO_OF_SENTENCES = NumericField.intField("noOfSentences");
 
     IndexWriter indexWriter;
     Path indexLocation;
@@ -52,6 +59,14 @@ public class SimpleTextCodecTest {
         indexWriter.commit();
         System.out.println("After index commit : Files created in the index folder : " + Arrays.toString(indexLocation.toFile().list()));
         catFiles(indexLocation);
+        printDiskUsage(indexWriter.getDirectory());
+
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+            assertEquals(1, indexSearcher.count(IntPoint.newRangeQuery("noOfLines", 1, 10)));
+            assertEquals(1, indexSearcher.count(NumericQueries.newExactQuery(NO_OF_SENTENCES, 1)));
+            assertEquals(0, indexSearcher.count(NumericQueries.newRangeQuery(NO_OF_SENTENCES, 2, 10)));
+        }
     }
 
     private void indexDoc(String contents) throws IOException {
@@ -64,8 +79,8 @@ public class SimpleTextCodecTest {
         Document doc = new Document();
         doc.add(new TextField("contents",contents, Field.Store.NO));
         doc.add(new IntPoint("noOfLines",noOfLines));
-        // Will Standard Analyzer index anything in this?
-        doc.add(new TextField("noOfSentences", Integer.toString(noOfSentences), Field.Store.YES));
+        // points for ranges plus doc values, instead of a TextField of the stringified number
+        NO_OF_SENTENCES.addStoredTo(doc, noOfSentences);
         doc.add(new NumericDocValuesField("noOfCharacters", noOfCharacters));
         doc.add(new BinaryDocValuesField("noOfWords",new BytesRef(Integer.toString(noOfWords))));
 
@@ -1,23 +1,52 @@
 package net.coding.demon.lucene.tests;
 
-import org.apache.commons.io.FileUtils;
+import net.coding.demon.lucene.inspect.IndexInspector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Arrays;
 
 public class TestUtils {
+    // print at most this much of each file
+    static final long MAX_CAT_BYTES = 64 * 1024;
 
     public static void listFiles(Path indexLocation) {
         System.out.println("After IndexWriter. commit() : Files created in the index folder : " + Arrays.toString(indexLocation.toFile().list()));
     }
 
+    /**
+     * Prints the head of every index file, streaming it through an IndexInput instead of loading it whole.
+     */
     public static void catFiles(Path folder) throws IOException {
-        for (String filePath : folder.toFile().list()) {
-            System.out.println("\n---------- Start Contents of " + filePath + " ----------" );
-            System.out.println(FileUtils.readFileToString(folder.resolve(filePath).toFile(), "UTF-8"));
-            System.out.println("---------- End Contents of " + filePath + " ----------\n" );
+        byte[] buffer = new byte[8192];
+        try (Directory directory = FSDirectory.open(folder)) {
+            for (String file : directory.listAll()) {
+                System.out.println("\n---------- Start Contents of " + file + " ----------");
+                try (IndexInput in = directory.openInput(file, IOContext.READONCE)) {
+                    long remaining = Math.min(in.length(), MAX_CAT_BYTES);
+                    while (remaining > 0) {
+                        int length = (int) Math.min(buffer.length, remaining);
+                        in.readBytes(buffer, 0, length);
+                        System.out.write(buffer, 0, length);
+                        remaining -= length;
+                    }
+                    if (in.length() > MAX_CAT_BYTES) {
+                        System.out.println("\n... " + (in.length() - MAX_CAT_BYTES) + " more bytes");
+                    }
+                }
+                System.out.println("\n---------- End Contents of " + file + " ----------\n");
+            }
         }
     }
+
+    /**
+     * Prints the per-file, per-segment and per-field disk usage of the last commit.
+     */
+    public static void printDiskUsage(Directory directory) throws IOException {
+        System.out.println(IndexInspector.inspect(directory));
+    }
 }
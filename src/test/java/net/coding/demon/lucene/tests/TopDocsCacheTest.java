@@ -0,0 +1,229 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.cache.TopDocsCache;
+import net.coding.demon.lucene.nrt.NrtSearchManager;
+import net.coding.demon.lucene.nrt.SearcherLease;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TopDocsCacheTest {
+    public static final String DOC_SCORE_FIELD = "custom_score";
+    public static final String TITLE_FIELD = "title";
+    IndexWriter indexWriter;
+    Path indexLocation;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+
+        indexDoc("new movie", 1);
+        indexDoc("new movie part2", 3);
+        indexDoc("new movie part3", 2);
+        indexWriter.commit();
+    }
+
+    @Test
+    public void testHitsAndMisses() throws IOException {
+        final TopDocsCache cache = new TopDocsCache(1024 * 1024, 100);
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+            final TermQuery termQuery = new TermQuery(new Term(TITLE_FIELD, "movie"));
+            final Sort sort = new Sort(new SortField(DOC_SCORE_FIELD, SortField.Type.INT));
+
+            final TopDocs topDocs = cache.search(indexSearcher, termQuery, 10);
+            assertEquals(3, topDocs.totalHits.value);
+            assertSame(topDocs, cache.search(indexSearcher, new TermQuery(new Term(TITLE_FIELD, "movie")), 10));
+
+            // sort and n are part of the key
+            final TopFieldDocs sorted = cache.search(indexSearcher, termQuery, 10, sort);
+            assertEquals(3, sorted.scoreDocs.length);
+            assertSame(sorted, cache.search(indexSearcher, termQuery, 10, sort));
+            assertNotSame(topDocs, cache.search(indexSearcher, termQuery, 2));
+
+            System.out.println("cache : " + cache);
+            assertEquals(2, cache.getHitCount());
+            assertEquals(3, cache.getMissCount());
+            assertEquals(3, cache.size());
+            assertTrue(cache.ramBytesUsed() > 0);
+        }
+    }
+
+    @Test
+    public void testNewReaderGenerationMisses() throws IOException {
+        final TopDocsCache cache = new TopDocsCache(1024 * 1024, 100);
+        final TermQuery termQuery = new TermQuery(new Term(TITLE_FIELD, "movie"));
+        DirectoryReader indexReader = DirectoryReader.open(indexWriter);
+        assertEquals(3, cache.search(new IndexSearcher(indexReader), termQuery, 10).totalHits.value);
+
+        indexDoc("another movie", 4);
+        DirectoryReader newReader = DirectoryReader.openIfChanged(indexReader);
+        indexReader.close();
+        // the new reader has another version, the stale result is not returned
+        assertEquals(4, cache.search(new IndexSearcher(newReader), termQuery, 10).totalHits.value);
+        assertEquals(0, cache.getHitCount());
+        newReader.close();
+    }
+
+    @Test
+    public void testOtherIndexWithSameVersionMisses() throws IOException {
+        final TopDocsCache cache = new TopDocsCache(1024 * 1024, 100);
+        final TermQuery termQuery = new TermQuery(new Term(TITLE_FIELD, "movie"));
+        Path otherLocation = Files.createTempDirectory(null);
+        try (MMapDirectory otherDirectory = new MMapDirectory(otherLocation);
+             IndexWriter otherWriter = new IndexWriter(otherDirectory, new IndexWriterConfig())) {
+            // as many changes as the main index, with one movie less
+            for (String title : new String[]{"new movie", "new movie part2", "new show"}) {
+                Document doc = new Document();
+                doc.add(new TextField(TITLE_FIELD, title, Field.Store.YES));
+                otherWriter.addDocument(doc);
+            }
+            otherWriter.commit();
+            try (DirectoryReader indexReader = DirectoryReader.open(indexWriter.getDirectory());
+                 DirectoryReader otherReader = DirectoryReader.open(otherDirectory)) {
+                assertEquals(indexReader.getVersion(), otherReader.getVersion());
+                assertEquals(3, cache.search(new IndexSearcher(indexReader), termQuery, 10).totalHits.value);
+                assertEquals(2, cache.search(new IndexSearcher(otherReader), termQuery, 10).totalHits.value);
+                assertEquals(0, cache.getHitCount());
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidatedOnNrtRefresh() throws IOException {
+        final TopDocsCache cache = new TopDocsCache(1024 * 1024, 100);
+        final TermQuery termQuery = new TermQuery(new Term(TITLE_FIELD, "movie"));
+        try (NrtSearchManager nrtSearchManager = new NrtSearchManager(indexWriter, 60)) {
+            nrtSearchManager.addListener(cache);
+            try (SearcherLease lease = nrtSearchManager.acquire()) {
+                cache.search(lease.getSearcher(), termQuery, 10);
+            }
+            assertEquals(1, cache.size());
+
+            indexDoc("another movie", 4);
+            // listeners run after the new searcher is published, maybeRefreshBlocking waits for them
+            nrtSearchManager.maybeRefreshBlocking();
+            assertEquals(0, cache.size());
+            assertEquals(1, cache.getInvalidationCount());
+            try (SearcherLease lease = nrtSearchManager.acquire()) {
+                assertEquals(4, cache.search(lease.getSearcher(), termQuery, 10).totalHits.value);
+            }
+        }
+    }
+
+    @Test
+    public void testMemoryIsBoundedAndHotEntriesSurvive() throws IOException {
+        for (int i = 0; i < 200; i++) {
+            indexDoc("Movie " + i, i);
+        }
+        // room for a handful of entries only
+        final TopDocsCache cache = new TopDocsCache(8 * 1024, 10);
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+            final TermQuery hotQuery = new TermQuery(new Term(TITLE_FIELD, "movie"));
+            for (int i = 0; i < 20; i++) {
+                cache.search(indexSearcher, hotQuery, 10);
+            }
+            // a scan of one-off queries while the hot query is the least recently used entry
+            for (int i = 0; i < 100; i++) {
+                cache.search(indexSearcher, new TermQuery(new Term(TITLE_FIELD, Integer.toString(i))), 10);
+                assertTrue(cache.ramBytesUsed() <= cache.getMaxRamBytesUsed());
+            }
+            System.out.println("cache after scan : " + cache);
+            // the one-off queries were not popular enough to evict the hot one
+            assertTrue(cache.getRejectionCount() > 0);
+            long hits = cache.getHitCount();
+            cache.search(indexSearcher, hotQuery, 10);
+            assertEquals(hits + 1, cache.getHitCount());
+
+            // skewed traffic, the cold entries are evicted in LRU order instead
+            for (int i = 100; i < 200; i++) {
+                cache.search(indexSearcher, hotQuery, 10);
+                cache.search(indexSearcher, new TermQuery(new Term(TITLE_FIELD, Integer.toString(i))), 10);
+                assertTrue(cache.ramBytesUsed() <= cache.getMaxRamBytesUsed());
+            }
+            System.out.println("cache after skewed traffic : " + cache);
+            assertTrue(cache.getEvictionCount() > 0);
+            hits = cache.getHitCount();
+            cache.search(indexSearcher, hotQuery, 10);
+            assertEquals(hits + 1, cache.getHitCount());
+        }
+    }
+
+    @Test
+    public void testRejectedEntryEvictsNothing() throws IOException {
+        for (int i = 0; i < 200; i++) {
+            indexDoc("Movie " + i, i);
+        }
+        try (DirectoryReader indexReader = DirectoryReader.open(indexWriter)) {
+            IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+            final TermQuery coldQuery = new TermQuery(new Term(TITLE_FIELD, "1"));
+            final TermQuery hotQuery = new TermQuery(new Term(TITLE_FIELD, "movie"));
+            // sizes of the entries, measured in a cache large enough for all of them
+            final TopDocsCache probe = new TopDocsCache(1024 * 1024, 10);
+            probe.search(indexSearcher, coldQuery, 1);
+            long coldBytes = probe.ramBytesUsed();
+            probe.search(indexSearcher, hotQuery, 1);
+            long hotBytes = probe.ramBytesUsed() - coldBytes;
+            probe.search(indexSearcher, hotQuery, 200);
+            long largeBytes = probe.ramBytesUsed() - coldBytes - hotBytes;
+
+            // the large entry only fits if both the cold and the hot entry are evicted
+            final TopDocsCache cache = new TopDocsCache(largeBytes + hotBytes / 2, 10);
+            cache.search(indexSearcher, coldQuery, 1);
+            for (int i = 0; i < 5; i++) {
+                cache.search(indexSearcher, hotQuery, 1);
+            }
+            assertEquals(2, cache.size());
+            // more popular than the cold entry, less than the hot one
+            cache.search(indexSearcher, hotQuery, 200);
+            cache.search(indexSearcher, hotQuery, 200);
+
+            System.out.println("cache : " + cache);
+            assertEquals(2, cache.getRejectionCount());
+            assertEquals(0, cache.getEvictionCount());
+            assertEquals(2, cache.size());
+            assertEquals(coldBytes + hotBytes, cache.ramBytesUsed());
+        }
+    }
+
+    private long indexDoc(String s, int i) throws IOException {
+        Document doc = new Document();
+        doc.add(new TextField(TITLE_FIELD, s, Field.Store.YES));
+        doc.add(new NumericDocValuesField(DOC_SCORE_FIELD, i));
+        return indexWriter.addDocument(doc);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexWriter.close();
+    }
+}
@@ -0,0 +1,206 @@
+package net.coding.demon.lucene.tests;
+
+import net.coding.demon.lucene.warmup.ColdStartTracker;
+import net.coding.demon.lucene.warmup.FileResidency;
+import net.coding.demon.lucene.warmup.PageCacheResidency;
+import net.coding.demon.lucene.warmup.PreloadingMMapDirectory;
+import net.coding.demon.lucene.warmup.WarmupPolicy;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WarmupTest {
+    public static final String DOC_SCORE_FIELD = "custom_score";
+    IndexWriter indexWriter;
+    Path indexLocation;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        indexLocation = Files.createTempDirectory(null);
+        MMapDirectory mMapDirectory = new MMapDirectory(indexLocation);
+
+        IndexWriterConfig iwc = new IndexWriterConfig();
+        indexWriter = new IndexWriter(mMapDirectory, iwc);
+    }
+
+    @Test
+    public void testPreloadSelectedFiles() throws IOException {
+        // separate files for every format
+        indexWriter.getConfig().setUseCompoundFile(false);
+        indexDocs(5000);
+
+        try (PreloadingMMapDirectory directory = new PreloadingMMapDirectory(indexLocation, WarmupPolicy.defaults());
+             DirectoryReader indexReader = DirectoryReader.open(directory)) {
+            System.out.println(directory);
+            assertTrue(directory.getPreloadedFiles().contains("_0_Lucene80_0.dvd"), directory.getPreloadedFiles().toString());
+            assertTrue(directory.getPreloadedFiles().contains("_0_Lucene84_0.tim"), directory.getPreloadedFiles().toString());
+            assertTrue(directory.getPreloadedFiles().contains("_0.kdd"), directory.getPreloadedFiles().toString());
+            for (String file : directory.getPreloadedFiles()) {
+                assertFalse(file.endsWith(".fdt") || file.endsWith(".doc"), file);
+            }
+
+            PageCacheResidency.Report report = PageCacheResidency.report(indexLocation);
+            System.out.println(report);
+            for (String file : directory.getPreloadedFiles()) {
+                FileResidency residency = report.getFile(file);
+                assertNotNull(residency, file);
+                assertEquals(residency.getSizeInBytes(), residency.getResidentBytes(), residency.toString());
+            }
+            assertTrue(report.getResidentBytes() <= report.getTotalBytes());
+            assertEquals(5000, search(indexReader));
+        }
+    }
+
+    @Test
+    public void testPreloadInsideCompoundFile() throws IOException {
+        indexWriter.getConfig().setUseCompoundFile(true);
+        indexDocs(1000);
+        assertTrue(Files.exists(indexLocation.resolve("_0.cfs")));
+
+        try (PreloadingMMapDirectory directory = new PreloadingMMapDirectory(indexLocation, WarmupPolicy.defaults());
+             DirectoryReader indexReader = DirectoryReader.open(directory)) {
+            System.out.println("preloaded : " + directory.getPreloadedFiles());
+            assertTrue(directory.getPreloadedFiles().contains("_0_Lucene80_0.dvd"), directory.getPreloadedFiles().toString());
+            assertTrue(directory.getPreloadedFiles().contains("_0.kdd"), directory.getPreloadedFiles().toString());
+            assertFalse(directory.getPreloadedFiles().contains("_0.cfs"));
+            assertFalse(directory.getPreloadedFiles().contains("_0.fdt"));
+            assertEquals(1000, search(indexReader));
+        }
+    }
+
+    @Test
+    public void testPreloadBudget() throws IOException {
+        indexWriter.getConfig().setUseCompoundFile(false);
+        indexDocs(1000);
+
+        WarmupPolicy policy = WarmupPolicy.defaults().setMaxPreloadBytes(16);
+        try (PreloadingMMapDirectory directory = new PreloadingMMapDirectory(indexLocation, policy);
+             DirectoryReader indexReader = DirectoryReader.open(directory)) {
+            assertTrue(directory.getPreloadedFiles().isEmpty(), directory.getPreloadedFiles().toString());
+            assertEquals(0, directory.getPreloadedBytes());
+            assertTrue(directory.getSkippedFileCount() > 0);
+            assertEquals(1000, search(indexReader));
+        }
+    }
+
+    @Test
+    public void testTimeToFirstFastQuery() throws IOException {
+        ColdStartTracker tracker = new ColdStartTracker(1, TimeUnit.MILLISECONDS);
+        tracker.record(TimeUnit.MILLISECONDS.toNanos(50));
+        tracker.record(TimeUnit.MILLISECONDS.toNanos(20));
+        assertFalse(tracker.isWarm());
+        assertEquals(-1, tracker.getTimeToFirstFastQueryNanos());
+        tracker.record(TimeUnit.MICROSECONDS.toNanos(200));
+        tracker.record(TimeUnit.MILLISECONDS.toNanos(80));
+        assertTrue(tracker.isWarm());
+        assertEquals(2, tracker.getColdQueryCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), tracker.getMaxColdQueryNanos());
+        assertTrue(tracker.getTimeToFirstFastQueryNanos() >= 0);
+
+        // a real cold start, a fresh reader over preloaded files
+        indexDocs(5000);
+        try (PreloadingMMapDirectory directory = new PreloadingMMapDirectory(indexLocation, WarmupPolicy.defaults())) {
+            tracker = new ColdStartTracker(10, TimeUnit.MILLISECONDS);
+            try (DirectoryReader indexReader = DirectoryReader.open(directory)) {
+                for (int i = 0; i < 1000 && tracker.isWarm() == false; i++) {
+                    long start = System.nanoTime();
+                    search(indexReader);
+                    tracker.record(System.nanoTime() - start);
+                }
+            }
+            System.out.println(tracker);
+            assertTrue(tracker.isWarm(), tracker.toString());
+        }
+    }
+
+    @Test
+    public void testPreloadedBytesFollowDeletes() throws IOException {
+        Path location = Files.createTempDirectory(null);
+        IndexWriterConfig iwc = new IndexWriterConfig().setUseCompoundFile(false);
+        try (PreloadingMMapDirectory directory = new PreloadingMMapDirectory(location, WarmupPolicy.defaults());
+             IndexWriter writer = new IndexWriter(directory, iwc)) {
+            for (int i = 0; i < 2000; i++) {
+                Document doc = new Document();
+                doc.add(new TextField("title", "new movie part " + i, Field.Store.YES));
+                doc.add(new NumericDocValuesField(DOC_SCORE_FIELD, i % 1000));
+                writer.addDocument(doc);
+                if (i % 500 == 499) {
+                    writer.commit();
+                }
+            }
+            try (DirectoryReader indexReader = DirectoryReader.open(directory)) {
+                long preloadedBytes = directory.getPreloadedBytes();
+                assertTrue(preloadedBytes > 0);
+                // the same files opened by a second reader are not counted again
+                try (DirectoryReader secondReader = DirectoryReader.open(directory)) {
+                    assertEquals(2000, search(secondReader));
+                    assertEquals(preloadedBytes, directory.getPreloadedBytes());
+                }
+
+                writer.forceMerge(1);
+                writer.commit();
+                try (DirectoryReader mergedReader = DirectoryReader.openIfChanged(indexReader)) {
+                    assertEquals(2000, search(mergedReader));
+                }
+            }
+            System.out.println(directory);
+            // the files of the merged away segments are gone, and so are their bytes
+            Set<String> files = new HashSet<>(Arrays.asList(directory.listAll()));
+            long listedBytes = 0;
+            for (String file : directory.getPreloadedFiles()) {
+                assertTrue(files.contains(file), file);
+                listedBytes += directory.fileLength(file);
+            }
+            assertEquals(listedBytes, directory.getPreloadedBytes());
+        }
+    }
+
+    private static long search(DirectoryReader indexReader) throws IOException {
+        IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+        return indexSearcher.search(new TermQuery(new Term("title", "movie")), 10,
+                new Sort(new SortField(DOC_SCORE_FIELD, SortField.Type.LONG, true))).totalHits.value;
+    }
+
+    private void indexDocs(int numDocs) throws IOException {
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new TextField("title", "new movie part " + i, Field.Store.YES));
+            doc.add(new NumericDocValuesField(DOC_SCORE_FIELD, i % 1000));
+            doc.add(new IntPoint("year", 1950 + i % 70));
+            indexWriter.addDocument(doc);
+        }
+        indexWriter.commit();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        indexWriter.close();
+    }
+}